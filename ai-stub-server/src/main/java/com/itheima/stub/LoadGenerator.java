@@ -0,0 +1,193 @@
+package com.itheima.stub;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式接口压测工具
+ * 功能：按固定并发持续请求各Controller，统计吞吐量以及首字节/总耗时的p50、p99
+ *
+ * 系统属性：
+ * - load.baseUrl          被测服务地址，默认 http://localhost:8080
+ * - load.concurrency      每个目标的并发数，默认 20
+ * - load.durationSeconds  压测时长，默认 30
+ * - load.prompt           请求使用的提示词
+ * - load.targets          目标列表，格式 name=/path?query，逗号分隔；{chatId}与{prompt}会被替换
+ *                         默认压测 spring-ai-dome 的 chat/service/game 三个接口
+ *
+ * 示例：
+ * java -Dload.targets="pdf=/ai/pdf/chat?chatId=1&prompt={prompt}" -cp ai-stub-server.jar com.itheima.stub.LoadGenerator
+ */
+public class LoadGenerator implements AutoCloseable {
+
+    private static final String DEFAULT_TARGETS = "chat=/ai/chat?chatId={chatId}&prompt={prompt},"
+            + "service=/ai/service?chatId={chatId}&prompt={prompt},"
+            + "game=/ai/game?chatId={chatId}&prompt={prompt}";
+
+    // HttpClient的回调线程池，close()时关闭
+    private final ExecutorService httpExecutor = Executors.newCachedThreadPool();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(httpExecutor)
+            .build();
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8080");
+        int concurrency = Integer.getInteger("load.concurrency", 20);
+        int durationSeconds = Integer.getInteger("load.durationSeconds", 30);
+        String prompt = System.getProperty("load.prompt", "你好，请介绍一下你自己");
+        String targets = System.getProperty("load.targets", DEFAULT_TARGETS);
+
+        try (LoadGenerator generator = new LoadGenerator()) {
+            Map<String, Stats> results = generator.run(baseUrl, parseTargets(targets), prompt, concurrency,
+                    Duration.ofSeconds(durationSeconds));
+            results.forEach((name, stats) -> System.out.println(stats.report(name)));
+        }
+    }
+
+    /**
+     * 对所有目标同时压测，返回每个目标的统计结果
+     */
+    public Map<String, Stats> run(String baseUrl, Map<String, String> targets, String prompt, int concurrency,
+                                  Duration duration) throws InterruptedException {
+        Map<String, Stats> results = new LinkedHashMap<>();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency * targets.size());
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong sequence = new AtomicLong();
+        long start = System.nanoTime();
+
+        targets.forEach((name, path) -> {
+            Stats stats = new Stats();
+            results.put(name, stats);
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String chatId = "load-" + sequence.incrementAndGet();
+                        String url = baseUrl + path
+                                .replace("{chatId}", chatId)
+                                .replace("{prompt}", URLEncoder.encode(prompt, StandardCharsets.UTF_8));
+                        request(url, stats);
+                    }
+                });
+            }
+        });
+
+        workers.shutdown();
+        workers.awaitTermination(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        results.values().forEach(stats -> stats.elapsedNanos = elapsed);
+        return results;
+    }
+
+    @Override
+    public void close() {
+        httpExecutor.shutdownNow();
+    }
+
+    private void request(String url, Stats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMinutes(2))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long firstByte = 0;
+            try (InputStream body = response.body()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (firstByte == 0 && read > 0) {
+                        firstByte = System.nanoTime() - start;
+                    }
+                }
+            }
+            long total = System.nanoTime() - start;
+            if (response.statusCode() >= 400) {
+                stats.errors.incrementAndGet();
+                return;
+            }
+            stats.record(firstByte == 0 ? total : firstByte, total);
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    static Map<String, String> parseTargets(String targets) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        for (String target : targets.split(",")) {
+            int eq = target.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid target, expected name=/path: " + target);
+            }
+            parsed.put(target.substring(0, eq).trim(), target.substring(eq + 1).trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * 单个目标的统计数据
+     */
+    public static class Stats {
+
+        private final Queue<Long> firstByteNanos = new ConcurrentLinkedQueue<>();
+
+        private final Queue<Long> totalNanos = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private volatile long elapsedNanos;
+
+        void record(long firstByte, long total) {
+            firstByteNanos.add(firstByte);
+            totalNanos.add(total);
+        }
+
+        public long getRequests() {
+            return totalNanos.size();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getRequests() * 1e9 / elapsedNanos;
+        }
+
+        public double firstBytePercentileMs(double percentile) {
+            return percentileMs(firstByteNanos, percentile);
+        }
+
+        public double totalPercentileMs(double percentile) {
+            return percentileMs(totalNanos, percentile);
+        }
+
+        String report(String name) {
+            return String.format("%-10s requests=%d errors=%d throughput=%.1f req/s "
+                            + "ttfb p50=%.1fms p99=%.1fms total p50=%.1fms p99=%.1fms",
+                    name, getRequests(), getErrors(), getThroughput(),
+                    firstBytePercentileMs(50), firstBytePercentileMs(99),
+                    totalPercentileMs(50), totalPercentileMs(99));
+        }
+
+        private static double percentileMs(Collection<Long> samples, double percentile) {
+            long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
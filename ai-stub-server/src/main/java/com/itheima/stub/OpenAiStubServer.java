@@ -0,0 +1,322 @@
+package com.itheima.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenAI兼容的本地桩服务
+ * 功能：
+ * 1. POST .../chat/completions  支持SSE流式与非流式、可配置输出速率、首Token延迟、工具调用和usage分片
+ * 2. POST .../embeddings        返回确定性向量（相同文本得到相同向量，相近文本向量相近）
+ *
+ * 路径只匹配后缀，因此以下base-url均可直接指向本服务：
+ * - spring-ai-dome：spring.ai.openai.base-url=http://localhost:18080/compatible-mode
+ * - langchain4j-dome：base-url: http://localhost:18080/compatible-mode/v1
+ *
+ * 注意：DashScope原生协议（QwenChatModel等）不是OpenAI协议，无法指向本服务
+ */
+public class OpenAiStubServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final StubConfig config;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    public OpenAiStubServer(StubConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(config.getPort()), 0);
+        this.executor = Executors.newFixedThreadPool(config.getWorkerThreads());
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StubConfig config = StubConfig.fromSystemProperties();
+        OpenAiStubServer stubServer = new OpenAiStubServer(config);
+        stubServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stubServer::close));
+        System.out.printf("OpenAI stub server started on port %d (%d tokens/s, first token %d ms)%n",
+                stubServer.getPort(), config.getTokensPerSecond(), config.getFirstTokenLatencyMs());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 实际监听端口（配置为0时由系统分配）
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, error("Only POST is supported"));
+                return;
+            }
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = MAPPER.readTree(body);
+            } catch (JsonProcessingException e) {
+                // 请求体不是合法JSON：返回400，让压测配置错误尽早暴露
+                sendJson(exchange, 400, error("Invalid JSON body: " + e.getOriginalMessage()));
+                return;
+            }
+            if (request == null || !request.isObject()) {
+                sendJson(exchange, 400, error("Request body must be a JSON object"));
+                return;
+            }
+            if (path.endsWith("/chat/completions")) {
+                chatCompletions(exchange, request);
+            } else if (path.endsWith("/embeddings")) {
+                sendJson(exchange, 200, embeddings(request));
+            } else {
+                sendJson(exchange, 404, error("Unknown path: " + path));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 客户端提前断开连接，直接丢弃
+        }
+    }
+
+    // ------------------------------------------------------------------ chat
+
+    private void chatCompletions(HttpExchange exchange, JsonNode request) throws IOException, InterruptedException {
+        String model = request.path("model").asText("stub-model");
+        String id = "chatcmpl-" + UUID.randomUUID();
+        long created = System.currentTimeMillis() / 1000;
+        int promptTokens = countPromptTokens(request);
+        JsonNode toolCall = shouldCallTool(request) ? buildToolCall(request) : null;
+        String reply = toolCall == null ? config.getReply() : "";
+        int completionTokens = toolCall == null ? reply.length() : 1;
+
+        if (!request.path("stream").asBoolean(false)) {
+            sleep(config.getFirstTokenLatencyMs());
+            ObjectNode message = MAPPER.createObjectNode().put("role", "assistant");
+            if (toolCall != null) {
+                message.putNull("content");
+                message.putArray("tool_calls").add(toolCall);
+            } else {
+                message.put("content", reply);
+            }
+            ObjectNode response = MAPPER.createObjectNode()
+                    .put("id", id)
+                    .put("object", "chat.completion")
+                    .put("created", created)
+                    .put("model", model);
+            response.putArray("choices").addObject()
+                    .put("index", 0)
+                    .put("finish_reason", toolCall != null ? "tool_calls" : "stop")
+                    .set("message", message);
+            response.set("usage", usage(promptTokens, completionTokens));
+            sendJson(exchange, 200, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleep(config.getFirstTokenLatencyMs());
+
+        if (toolCall != null) {
+            ObjectNode delta = MAPPER.createObjectNode().put("role", "assistant");
+            ((ObjectNode) toolCall).put("index", 0);
+            delta.putArray("tool_calls").add(toolCall);
+            writeEvent(out, chunk(id, created, model, delta, null));
+            writeEvent(out, chunk(id, created, model, MAPPER.createObjectNode(), "tool_calls"));
+        } else {
+            long interval = config.getTokensPerSecond() > 0
+                    ? TimeUnit.SECONDS.toNanos(config.getCharsPerChunk()) / config.getTokensPerSecond() : 0;
+            boolean first = true;
+            for (int i = 0; i < reply.length(); i += config.getCharsPerChunk()) {
+                if (!first) {
+                    sleepNanos(interval);
+                }
+                ObjectNode delta = MAPPER.createObjectNode();
+                if (first) {
+                    delta.put("role", "assistant");
+                    first = false;
+                }
+                delta.put("content", reply.substring(i, Math.min(reply.length(), i + config.getCharsPerChunk())));
+                writeEvent(out, chunk(id, created, model, delta, null));
+            }
+            writeEvent(out, chunk(id, created, model, MAPPER.createObjectNode(), "stop"));
+        }
+
+        if (config.isAlwaysUsage() || request.path("stream_options").path("include_usage").asBoolean(false)) {
+            ObjectNode usageChunk = MAPPER.createObjectNode()
+                    .put("id", id)
+                    .put("object", "chat.completion.chunk")
+                    .put("created", created)
+                    .put("model", model);
+            usageChunk.putArray("choices");
+            usageChunk.set("usage", usage(promptTokens, completionTokens));
+            writeEvent(out, usageChunk);
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 请求带有tools，且最后一条消息不是工具结果时，先返回一次工具调用
+     */
+    private boolean shouldCallTool(JsonNode request) {
+        if (!config.isToolCalls() || !request.path("tools").isArray() || request.path("tools").isEmpty()) {
+            return false;
+        }
+        JsonNode messages = request.path("messages");
+        if (!messages.isArray() || messages.isEmpty()) {
+            return true;
+        }
+        return !"tool".equals(messages.get(messages.size() - 1).path("role").asText());
+    }
+
+    private JsonNode buildToolCall(JsonNode request) {
+        String name = request.path("tools").get(0).path("function").path("name").asText();
+        ObjectNode toolCall = MAPPER.createObjectNode()
+                .put("id", "call_" + UUID.randomUUID().toString().replace("-", ""))
+                .put("type", "function");
+        toolCall.putObject("function")
+                .put("name", name)
+                .put("arguments", "{}");
+        return toolCall;
+    }
+
+    private ObjectNode chunk(String id, long created, String model, ObjectNode delta, String finishReason) {
+        ObjectNode chunk = MAPPER.createObjectNode()
+                .put("id", id)
+                .put("object", "chat.completion.chunk")
+                .put("created", created)
+                .put("model", model);
+        ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0);
+        choice.set("delta", delta);
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        } else {
+            choice.putNull("finish_reason");
+        }
+        return chunk;
+    }
+
+    private static int countPromptTokens(JsonNode request) {
+        int tokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            JsonNode content = message.path("content");
+            if (content.isTextual()) {
+                tokens += content.asText().length();
+            } else if (content.isArray()) {
+                for (JsonNode part : content) {
+                    tokens += part.path("text").asText("").length();
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static ObjectNode usage(int promptTokens, int completionTokens) {
+        return MAPPER.createObjectNode()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    // ------------------------------------------------------------- embedding
+
+    private ObjectNode embeddings(JsonNode request) {
+        int dimensions = request.path("dimensions").asInt(config.getEmbeddingDimensions());
+        JsonNode input = request.path("input");
+        ArrayNode data = MAPPER.createArrayNode();
+        int tokens = 0;
+        if (input.isArray()) {
+            for (int i = 0; i < input.size(); i++) {
+                String text = input.get(i).asText();
+                tokens += text.length();
+                data.add(embeddingItem(i, text, dimensions));
+            }
+        } else {
+            String text = input.asText();
+            tokens += text.length();
+            data.add(embeddingItem(0, text, dimensions));
+        }
+        ObjectNode response = MAPPER.createObjectNode()
+                .put("object", "list")
+                .put("model", request.path("model").asText("stub-embedding"));
+        response.set("data", data);
+        response.putObject("usage")
+                .put("prompt_tokens", tokens)
+                .put("total_tokens", tokens);
+        return response;
+    }
+
+    private static ObjectNode embeddingItem(int index, String text, int dimensions) {
+        ObjectNode item = MAPPER.createObjectNode()
+                .put("object", "embedding")
+                .put("index", index);
+        ArrayNode vector = item.putArray("embedding");
+        for (float v : StubEmbeddings.embed(text, dimensions)) {
+            vector.add(v);
+        }
+        return item;
+    }
+
+    // ---------------------------------------------------------------- helper
+
+    private static void writeEvent(OutputStream out, JsonNode data) throws IOException {
+        out.write(("data: " + MAPPER.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static ObjectNode error(String message) {
+        ObjectNode error = MAPPER.createObjectNode();
+        error.putObject("error").put("message", message).put("type", "invalid_request_error");
+        return error;
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
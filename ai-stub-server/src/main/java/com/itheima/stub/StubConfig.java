@@ -0,0 +1,179 @@
+package com.itheima.stub;
+
+/**
+ * 桩服务配置
+ * 所有参数都可以通过系统属性覆盖，例如：
+ * java -Dstub.port=18080 -Dstub.tokensPerSecond=50 -Dstub.firstTokenLatencyMs=300 -jar ai-stub-server.jar
+ */
+public class StubConfig {
+
+    // 监听端口
+    private final int port;
+
+    // 流式输出速率（token/秒），<=0表示不限速
+    private final int tokensPerSecond;
+
+    // 首个Token前的等待时间（模拟排队和Prefill）
+    private final long firstTokenLatencyMs;
+
+    // 每个分片包含的字符数（中文约1字≈1token）
+    private final int charsPerChunk;
+
+    // 固定回复内容
+    private final String reply;
+
+    // 请求里带tools时，是否先返回一次工具调用
+    private final boolean toolCalls;
+
+    // 是否总是在结尾输出usage分片（否则仅在stream_options.include_usage=true时输出）
+    private final boolean alwaysUsage;
+
+    // 默认向量维度（请求未指定dimensions时使用）
+    private final int embeddingDimensions;
+
+    // 处理请求的线程数
+    private final int workerThreads;
+
+    private StubConfig(Builder builder) {
+        this.port = builder.port;
+        this.tokensPerSecond = builder.tokensPerSecond;
+        this.firstTokenLatencyMs = builder.firstTokenLatencyMs;
+        this.charsPerChunk = builder.charsPerChunk;
+        this.reply = builder.reply;
+        this.toolCalls = builder.toolCalls;
+        this.alwaysUsage = builder.alwaysUsage;
+        this.embeddingDimensions = builder.embeddingDimensions;
+        this.workerThreads = builder.workerThreads;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 从系统属性读取配置，未指定的使用默认值
+     */
+    public static StubConfig fromSystemProperties() {
+        Builder defaults = new Builder();
+        return builder()
+                .port(Integer.getInteger("stub.port", defaults.port))
+                .tokensPerSecond(Integer.getInteger("stub.tokensPerSecond", defaults.tokensPerSecond))
+                .firstTokenLatencyMs(Long.getLong("stub.firstTokenLatencyMs", defaults.firstTokenLatencyMs))
+                .charsPerChunk(Integer.getInteger("stub.charsPerChunk", defaults.charsPerChunk))
+                .reply(System.getProperty("stub.reply", defaults.reply))
+                .toolCalls(Boolean.parseBoolean(System.getProperty("stub.toolCalls", String.valueOf(defaults.toolCalls))))
+                .alwaysUsage(Boolean.parseBoolean(System.getProperty("stub.alwaysUsage", String.valueOf(defaults.alwaysUsage))))
+                .embeddingDimensions(Integer.getInteger("stub.embeddingDimensions", defaults.embeddingDimensions))
+                .workerThreads(Integer.getInteger("stub.workerThreads", defaults.workerThreads))
+                .build();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public long getFirstTokenLatencyMs() {
+        return firstTokenLatencyMs;
+    }
+
+    public int getCharsPerChunk() {
+        return charsPerChunk;
+    }
+
+    public String getReply() {
+        return reply;
+    }
+
+    public boolean isToolCalls() {
+        return toolCalls;
+    }
+
+    public boolean isAlwaysUsage() {
+        return alwaysUsage;
+    }
+
+    public int getEmbeddingDimensions() {
+        return embeddingDimensions;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public static final class Builder {
+
+        private int port = 18080;
+
+        private int tokensPerSecond = 40;
+
+        private long firstTokenLatencyMs = 300;
+
+        private int charsPerChunk = 2;
+
+        private String reply = "你好，我是本地桩服务返回的模拟回复，用于压测和回归测试，不会调用任何真实的大模型。";
+
+        private boolean toolCalls = false;
+
+        private boolean alwaysUsage = false;
+
+        private int embeddingDimensions = 1024;
+
+        private int workerThreads = 200;
+
+        private Builder() {
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder tokensPerSecond(int tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder firstTokenLatencyMs(long firstTokenLatencyMs) {
+            this.firstTokenLatencyMs = firstTokenLatencyMs;
+            return this;
+        }
+
+        public Builder charsPerChunk(int charsPerChunk) {
+            this.charsPerChunk = Math.max(1, charsPerChunk);
+            return this;
+        }
+
+        public Builder reply(String reply) {
+            this.reply = reply;
+            return this;
+        }
+
+        public Builder toolCalls(boolean toolCalls) {
+            this.toolCalls = toolCalls;
+            return this;
+        }
+
+        public Builder alwaysUsage(boolean alwaysUsage) {
+            this.alwaysUsage = alwaysUsage;
+            return this;
+        }
+
+        public Builder embeddingDimensions(int embeddingDimensions) {
+            this.embeddingDimensions = embeddingDimensions;
+            return this;
+        }
+
+        public Builder workerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public StubConfig build() {
+            return new StubConfig(this);
+        }
+    }
+}
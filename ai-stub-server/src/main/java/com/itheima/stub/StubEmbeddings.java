@@ -0,0 +1,49 @@
+package com.itheima.stub;
+
+/**
+ * 确定性向量生成
+ * 把文本的字符二元组（bigram）哈希到固定维度并归一化：
+ * - 相同文本永远得到相同向量，便于回归对比
+ * - 字面相近的文本余弦相似度较高，检索链路可以得到有意义的结果
+ */
+public final class StubEmbeddings {
+
+    // 防止实例化
+    private StubEmbeddings() {
+    }
+
+    public static float[] embed(String text, int dimensions) {
+        float[] vector = new float[dimensions];
+        if (text == null || text.isEmpty()) {
+            vector[0] = 1f;
+            return vector;
+        }
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            int hash = fnv(text.charAt(i), i + 1 < length ? text.charAt(i + 1) : 0);
+            int slot = Math.floorMod(hash, dimensions);
+            // 用哈希的另一位决定正负，减少不同bigram之间的相互抵消
+            vector[slot] += ((hash >>> 16) & 1) == 0 ? 1f : -1f;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            vector[0] = 1f;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static int fnv(char a, char b) {
+        int hash = 0x811C9DC5;
+        hash = (hash ^ a) * 0x01000193;
+        hash = (hash ^ b) * 0x01000193;
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+package com.itheima.stub;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenAiStubServerTest {
+
+    private OpenAiStubServer server;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new OpenAiStubServer(StubConfig.builder()
+                .port(0)              // 随机端口
+                .tokensPerSecond(0)   // 不限速
+                .firstTokenLatencyMs(0)
+                .toolCalls(true)
+                .reply("你好世界")
+                .build());
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    // 测试流式输出：分片、usage分片与结束标记
+    @Test
+    void testStream() throws Exception {
+        String body = post("/compatible-mode/v1/chat/completions", """
+                {"model":"qwen-plus","stream":true,"stream_options":{"include_usage":true},
+                 "messages":[{"role":"user","content":"hi"}]}
+                """);
+        assertTrue(body.contains("\"content\":\"你好\""));
+        assertTrue(body.contains("\"content\":\"世界\""));
+        assertTrue(body.contains("\"completion_tokens\":4"));
+        assertTrue(body.trim().endsWith("data: [DONE]"));
+    }
+
+    // 测试工具调用：第一轮返回tool_calls，工具结果回传后返回文本
+    @Test
+    void testToolCall() throws Exception {
+        String first = post("/v1/chat/completions", """
+                {"model":"qwen-plus","tools":[{"type":"function","function":{"name":"querySchool"}}],
+                 "messages":[{"role":"user","content":"有哪些校区"}]}
+                """);
+        assertTrue(first.contains("\"name\":\"querySchool\""));
+        String second = post("/v1/chat/completions", """
+                {"model":"qwen-plus","tools":[{"type":"function","function":{"name":"querySchool"}}],
+                 "messages":[{"role":"user","content":"有哪些校区"},{"role":"tool","content":"[]"}]}
+                """);
+        assertTrue(second.contains("你好世界"));
+    }
+
+    // 测试向量：相同文本得到相同向量
+    @Test
+    void testEmbeddingDeterministic() {
+        float[] a = StubEmbeddings.embed("Java集合框架", 64);
+        float[] b = StubEmbeddings.embed("Java集合框架", 64);
+        assertArrayEquals(a, b);
+        assertEquals(64, a.length);
+    }
+
+    private String post(String path, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
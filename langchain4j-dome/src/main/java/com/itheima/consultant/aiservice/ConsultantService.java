@@ -11,7 +11,7 @@ import reactor.core.publisher.Flux;
 @AiService(
         wiringMode = AiServiceWiringMode.EXPLICIT, // 显式装配模式（避免Spring自动注入冲突）
         chatModel = "openAiChatModel",             // 同步聊天模型Bean名称（需在配置中定义）
-        streamingChatModel = "openAiStreamingChatModel", // 流式模型Bean名称
+        streamingChatModel = "offloadingStreamingChatModel", // 流式模型Bean名称（回调切换到ioScheduler，见SchedulerConfig）
         //chatMemory = "chatMemory",                // 直接指定记忆存储（已注释，改用provider）
         chatMemoryProvider = "chatMemoryProvider", // 记忆提供者Bean（动态获取记忆）
         contentRetriever = "contentRetriever",    // RAG检索器Bean（连接向量数据库）
@@ -1,13 +1,9 @@
 package com.itheima.consultant.config;
 
 import com.itheima.consultant.aiservice.ConsultantService;
+import com.itheima.consultant.model.CachingEmbeddingModel;
+import com.itheima.consultant.repository.RedisChatMemoryStore;
 import dev.langchain4j.community.store.embedding.redis.RedisEmbeddingStore;
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.ClassPathDocumentLoader;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.pdfbox.ApachePdfBoxDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
@@ -16,21 +12,22 @@ import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
-import java.util.List;
+import java.time.Duration;
 
 /**
  * LangChain4j 核心组件配置类
  * 功能：
  * 1. 配置对话记忆管理（Redis持久化）
- * 2. 初始化向量数据库（RAG支持）
+ * 2. 向量数据库检索（RAG支持，知识库由KnowledgeIngestionService导入）
  * 3. 构建AI服务基础设施
  */
 @Configuration
@@ -82,38 +79,30 @@ public class CommonConfig {
                 .build();
     }
 
-    // 构建向量数据库操作对象
-    // TODO: (第一次启动用这个@bean，后面存到redis中有数据就可以去掉了，但是如果是上传知识库的业务可以参考我的其他文章src/main/resources/static/index.html)
-    //@Bean
-    public EmbeddingStore store(){//embeddingStore的对象, 这个对象的名字不能重复,所以这里使用store
-        //1.加载文档进内存
-        //List<Document> documents = ClassPathDocumentLoader.loadDocuments("content");
-        List<Document> documents = ClassPathDocumentLoader.loadDocuments("content",new ApachePdfBoxDocumentParser());
-        //List<Document> documents = FileSystemDocumentLoader.loadDocuments("C:\\Users\\Administrator\\ideaProjects\\consultant\\src\\main\\resources\\content");
-        //2.构建向量数据库操作对象  操作的是内存版本的向量数据库
-        //InMemoryEmbeddingStore store = new InMemoryEmbeddingStore();
-
-        //构建文档分割器对象
-        DocumentSplitter ds = DocumentSplitters.recursive(500,100);
-        //3.构建一个EmbeddingStoreIngestor对象,完成文本数据切割,向量化, 存储
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                //.embeddingStore(store)
-                .embeddingStore(redisEmbeddingStore)
-                .documentSplitter(ds)
-                .embeddingModel(embeddingModel)
-                .build();
-        ingestor.ingest(documents);
-        return redisEmbeddingStore;
+    /**
+     * 对话记忆失效广播监听
+     * 其它节点写入会话后，丢弃本节点RedisChatMemoryStore中的旧缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer chatMemoryListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                     RedisChatMemoryStore store) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(store, new ChannelTopic(RedisChatMemoryStore.INVALIDATION_CHANNEL));
+        return container;
     }
 
+    // 知识库导入见 KnowledgeIngestionService：启动后自动增量导入content目录下的PDF
+
     // 构建向量数据库检索对象
     @Bean
-    public ContentRetriever contentRetriever() {
+    public ContentRetriever contentRetriever(@Value("${app.query-embedding-cache.max-size:10000}") int maxSize,
+                                             @Value("${app.query-embedding-cache.ttl:1h}") Duration ttl) {
         return EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(redisEmbeddingStore) // 指定向量库
                 .minScore(0.5)    // 最小相似度阈值
                 .maxResults(3)    // 返回结果数
-                .embeddingModel(embeddingModel) // 查询向量化模型
+                .embeddingModel(new CachingEmbeddingModel(embeddingModel, maxSize, ttl)) // 查询向量化模型（重复问题命中缓存）
                 .build();
     }
 }
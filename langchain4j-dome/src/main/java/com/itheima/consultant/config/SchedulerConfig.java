@@ -0,0 +1,45 @@
+package com.itheima.consultant.config;
+
+import com.itheima.consultant.model.OffloadingStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 阻塞I/O调度配置
+ * 功能：
+ * 1. ioScheduler：有界弹性线程池，专门执行工具调用（MyBatis）和对话记忆读写（Redis）
+ * 2. offloadingStreamingChatModel：把流式模型的回调切换到ioScheduler，
+ *    AiService在回调中执行的工具调用、记忆写入都不会占用HTTP客户端/事件循环线程
+ * 3. toolScheduler：单独的有界弹性线程池，只执行工具方法本身（ToolInvoker）
+ *
+ * 设计特点：
+ * - 工具调用发生在ioScheduler线程上（模型回调），ToolInvoker等待工具结果时占用该线程；
+ *   工具若也提交到ioScheduler，线程用满后等待方和执行方互相等待会死锁，因此使用独立线程池
+ */
+@Configuration
+public class SchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler ioScheduler(@Value("${app.blocking.thread-cap:50}") int threadCap,
+                                 @Value("${app.blocking.queue-cap:1000}") int queueCap) {
+        return Schedulers.newBoundedElastic(threadCap, queueCap, "consultant-io");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler toolScheduler(@Value("${app.tools.thread-cap:20}") int threadCap,
+                                   @Value("${app.tools.queue-cap:1000}") int queueCap) {
+        return Schedulers.newBoundedElastic(threadCap, queueCap, "consultant-tool");
+    }
+
+    @Bean
+    public OffloadingStreamingChatModel offloadingStreamingChatModel(
+            @Qualifier("openAiStreamingChatModel") StreamingChatModel openAiStreamingChatModel,
+            @Qualifier("ioScheduler") Scheduler ioScheduler) {
+        return new OffloadingStreamingChatModel(openAiStreamingChatModel, ioScheduler);
+    }
+}
@@ -3,9 +3,11 @@ package com.itheima.consultant.controller;
 import com.itheima.consultant.aiservice.ConsultantService;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 /**
  * AI对话控制器
@@ -17,8 +19,13 @@ import reactor.core.publisher.Flux;
 @RestController
 public class ChatController {
 
-    @Autowired
-    private ConsultantService consultantService; // 封装AI业务逻辑的服务层
+    private final ConsultantService consultantService; // 封装AI业务逻辑的服务层
+    private final Scheduler ioScheduler; // 阻塞I/O调度器
+
+    public ChatController(ConsultantService consultantService, @Qualifier("ioScheduler") Scheduler ioScheduler) {
+        this.consultantService = consultantService;
+        this.ioScheduler = ioScheduler;
+    }
 
     /**
      * 流式对话接口（生产环境推荐）
@@ -30,13 +37,16 @@ public class ChatController {
      * 1. produces明确指定UTF-8编码，解决中文乱码
      * 2. 返回Flux实现逐词输出效果
      * 3. memoryId支持对话上下文保持
+     * 4. 调用本身延迟到ioScheduler上执行：AI服务在返回Flux之前就同步加载对话记忆（Redis）、
+     *    检索知识库并写入用户消息，只对返回的Flux做subscribeOn仍会在请求线程上完成这些阻塞操作
      *
      * 调用示例：
      * GET /chat?memoryId=123&message=你好
      */
     @RequestMapping(value = "/chat", produces = "text/html;charset=utf-8")
     public Flux<String> chat(String memoryId, String message) {
-        return consultantService.chat(memoryId, message);
+        return Flux.defer(() -> consultantService.chat(memoryId, message))
+                .subscribeOn(ioScheduler);
     }
 
     /* 演进版本1：直接调用模型（已废弃）
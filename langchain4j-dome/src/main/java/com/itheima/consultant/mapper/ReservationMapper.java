@@ -5,14 +5,16 @@ import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
+
 @Mapper
 public interface ReservationMapper {
 
     //1.添加预约信息
     @Insert("insert into reservation(name,gender,phone,communication_time,province,estimated_score) values(#{name},#{gender},#{phone},#{communicationTime},#{province},#{estimatedScore})")
     void insert(Reservation reservation);
-    //2.根据手机号查询预约信息
-    @Select("select * from reservation where phone=#{phone}")
-    Reservation findByPhone(String phone);
+    //2.根据手机号查询预约信息（同一手机号可能有多条，按沟通时间排序；走idx_reservation_phone_time索引）
+    @Select("select * from reservation where phone=#{phone} order by communication_time")
+    List<Reservation> findByPhone(String phone);
 
 }
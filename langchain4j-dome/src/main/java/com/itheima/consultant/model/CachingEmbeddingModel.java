@@ -0,0 +1,129 @@
+package com.itheima.consultant.model;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带缓存的向量模型（用于检索时的查询向量化）
+ * 功能：
+ * 1. 按归一化后的文本缓存向量，重复的问题不再请求向量化接口
+ * 2. 缓存有容量上限（LRU）和过期时间
+ * 3. 统计命中/未命中次数，每100次查询输出一次命中率
+ *
+ * 文本归一化：
+ * - NFKC（全角字母数字、全角空格转为半角）
+ * - 去掉首尾空白和末尾的标点，连续空白合并为一个空格，英文转小写
+ * 例："西北大学的王牌专业？" 与 "西北大学的王牌专业 " 命中同一条缓存
+ *
+ * 注意：只适合查询向量化；导入知识库仍直接使用原始模型
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final long LOG_INTERVAL = 100;
+
+    private final EmbeddingModel delegate;
+
+    private final long ttlNanos;
+
+    // 归一化文本 -> 向量（按访问顺序淘汰）
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Entry(Embedding embedding, long createdAt) {
+    }
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        //1.查缓存
+        long now = System.nanoTime();
+        Embedding[] result = new Embedding[textSegments.size()];
+        List<TextSegment> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < textSegments.size(); i++) {
+            Entry entry = cache.get(normalize(textSegments.get(i).text()));
+            if (entry != null && now - entry.createdAt() < ttlNanos) {
+                result[i] = entry.embedding();
+            } else {
+                missing.add(textSegments.get(i));
+                missingIndexes.add(i);
+            }
+        }
+        record(textSegments.size() - missing.size(), missing.size());
+        if (missing.isEmpty()) {
+            return Response.from(Arrays.asList(result));
+        }
+        //2.只对未命中的文本请求向量化接口
+        Response<List<Embedding>> response = delegate.embedAll(missing);
+        for (int i = 0; i < missing.size(); i++) {
+            Embedding embedding = response.content().get(i);
+            result[missingIndexes.get(i)] = embedding;
+            cache.put(normalize(missing.get(i).text()), new Entry(embedding, now));
+        }
+        return Response.from(Arrays.asList(result), response.tokenUsage(), response.finishReason());
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * 缓存键：归一化后的文本
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .strip()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+        int end = normalized.length();
+        while (end > 0 && isTrailingPunctuation(normalized.charAt(end - 1))) {
+            end--;
+        }
+        return normalized.substring(0, end).strip();
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return "?!.,;~。？！，；…".indexOf(c) >= 0;
+    }
+
+    private void record(int hit, int miss) {
+        long totalHits = hits.addAndGet(hit);
+        long totalMisses = misses.addAndGet(miss);
+        long total = totalHits + totalMisses;
+        if (hit + miss > 0 && total / LOG_INTERVAL != (total - hit - miss) / LOG_INTERVAL) {
+            log.info("查询向量缓存命中率：{}%（命中{}，未命中{}，缓存条数{}）",
+                    String.format("%.1f", totalHits * 100.0 / total), totalHits, totalMisses, cache.size());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.itheima.consultant.model;
+
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Set;
+
+/**
+ * 回调切换线程的流式模型
+ * 功能：模型的每个回调（分片、完成、出错）都按顺序转到调度器的同一个Worker上执行
+ *
+ * 作用：
+ * - AiService在onCompleteResponse中同步执行工具（MyBatis查询）并写入对话记忆（Redis），
+ *   直接在HTTP客户端的回调线程上执行会阻塞它，响应式部署时还会阻塞事件循环
+ * - 切换后这些阻塞操作都在有界弹性线程池上执行
+ *
+ * 设计特点：每次请求一个Worker，回调顺序与模型输出顺序一致；结束后释放Worker
+ */
+public class OffloadingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+
+    private final Scheduler scheduler;
+
+    public OffloadingStreamingChatModel(StreamingChatModel delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        Scheduler.Worker worker = scheduler.createWorker();
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                worker.schedule(() -> handler.onPartialResponse(partialResponse));
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                worker.schedule(() -> {
+                    try {
+                        handler.onCompleteResponse(completeResponse);
+                    } finally {
+                        worker.dispose();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                worker.schedule(() -> {
+                    try {
+                        handler.onError(error);
+                    } finally {
+                        worker.dispose();
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,77 @@
+package com.itheima.consultant.repository;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 向量批量写入器
+ * 功能：
+ * 1. 收集各个向量化批次的结果，攒够 batchSize 条后一次写入向量库
+ * 2. RedisEmbeddingStore.addAll 内部用一个Pipeline发送全部JSON.SET，
+ *    因此每次写入只需一次往返，不再受向量化接口每批10条的限制
+ * 3. 统计写入条数、写入次数和写入耗时
+ *
+ * 线程安全：多个向量化线程可同时调用add；flush返回时，之前add的数据都已写入
+ */
+public class EmbeddingBulkWriter {
+
+    private final EmbeddingStore<TextSegment> store;
+
+    private final int batchSize;
+
+    private final List<String> ids = new ArrayList<>();
+
+    private final List<Embedding> embeddings = new ArrayList<>();
+
+    private final List<TextSegment> segments = new ArrayList<>();
+
+    private long written;
+
+    private long flushes;
+
+    private long writeNanos;
+
+    public EmbeddingBulkWriter(EmbeddingStore<TextSegment> store, int batchSize) {
+        this.store = store;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void add(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        this.ids.addAll(ids);
+        this.embeddings.addAll(embeddings);
+        this.segments.addAll(segments);
+        if (this.ids.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        if (ids.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        store.addAll(new ArrayList<>(ids), new ArrayList<>(embeddings), new ArrayList<>(segments));
+        writeNanos += System.nanoTime() - start;
+        written += ids.size();
+        flushes++;
+        ids.clear();
+        embeddings.clear();
+        segments.clear();
+    }
+
+    public synchronized long written() {
+        return written;
+    }
+
+    public synchronized long flushes() {
+        return flushes;
+    }
+
+    public synchronized long writeMillis() {
+        return writeNanos / 1_000_000;
+    }
+}
@@ -1,54 +1,372 @@
 package com.itheima.consultant.repository;
 
+import com.itheima.consultant.repository.codec.BinaryChatMessageCodec;
+import com.itheima.consultant.repository.codec.ChatMessageCodec;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ChatMessageDeserializer;
-import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.List;
+import java.util.*;
 
 /**
- * Redis对话记忆存储实现
+ * Redis对话记忆存储实现（List结构，增量写入 + 本地近端缓存）
  * 核心功能：将会话历史持久化到Redis，支持多轮对话管理
  *
  * 技术特性：
- * 1. 使用StringRedisTemplate操作Redis
- * 2. 采用JSON序列化存储消息列表
- * 3. 自动设置1天过期时间（可配置）
+ * 1. 每条消息单独编码（ChatMessageCodec，默认紧凑二进制+LZ4），作为Redis List的一个元素
+ * 2. 每轮对话只RPUSH新增的消息，再用LTRIM截断到记忆窗口大小，
+ *    与EXPIRE、版本号递增、失效广播一起由Lua脚本一次往返完成
+ * 3. 系统消息单独保存在 :sys 键中，List里只有系统消息之后的消息
+ * 4. 读取时在一次往返内刷新过期时间（滑动过期，默认1天）
+ * 5. 兼容旧数据：新结构中没有记录时，读取旧的整段JSON并迁移；List中的JSON元素可直接读取
+ *
+ * 近端缓存：
+ * - 本节点读写过的会话缓存在本地（LRU，容量有限，空闲过期），
+ *   同一用户的连续对话直接命中本地，省去读取的网络往返
+ * - 每次写入版本号+1，并通过Pub/Sub广播"节点|版本|会话ID"，
+ *   其它节点收到后丢弃版本更旧的本地缓存，保证多节点一致
+ * - 广播可能丢失，因此缓存条目空闲超过 MAX_IDLE 后重新从Redis读取
+ * - 增量追加时把本地缓存的版本号传给脚本，与Redis中的版本号不一致
+ *   （广播丢失或两个节点同时写入同一会话）时不追加，改为删除后整体重写
+ * - 本地缓存只会被同版本或更新版本的数据覆盖
+ *
+ * 增量判断：
+ * - MessageWindowChatMemory始终把系统消息放在第0条，窗口满后淘汰的是第1条，
+ *   因此只对齐系统消息之后的部分：新列表 = 旧列表去掉头部若干条 + 末尾追加若干条，只需序列化追加的部分
+ * - 系统消息不变时不写入；被替换或移除时在同一个脚本中SET/DEL :sys 键
+ * - 无法对齐时退化为写入全部消息，LTRIM保证结果正确
+ * - 旧数据的系统消息仍在List第0条，下一次写入时被LTRIM截掉并写入 :sys 键
  *
  * 存储结构示例：
- * Key: "session:123"
- * Value: [{"type":"USER","text":"你好"},{"type":"AI","text":"您好"}]
+ * Key: "chat:memory:{123}"      Value(List): [<0xC1 01 00 ...>, <0xC1 01 01 ...>]
+ * Key: "chat:memory:{123}:sys"  Value: 编码后的系统消息
+ * Key: "chat:memory:{123}:ver"  Value: 版本号
  */
+@Slf4j
 @Repository
-public class RedisChatMemoryStore implements ChatMemoryStore {
-    //注入RedisTemplate
+public class RedisChatMemoryStore implements ChatMemoryStore, MessageListener {
+
+    // 失效广播频道
+    public static final String INVALIDATION_CHANNEL = "chat:memory:invalidate";
+
+    private static final String KEY_PREFIX = "chat:memory:";
+
+    private static final Duration TTL = Duration.ofDays(1);
+
+    // 本地缓存容量
+    private static final int MAX_CACHED = 10_000;
+
+    // 本地缓存空闲过期时间（兜底丢失的失效广播）
+    private static final long MAX_IDLE_NANOS = Duration.ofMinutes(5).toNanos();
+
+    // 写入/删除/续期系统消息，追加消息、截断、续期、版本号+1、广播失效，返回新版本号
+    // ARGV[6]：追加所基于的版本号，为空表示删除后整体重写；版本号不一致时不写入，返回-1
+    // ARGV[7]：keep 系统消息不变，set 写入ARGV[8]，del 删除
+    private static final RedisScript<Long> APPEND_SCRIPT = RedisScript.of("""
+            if ARGV[6] == '' then
+                redis.call('DEL', KEYS[1])
+            elseif tonumber(ARGV[6]) ~= tonumber(redis.call('GET', KEYS[2]) or '0') then
+                return -1
+            end
+            if ARGV[7] == 'set' then
+                redis.call('SET', KEYS[3], ARGV[8], 'EX', ARGV[2])
+            elseif ARGV[7] == 'del' then
+                redis.call('DEL', KEYS[3])
+            else
+                redis.call('EXPIRE', KEYS[3], ARGV[2])
+            end
+            if #ARGV > 8 then
+                redis.call('RPUSH', KEYS[1], unpack(ARGV, 9))
+            end
+            if tonumber(ARGV[1]) > 0 then
+                redis.call('LTRIM', KEYS[1], -tonumber(ARGV[1]), -1)
+                redis.call('EXPIRE', KEYS[1], ARGV[2])
+            else
+                redis.call('DEL', KEYS[1])
+            end
+            local version = redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            redis.call('PUBLISH', ARGV[3], ARGV[4] .. '|' .. version .. '|' .. ARGV[5])
+            return version
+            """, Long.class);
+
+    // 删除会话、版本号+1、广播失效，返回新版本号
+    private static final RedisScript<Long> DELETE_SCRIPT = RedisScript.of("""
+            redis.call('DEL', KEYS[1], KEYS[3])
+            local version = redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            redis.call('PUBLISH', ARGV[2], ARGV[3] .. '|' .. version .. '|' .. ARGV[4])
+            return version
+            """, Long.class);
+
+    // 脚本参数：字符串按UTF-8编码，消息直接使用编码后的字节
+    private static final RedisSerializer<Object> ARGS_SERIALIZER = new RedisSerializer<>() {
+        @Override
+        public byte[] serialize(Object value) {
+            return value instanceof byte[] bytes ? bytes : value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    private static final RedisSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ChatMessageCodec codec;
+
+    // 本节点标识，忽略自己发出的广播
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // 会话ID -> 本地缓存（按访问顺序淘汰）
+    private final Map<String, Entry> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    /**
+     * 本地缓存条目
+     * @param system 系统消息（:sys 键）
+     * @param stored Redis List中的消息（为null表示只记录了其它节点的版本号）
+     * @param version Redis中的版本号
+     * @param accessedAt 最近访问时间
+     */
+    private record Entry(ChatMessage system, List<ChatMessage> stored, long version, long accessedAt) {
+
+        /**
+         * 对外的完整消息列表：系统消息 + List中的消息
+         */
+        List<ChatMessage> messages() {
+            List<ChatMessage> messages = new ArrayList<>(stored.size() + 1);
+            if (system != null) {
+                messages.add(system);
+            }
+            messages.addAll(stored);
+            return messages;
+        }
+    }
+
+    public RedisChatMemoryStore(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, new BinaryChatMessageCodec(256));
+    }
+
     @Autowired
-    private StringRedisTemplate redisTemplate;
+    public RedisChatMemoryStore(StringRedisTemplate redisTemplate,
+                                @Value("${app.chat-memory.codec:binary}") String codec,
+                                @Value("${app.chat-memory.compress-threshold:256}") int compressThreshold) {
+        this(redisTemplate, ChatMessageCodec.of(codec, compressThreshold));
+    }
+
+    public RedisChatMemoryStore(StringRedisTemplate redisTemplate, ChatMessageCodec codec) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+    }
+
     @Override
     public List<ChatMessage> getMessages(Object memoryId) {
-        //获取会话消息
-        String json = redisTemplate.opsForValue().get(memoryId);
-        //把json字符串转化成List<ChatMessage>
-        List<ChatMessage> list = ChatMessageDeserializer.messagesFromJson(json);
-        return list;
+        String id = memoryId.toString();
+        //1.命中本地缓存
+        Entry entry = cache.get(id);
+        long now = System.nanoTime();
+        if (entry != null && entry.stored() != null && now - entry.accessedAt() < MAX_IDLE_NANOS) {
+            cacheIfNewer(id, new Entry(entry.system(), entry.stored(), entry.version(), now));
+            return entry.messages();
+        }
+        //2.先读版本号再读系统消息和消息，并刷新过期时间（一次往返）
+        byte[] key = key(id).getBytes(StandardCharsets.UTF_8);
+        byte[] systemKey = systemKey(id).getBytes(StandardCharsets.UTF_8);
+        byte[] versionKey = versionKey(id).getBytes(StandardCharsets.UTF_8);
+        // 不做反序列化，按字节读取消息
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(versionKey);
+            connection.stringCommands().get(systemKey);
+            connection.listCommands().lRange(key, 0, -1);
+            connection.keyCommands().expire(key, TTL.toSeconds());
+            connection.keyCommands().expire(systemKey, TTL.toSeconds());
+            return null;
+        }, null);
+        long version = results.get(0) == null ? 0
+                : Long.parseLong(new String((byte[]) results.get(0), StandardCharsets.UTF_8));
+        ChatMessage system = results.get(1) == null ? null : codec.decode((byte[]) results.get(1));
+        @SuppressWarnings("unchecked")
+        List<byte[]> values = (List<byte[]>) results.get(2);
+        //3.反序列化
+        if (system == null && (values == null || values.isEmpty())) {
+            List<ChatMessage> messages = migrateLegacy(id);
+            if (!messages.isEmpty()) {
+                return messages;
+            }
+        }
+        List<ChatMessage> stored = new ArrayList<>();
+        if (values != null) {
+            values.forEach(value -> stored.add(codec.decode(value)));
+        }
+        entry = new Entry(system, stored, version, System.nanoTime());
+        cacheIfNewer(id, entry);
+        return entry.messages();
     }
 
     @Override
     public void updateMessages(Object memoryId, List<ChatMessage> list) {
-        //更新会话消息
-        //1.把list转换成json数据
-        String json = ChatMessageSerializer.messagesToJson(list);
-        //2.把json数据存储到redis中
-        redisTemplate.opsForValue().set(memoryId.toString(),json, Duration.ofDays(1));
+        String id = memoryId.toString();
+        if (list.isEmpty()) {
+            deleteMessages(id);
+            return;
+        }
+        //1.系统消息单独保存，只对齐其后的部分
+        ChatMessage system = list.get(0) instanceof SystemMessage ? list.get(0) : null;
+        List<ChatMessage> tail = new ArrayList<>(list.subList(system == null ? 0 : 1, list.size()));
+        //2.本地缓存有消息时只追加新消息，否则整体重写
+        Entry entry = cache.get(id);
+        long version = entry != null && entry.stored() != null ? append(id, entry, system, tail) : -1;
+        //3.Redis中的版本号与本地缓存不一致：删除后整体重写
+        if (version < 0) {
+            version = append(id, null, system, tail);
+        }
+        cacheIfNewer(id, new Entry(system, tail, version, System.nanoTime()));
+    }
+
+    /**
+     * 追加、截断、续期、广播（一次往返）
+     * @param previous 追加所基于的本地缓存，为null时删除后整体重写
+     * @return 新版本号；Redis中的版本号与previous不一致时返回-1
+     */
+    private long append(String id, Entry previous, ChatMessage system, List<ChatMessage> tail) {
+        //1.只序列化新追加的消息
+        List<ChatMessage> appended = previous == null ? tail : tail.subList(overlap(previous.stored(), tail), tail.size());
+        List<Object> args = new ArrayList<>(appended.size() + 8);
+        args.add(String.valueOf(tail.size()));
+        args.add(String.valueOf(TTL.toSeconds()));
+        args.add(INVALIDATION_CHANNEL);
+        args.add(nodeId);
+        args.add(id);
+        args.add(previous == null ? "" : String.valueOf(previous.version()));
+        if (previous != null && Objects.equals(previous.system(), system)) {
+            args.add("keep");
+            args.add("");
+        } else if (system != null) {
+            args.add("set");
+            args.add(codec.encode(system));
+        } else {
+            args.add("del");
+            args.add("");
+        }
+        appended.forEach(message -> args.add(codec.encode(message)));
+        Long version = redisTemplate.execute(APPEND_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                List.of(key(id), versionKey(id), systemKey(id)), args.toArray());
+        return version == null ? 0 : version;
     }
 
     @Override
     public void deleteMessages(Object memoryId) {
-        redisTemplate.delete(memoryId.toString());
+        String id = memoryId.toString();
+        Long version = redisTemplate.execute(DELETE_SCRIPT, List.of(key(id), versionKey(id), systemKey(id)),
+                String.valueOf(TTL.toSeconds()), INVALIDATION_CHANNEL, nodeId, id);
+        cacheIfNewer(id, new Entry(null, new ArrayList<>(), version == null ? 0 : version, System.nanoTime()));
+        // 旧版本数据
+        redisTemplate.delete(id);
+    }
+
+    /**
+     * 处理其它节点的失效广播：丢弃版本更旧的本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        long version = Long.parseLong(parts[1]);
+        String id = parts[2];
+        // 只保留版本号，防止稍后写入本地缓存的旧数据被当作最新
+        cache.compute(id, (k, entry) -> entry == null || entry.version() < version
+                ? new Entry(null, null, version, System.nanoTime())
+                : entry);
+    }
+
+    /**
+     * 数据不比本地缓存的版本旧时才写入本地缓存（防止覆盖失效广播记录的更新版本）
+     */
+    private void cacheIfNewer(String id, Entry entry) {
+        cache.compute(id, (k, cached) -> cached == null || cached.version() <= entry.version() ? entry : cached);
+    }
+
+    /**
+     * 计算新列表开头与旧列表末尾重合的消息数
+     * 新列表 = 旧列表[k..] + 追加消息 时返回 旧列表长度 - k（取最小的k）；无法对齐时返回0
+     */
+    private static int overlap(List<ChatMessage> previous, List<ChatMessage> current) {
+        for (int k = 0; k < previous.size(); k++) {
+            int length = previous.size() - k;
+            if (length > current.size()) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < length; i++) {
+                if (current.get(i) != previous.get(k + i)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 旧版本以整段JSON保存在 key = memoryId 下，读取后迁移到List结构
+     */
+    private List<ChatMessage> migrateLegacy(String id) {
+        String json;
+        try {
+            json = redisTemplate.opsForValue().get(id);
+        } catch (RuntimeException e) {
+            // 同名key不是字符串类型，不是旧版本数据
+            return List.of();
+        }
+        if (json == null) {
+            return List.of();
+        }
+        List<ChatMessage> messages = ChatMessageDeserializer.messagesFromJson(json);
+        cache.remove(id);
+        updateMessages(id, messages);
+        redisTemplate.delete(id);
+        log.debug("会话记忆迁移为List结构：{}，消息数：{}", id, messages.size());
+        return messages;
+    }
+
+    // 花括号为Redis Cluster哈希标签，保证消息和版本号在同一个slot
+    private static String key(String id) {
+        return KEY_PREFIX + "{" + id + "}";
+    }
+
+    private static String systemKey(String id) {
+        return key(id) + ":sys";
+    }
+
+    private static String versionKey(String id) {
+        return key(id) + ":ver";
     }
 }
@@ -0,0 +1,240 @@
+package com.itheima.consultant.repository.codec;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.*;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 紧凑二进制编解码器
+ *
+ * 数据格式：
+ * [0xC1][格式版本][压缩方式][压缩时：原始长度varint][消息体]
+ * - 0xC1在UTF-8中不会出现，以此区分旧的JSON数据（以'{'开头）
+ * - 压缩方式：0 不压缩，1 LZ4（消息体超过阈值且压缩后更小时才使用）
+ *
+ * 消息体：[类型][字段...]，字符串为 varint长度 + UTF-8字节，可空字符串长度+1（0表示null）
+ * - SYSTEM：text
+ * - USER：name?、text（只支持单段文本，含图片等内容时按JSON保存）
+ * - AI：text?、工具调用数、每个调用的 id?、name?、arguments?
+ * - TOOL_RESULT：id?、toolName、text
+ * - JSON：其它消息类型，内嵌langchain4j的JSON
+ *
+ * 设计特点：
+ * - 省去JSON的字段名、转义和中文的\\uXXXX，工具调用参数原样保存
+ * - 读取时兼容旧的JSON数据，切换编码无需迁移
+ */
+public class BinaryChatMessageCodec implements ChatMessageCodec {
+
+    static final byte MAGIC = (byte) 0xC1;
+
+    static final byte VERSION = 1;
+
+    private static final byte COMPRESSION_NONE = 0;
+
+    private static final byte COMPRESSION_LZ4 = 1;
+
+    private static final byte TYPE_JSON = 0;
+
+    private static final byte TYPE_SYSTEM = 1;
+
+    private static final byte TYPE_USER = 2;
+
+    private static final byte TYPE_AI = 3;
+
+    private static final byte TYPE_TOOL_RESULT = 4;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final int compressThreshold;
+
+    public BinaryChatMessageCodec(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] encode(ChatMessage message) {
+        Writer body = new Writer();
+        writeBody(body, message);
+        byte[] raw = body.toByteArray();
+        if (raw.length > compressThreshold) {
+            byte[] compressed = COMPRESSOR.compress(raw);
+            if (compressed.length + 5 < raw.length) {
+                Writer out = new Writer();
+                out.write(MAGIC);
+                out.write(VERSION);
+                out.write(COMPRESSION_LZ4);
+                out.varint(raw.length);
+                out.write(compressed, 0, compressed.length);
+                return out.toByteArray();
+            }
+        }
+        byte[] out = new byte[raw.length + 3];
+        out[0] = MAGIC;
+        out[1] = VERSION;
+        out[2] = COMPRESSION_NONE;
+        System.arraycopy(raw, 0, out, 3, raw.length);
+        return out;
+    }
+
+    @Override
+    public ChatMessage decode(byte[] data) {
+        return decodeAny(data);
+    }
+
+    /**
+     * 按数据头识别格式解码：二进制或旧的JSON
+     */
+    static ChatMessage decodeAny(byte[] data) {
+        if (data.length == 0 || data[0] != MAGIC) {
+            return ChatMessageDeserializer.messageFromJson(new String(data, StandardCharsets.UTF_8));
+        }
+        if (data[1] != VERSION) {
+            throw new IllegalArgumentException("不支持的对话记忆格式版本：" + data[1]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 3, data.length - 3);
+        if (data[2] == COMPRESSION_LZ4) {
+            int length = readVarint(buffer);
+            byte[] raw = DECOMPRESSOR.decompress(data, buffer.position(), length);
+            buffer = ByteBuffer.wrap(raw);
+        } else if (data[2] != COMPRESSION_NONE) {
+            throw new IllegalArgumentException("不支持的对话记忆压缩方式：" + data[2]);
+        }
+        return readBody(buffer);
+    }
+
+    private static void writeBody(Writer out, ChatMessage message) {
+        if (message instanceof SystemMessage system) {
+            out.write(TYPE_SYSTEM);
+            out.string(system.text());
+        } else if (message instanceof UserMessage user && user.hasSingleText()) {
+            out.write(TYPE_USER);
+            out.nullableString(user.name());
+            out.string(user.singleText());
+        } else if (message instanceof AiMessage ai) {
+            out.write(TYPE_AI);
+            out.nullableString(ai.text());
+            List<ToolExecutionRequest> requests = ai.hasToolExecutionRequests() ? ai.toolExecutionRequests() : List.of();
+            out.varint(requests.size());
+            for (ToolExecutionRequest request : requests) {
+                out.nullableString(request.id());
+                out.nullableString(request.name());
+                out.nullableString(request.arguments());
+            }
+        } else if (message instanceof ToolExecutionResultMessage result) {
+            out.write(TYPE_TOOL_RESULT);
+            out.nullableString(result.id());
+            out.string(result.toolName());
+            out.string(result.text());
+        } else {
+            out.write(TYPE_JSON);
+            out.string(ChatMessageSerializer.messageToJson(message));
+        }
+    }
+
+    private static ChatMessage readBody(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case TYPE_SYSTEM -> SystemMessage.from(readString(in));
+            case TYPE_USER -> {
+                String name = readNullableString(in);
+                String text = readString(in);
+                yield name == null ? UserMessage.from(text) : UserMessage.from(name, text);
+            }
+            case TYPE_AI -> {
+                String text = readNullableString(in);
+                int count = readVarint(in);
+                if (count == 0) {
+                    yield AiMessage.from(text);
+                }
+                List<ToolExecutionRequest> requests = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    requests.add(ToolExecutionRequest.builder()
+                            .id(readNullableString(in))
+                            .name(readNullableString(in))
+                            .arguments(readNullableString(in))
+                            .build());
+                }
+                yield text == null ? AiMessage.from(requests) : AiMessage.from(text, requests);
+            }
+            case TYPE_TOOL_RESULT -> {
+                String id = readNullableString(in);
+                String toolName = readString(in);
+                yield ToolExecutionResultMessage.from(id, toolName, readString(in));
+            }
+            case TYPE_JSON -> ChatMessageDeserializer.messageFromJson(readString(in));
+            default -> throw new IllegalArgumentException("未知的消息类型：" + type);
+        };
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static String readNullableString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length - 1, StandardCharsets.UTF_8);
+        in.position(in.position() + length - 1);
+        return value;
+    }
+
+    /**
+     * 写缓冲区：varint与字符串写入
+     */
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void nullableString(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
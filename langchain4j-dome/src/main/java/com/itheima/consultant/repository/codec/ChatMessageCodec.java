@@ -0,0 +1,33 @@
+package com.itheima.consultant.repository.codec;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+/**
+ * 对话消息编解码器（Redis中每条消息的存储格式）
+ * 功能：
+ * 1. encode：按当前配置的格式写出
+ * 2. decode：按数据头识别格式读取，所有实现都能读取旧的JSON数据和新的二进制数据
+ *
+ * 可选实现：
+ * - json：langchain4j自带的JSON格式（旧格式，可读性好）
+ * - binary：紧凑二进制格式，较长的消息再做LZ4压缩（默认）
+ */
+public interface ChatMessageCodec {
+
+    byte[] encode(ChatMessage message);
+
+    ChatMessage decode(byte[] data);
+
+    /**
+     * 按名称创建编解码器
+     * @param name json 或 binary
+     * @param compressThreshold 超过该字节数的消息才压缩（仅binary）
+     */
+    static ChatMessageCodec of(String name, int compressThreshold) {
+        return switch (name) {
+            case "json" -> new JsonChatMessageCodec();
+            case "binary" -> new BinaryChatMessageCodec(compressThreshold);
+            default -> throw new IllegalArgumentException("不支持的对话记忆编码：" + name);
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.itheima.consultant.repository.codec;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON编解码器：与旧版本写入的数据完全相同
+ */
+public class JsonChatMessageCodec implements ChatMessageCodec {
+
+    @Override
+    public byte[] encode(ChatMessage message) {
+        return ChatMessageSerializer.messageToJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ChatMessage decode(byte[] data) {
+        return BinaryChatMessageCodec.decodeAny(data);
+    }
+}
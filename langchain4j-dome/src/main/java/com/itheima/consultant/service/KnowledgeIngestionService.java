@@ -0,0 +1,258 @@
+package com.itheima.consultant.service;
+
+import com.itheima.consultant.repository.EmbeddingBulkWriter;
+import dev.langchain4j.community.store.embedding.redis.RedisEmbeddingStore;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.parser.apache.pdfbox.ApachePdfBoxDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 知识库增量导入服务（替代手动启用的 CommonConfig.store()）
+ * 功能：
+ * 1. 启动后在后台扫描 content 目录下的PDF，并行解析
+ * 2. 用Redis中的清单（文件名 -> 内容哈希:片段数）判断文件是否变化，未变化的文件直接跳过
+ * 3. 解析切分完成的文件立即进入向量化，每批 max-segments-per-batch 个片段，多批并发请求
+ * 4. 向量经EmbeddingBulkWriter攒批后写入RedisEmbeddingStore（每批一个Pipeline），文件变化或删除时清理旧片段
+ * 5. 输出导入吞吐：片段数/秒、向量化耗时、写入次数与写入耗时
+ *
+ * 设计特点：
+ * - 片段ID由 文件哈希 + 片段序号 生成，重复导入覆盖同一条记录（幂等）
+ * - 一个文件的全部片段写入成功后才更新清单，中途失败下次启动会重新导入
+ *
+ * 清单结构：
+ * Key: "kb:manifest"  Hash: { "西北大学.pdf": "<sha256>:42", ... }
+ */
+@Slf4j
+@Service
+public class KnowledgeIngestionService {
+
+    private static final String MANIFEST_KEY = "kb:manifest";
+
+    @Autowired
+    private EmbeddingModel embeddingModel;
+    @Autowired
+    private RedisEmbeddingStore redisEmbeddingStore;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.knowledge.enabled:true}")
+    private boolean enabled;
+    @Value("${app.knowledge.location:classpath*:content/*.pdf}")
+    private String location;
+    @Value("${app.knowledge.parse-threads:4}")
+    private int parseThreads;
+    @Value("${app.knowledge.embed-concurrency:4}")
+    private int embedConcurrency;
+    @Value("${langchain4j.open-ai.embedding-model.max-segments-per-batch:10}")
+    private int batchSize;
+    @Value("${app.knowledge.write-batch-size:200}")
+    private int writeBatchSize;
+
+    /**
+     * 导入结果
+     * @param added 新增文件数
+     * @param updated 内容变化重新导入的文件数
+     * @param skipped 未变化跳过的文件数
+     * @param removed 已删除文件数
+     * @param segments 本次写入的片段数
+     * @param millis 总耗时
+     * @param writes 向量库写入次数
+     * @param writeMillis 向量库写入耗时
+     */
+    public record Report(int added, int updated, int skipped, int removed, int segments,
+                         long millis, long writes, long writeMillis) {
+
+        public double segmentsPerSecond() {
+            return millis == 0 ? 0 : segments * 1000.0 / millis;
+        }
+    }
+
+    // 启动完成后在后台导入，不阻塞服务启动
+    @EventListener(ApplicationReadyEvent.class)
+    public void ingestOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                ingest();
+            } catch (Exception e) {
+                log.error("知识库导入失败", e);
+            }
+        }, "knowledge-ingestion");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 导入知识库：只处理新增、变化和删除的文件
+     */
+    public Report ingest() throws IOException {
+        long start = System.currentTimeMillis();
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location);
+        Map<String, String> manifest = new HashMap<>();
+        redisTemplate.<String, String>opsForHash().entries(MANIFEST_KEY).forEach(manifest::put);
+
+        ExecutorService parsePool = Executors.newFixedThreadPool(parseThreads);
+        ExecutorService embedPool = Executors.newFixedThreadPool(embedConcurrency);
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger updated = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger segments = new AtomicInteger();
+        EmbeddingBulkWriter writer = new EmbeddingBulkWriter(redisEmbeddingStore, writeBatchSize);
+        Set<String> present = new HashSet<>();
+        try {
+            List<CompletableFuture<Void>> files = new ArrayList<>();
+            for (Resource resource : resources) {
+                String fileName = resource.getFilename();
+                present.add(fileName);
+                String previous = manifest.get(fileName);
+                files.add(CompletableFuture
+                        //1.读取并计算哈希
+                        .supplyAsync(() -> read(resource), parsePool)
+                        .thenComposeAsync(bytes -> {
+                            String hash = sha256(bytes);
+                            if (previous != null && previous.startsWith(hash + ":")) {
+                                skipped.incrementAndGet();
+                                return CompletableFuture.completedFuture(null);
+                            }
+                            //2.解析、切分
+                            List<TextSegment> parts = split(fileName, bytes);
+                            //3.分批向量化并写入（多批并发）
+                            return embed(hash, parts, writer, embedPool).thenRun(() -> {
+                                //4.写出本文件剩余的片段，清理旧片段，更新清单
+                                writer.flush();
+                                if (previous != null) {
+                                    remove(staleIds(previous, hash, parts.size()));
+                                    updated.incrementAndGet();
+                                } else {
+                                    added.incrementAndGet();
+                                }
+                                redisTemplate.opsForHash().put(MANIFEST_KEY, fileName, hash + ":" + parts.size());
+                                segments.addAndGet(parts.size());
+                                log.info("知识库文件导入完成：{}，片段数：{}", fileName, parts.size());
+                            });
+                        }, parsePool)
+                        .exceptionally(e -> {
+                            log.error("知识库文件导入失败：{}", fileName, e);
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(files.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            parsePool.shutdown();
+            embedPool.shutdown();
+        }
+
+        //5.清理已删除的文件
+        int removed = 0;
+        for (Map.Entry<String, String> entry : manifest.entrySet()) {
+            if (!present.contains(entry.getKey())) {
+                remove(staleIds(entry.getValue(), null, 0));
+                redisTemplate.opsForHash().delete(MANIFEST_KEY, entry.getKey());
+                removed++;
+            }
+        }
+        Report report = new Report(added.get(), updated.get(), skipped.get(), removed, segments.get(),
+                System.currentTimeMillis() - start, writer.flushes(), writer.writeMillis());
+        log.info("知识库导入完成：{}，吞吐：{} 片段/秒", report, String.format("%.1f", report.segmentsPerSecond()));
+        return report;
+    }
+
+    private List<TextSegment> split(String fileName, byte[] bytes) {
+        Document document = new ApachePdfBoxDocumentParser().parse(new ByteArrayInputStream(bytes));
+        document = Document.from(document.text(), document.metadata().copy().put(Document.FILE_NAME, fileName));
+        DocumentSplitter splitter = DocumentSplitters.recursive(500, 100);
+        return splitter.split(document);
+    }
+
+    private CompletableFuture<Void> embed(String hash, List<TextSegment> parts,
+                                          EmbeddingBulkWriter writer, ExecutorService embedPool) {
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < parts.size(); from += batchSize) {
+            int offset = from;
+            List<TextSegment> batch = parts.subList(from, Math.min(from + batchSize, parts.size()));
+            batches.add(CompletableFuture.runAsync(() -> {
+                List<Embedding> embeddings = embeddingModel.embedAll(batch).content();
+                List<String> ids = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    ids.add(segmentId(hash, offset + i));
+                }
+                writer.add(ids, embeddings, batch);
+            }, embedPool));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new));
+    }
+
+    private void remove(List<String> ids) {
+        if (!ids.isEmpty()) {
+            redisEmbeddingStore.removeAll(ids);
+        }
+    }
+
+    /**
+     * 清单中记录的旧片段里，不会被新内容覆盖的ID
+     * @param previous 旧清单值（哈希:片段数）
+     * @param hash 新内容哈希，文件已删除时为null
+     * @param count 新片段数
+     */
+    private static List<String> staleIds(String previous, String hash, int count) {
+        int split = previous.lastIndexOf(':');
+        String oldHash = previous.substring(0, split);
+        int oldCount = Integer.parseInt(previous.substring(split + 1));
+        List<String> ids = new ArrayList<>();
+        for (int i = oldHash.equals(hash) ? count : 0; i < oldCount; i++) {
+            ids.add(segmentId(oldHash, i));
+        }
+        return ids;
+    }
+
+    /**
+     * 片段ID：同一文件内容的同一片段始终得到相同的ID
+     */
+    static String segmentId(String hash, int index) {
+        return UUID.nameUUIDFromBytes((hash + "#" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static byte[] read(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,22 +1,135 @@
 package com.itheima.consultant.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.itheima.consultant.mapper.ReservationMapper;
 import com.itheima.consultant.pojo.Reservation;
-import org.springframework.beans.factory.annotation.Autowired;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 预约单服务
+ * 功能：
+ * 1. 添加预约信息，写入后立即删除该手机号的查询缓存，并把该手机号的版本号+1
+ * 2. 按手机号查询预约单（可能有多条），先查Redis缓存，未命中再查库并写入缓存
+ *
+ * 设计特点：
+ * - 缓存放在Redis中，多个节点共享，任一节点新增预约都会让缓存失效
+ * - 查不到的结果也会缓存（空列表），避免重复查库
+ * - 缓存读写失败时直接查库，不影响业务
+ * - 读缓存时一并读出版本号（一次MGET），查库后只有版本号未变才写回缓存：
+ *   查库期间有新增预约时不写入，避免旧结果在缓存中停留整个TTL
+ *
+ * 缓存结构：
+ * Key: "reservation:phone:{13800000000}"      Value: [{"id":1,"name":"张三",...}]
+ * Key: "reservation:phone:{13800000000}:ver"  Value: 版本号（新增预约时+1）
+ */
+@Slf4j
 @Service
 public class ReservationService {
-    @Autowired
-    private ReservationMapper reservationMapper;
+
+    private static final String KEY_PREFIX = "reservation:phone:";
+
+    // 版本号的过期时间，远大于一次查库的耗时
+    private static final Duration VERSION_TTL = Duration.ofDays(1);
+
+    // 版本号未变时写入缓存，返回是否写入
+    private static final RedisScript<Boolean> SET_IF_VERSION_SCRIPT = RedisScript.of("""
+            if (redis.call('GET', KEYS[2]) or '0') == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """, Boolean.class);
+
+    // 删除缓存、版本号+1
+    private static final RedisScript<Long> EVICT_SCRIPT = RedisScript.of("""
+            redis.call('DEL', KEYS[1])
+            local version = redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            return version
+            """, Long.class);
+
+    private static final TypeReference<List<Reservation>> RESERVATION_LIST = new TypeReference<>() {
+    };
+
+    private final ReservationMapper reservationMapper;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    public ReservationService(ReservationMapper reservationMapper,
+                              StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.reservation-cache.ttl:10m}") Duration ttl) {
+        this.reservationMapper = reservationMapper;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
 
     //1.添加预约信息的方法
     public void insert(Reservation reservation) {
         reservationMapper.insert(reservation);
+        evict(reservation.getPhone());
+    }
+
+    //2.查询预约信息的方法(根据手机号查询，可能有多条)
+    public List<Reservation> findByPhone(String phone) {
+        String key = key(phone);
+        String versionKey = versionKey(phone);
+        //2.1.查缓存，同时读出版本号
+        String version = null;
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(key, versionKey));
+            if (values != null) {
+                if (values.get(0) != null) {
+                    return objectMapper.readValue(values.get(0), RESERVATION_LIST);
+                }
+                version = values.get(1) == null ? "0" : values.get(1);
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("预约单缓存读取失败：{}", phone, e);
+        }
+        //2.2.查库
+        List<Reservation> reservations = reservationMapper.findByPhone(phone);
+        //2.3.版本号未变才写入缓存（读不到版本号时不写入）
+        if (version != null) {
+            try {
+                redisTemplate.execute(SET_IF_VERSION_SCRIPT, List.of(key, versionKey),
+                        version, objectMapper.writeValueAsString(reservations), String.valueOf(ttl.toMillis()));
+            } catch (RuntimeException | JsonProcessingException e) {
+                log.warn("预约单缓存写入失败：{}", phone, e);
+            }
+        }
+        return reservations;
+    }
+
+    private void evict(String phone) {
+        try {
+            redisTemplate.execute(EVICT_SCRIPT, List.of(key(phone), versionKey(phone)),
+                    String.valueOf(VERSION_TTL.toSeconds()));
+        } catch (RuntimeException e) {
+            log.warn("预约单缓存删除失败：{}", phone, e);
+        }
+    }
+
+    // 花括号为Redis Cluster哈希标签，保证缓存和版本号在同一个slot
+    private static String key(String phone) {
+        return KEY_PREFIX + "{" + phone + "}";
     }
 
-    //2.查询预约信息的方法(根据手机号查询)
-    public Reservation findByPhone(String phone) {
-        return reservationMapper.findByPhone(phone);
+    private static String versionKey(String phone) {
+        return key(phone) + ":ver";
     }
 }
@@ -8,11 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 public class ReservationTool {
     @Autowired
     private ReservationService reservationService;
+    @Autowired
+    private ToolInvoker toolInvoker; // 在toolScheduler上执行，带超时
 
     //1.工具方法: 添加预约信息
     @Tool("预约志愿填报服务")
@@ -25,11 +28,11 @@ public class ReservationTool {
             @P("考生预估分数") Integer estimatedScore
     ){
         Reservation reservation = new Reservation(null,name,gender,phone, LocalDateTime.parse(communicationTime),province,estimatedScore);
-        reservationService.insert(reservation);
+        toolInvoker.run("addReservation", () -> reservationService.insert(reservation));
     }
     //2.工具方法: 查询预约信息
-    @Tool("根据考生手机号查询预约单")
-    public Reservation findReservation(@P("考生手机号") String phone){
-        return reservationService.findByPhone(phone);
+    @Tool("根据考生手机号查询预约单，同一手机号可能有多条预约")
+    public List<Reservation> findReservation(@P("考生手机号") String phone){
+        return toolInvoker.call("findReservation", () -> reservationService.findByPhone(phone));
     }
 }
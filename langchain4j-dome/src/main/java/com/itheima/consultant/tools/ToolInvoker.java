@@ -0,0 +1,64 @@
+package com.itheima.consultant.tools;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 工具方法执行器
+ * 功能：
+ * 1. 在toolScheduler上执行工具的阻塞逻辑（MyBatis查询等）
+ * 2. 按工具设置超时：app.tools.timeout.<工具名>，未配置时使用 app.tools.timeout.default
+ * 3. 超时后抛出异常，异常信息作为工具结果返回给模型，不会让整个对话卡住
+ *
+ * 设计特点：
+ * - 调用方本身就在ioScheduler线程上（OffloadingStreamingChatModel在其上回放模型回调），
+ *   工具不能再提交到ioScheduler并阻塞等待，否则线程用满后互相等待而死锁，因此使用独立的toolScheduler
+ */
+@Component
+public class ToolInvoker {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Scheduler toolScheduler;
+
+    private final Environment environment;
+
+    public ToolInvoker(@Qualifier("toolScheduler") Scheduler toolScheduler, Environment environment) {
+        this.toolScheduler = toolScheduler;
+        this.environment = environment;
+    }
+
+    public <T> T call(String tool, Callable<T> task) {
+        Duration timeout = timeout(tool);
+        try {
+            return Mono.fromCallable(task)
+                    .subscribeOn(toolScheduler)
+                    .timeout(timeout)
+                    .block();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException("工具" + tool + "执行超时（" + timeout.toMillis() + "ms）", e);
+            }
+            throw e;
+        }
+    }
+
+    public void run(String tool, Runnable task) {
+        call(tool, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private Duration timeout(String tool) {
+        Duration defaultTimeout = environment.getProperty("app.tools.timeout.default", Duration.class, DEFAULT_TIMEOUT);
+        return environment.getProperty("app.tools.timeout." + tool, Duration.class, defaultTimeout);
+    }
+}
@@ -0,0 +1,11 @@
+-- 预约表（已有库会以此版本为基线，不会重复执行）
+CREATE TABLE IF NOT EXISTS reservation
+(
+    id                 BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name               VARCHAR(50) NOT NULL,
+    gender             VARCHAR(2),
+    phone              VARCHAR(20) NOT NULL,
+    communication_time DATETIME    NOT NULL,
+    province           VARCHAR(32),
+    estimated_score    INT
+);
@@ -0,0 +1,2 @@
+-- 按手机号查询预约单（结果按沟通时间排序），覆盖 where phone=? order by communication_time
+CREATE INDEX idx_reservation_phone_time ON reservation (phone, communication_time);
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @SpringBootTest
 public class ReservationServiceTest {
@@ -22,7 +23,7 @@ public class ReservationServiceTest {
     @Test
     void testFindByPhone(){
         String phone = "13800000001";
-        Reservation reservation = reservationService.findByPhone(phone);
-        System.out.println(reservation);
+        List<Reservation> reservations = reservationService.findByPhone(phone);
+        System.out.println(reservations);
     }
 }
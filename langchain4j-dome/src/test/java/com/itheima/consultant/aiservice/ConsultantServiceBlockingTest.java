@@ -0,0 +1,216 @@
+package com.itheima.consultant.aiservice;
+
+import com.itheima.consultant.controller.ChatController;
+import com.itheima.consultant.model.OffloadingStreamingChatModel;
+import com.itheima.consultant.tools.ToolInvoker;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 阻塞调用检测：模型回调发生在事件循环线程（Schedulers.parallel，BlockHound检查的非阻塞线程）上时，
+ * 工具调用（模拟MyBatis查询）和对话记忆读写（模拟Redis）都不能在该线程上执行；
+ * 请求同样在事件循环线程上进入ChatController，验证控制器把AI服务调用本身（加载记忆、写入用户消息）移出了请求线程；
+ * 另外验证ioScheduler线程用满时，工具调用不会与等待它的回调线程互相等待
+ */
+public class ConsultantServiceBlockingTest {
+
+    private static Scheduler ioScheduler;
+
+    private static Scheduler toolScheduler;
+
+    @BeforeAll
+    static void install() {
+        BlockHound.install();
+        ioScheduler = Schedulers.newBoundedElastic(4, 100, "test-io");
+        toolScheduler = Schedulers.newBoundedElastic(4, 100, "test-tool");
+    }
+
+    @AfterAll
+    static void dispose() {
+        ioScheduler.dispose();
+        toolScheduler.dispose();
+    }
+
+    // 回调切换到ioScheduler后，整个对话（含工具调用）没有阻塞事件循环线程
+    @Test
+    void testNoBlockingOnEventLoop() {
+        ChatController controller = controller(new OffloadingStreamingChatModel(new EventLoopModel(), ioScheduler), ioScheduler);
+        String reply = request(controller, "blocking")
+                .collectList()
+                .map(chunks -> String.join("", chunks))
+                .block(Duration.ofSeconds(10));
+        assertEquals("已查到预约：张三", reply);
+    }
+
+    // ioScheduler只有一个线程：回调占用该线程等待工具结果，工具在toolScheduler上执行，不会死锁
+    @Test
+    void testToolCallDoesNotWaitOnIoScheduler() {
+        Scheduler single = Schedulers.newBoundedElastic(1, 100, "test-io-single");
+        try {
+            ChatController controller = controller(new OffloadingStreamingChatModel(new EventLoopModel(), single), single);
+            String reply = request(controller, "single")
+                    .collectList()
+                    .map(chunks -> String.join("", chunks))
+                    .block(Duration.ofSeconds(10));
+            assertEquals("已查到预约：张三", reply);
+        } finally {
+            single.dispose();
+        }
+    }
+
+    // 对照：不切换线程时，工具和记忆写入在事件循环线程上执行，被BlockHound拦截
+    @Test
+    void testBlockingDetectedWithoutOffloading() {
+        ChatController controller = controller(new EventLoopModel(), ioScheduler);
+        Throwable error = assertThrows(Throwable.class, () -> request(controller, "detected")
+                .blockLast(Duration.ofSeconds(3)));
+        // 超时也会抛异常，必须确认是BlockHound拦截的
+        Throwable cause = error;
+        while (cause != null && !(cause instanceof BlockingOperationError)) {
+            cause = cause.getCause();
+        }
+        assertNotNull(cause, () -> "异常链中没有BlockingOperationError：" + error);
+    }
+
+    // 模拟WebFlux：在事件循环线程上调用控制器方法并订阅返回的Flux
+    private static Flux<String> request(ChatController controller, String memoryId) {
+        return Mono.fromCallable(() -> controller.chat(memoryId, "查一下我的预约"))
+                .subscribeOn(Schedulers.parallel())
+                .flatMapMany(flux -> flux);
+    }
+
+    private static ChatController controller(StreamingChatModel model, Scheduler ioScheduler) {
+        ChatMemoryStore store = new SlowChatMemoryStore();
+        ConsultantService consultantService = AiServices.builder(ConsultantService.class)
+                .streamingChatModel(model)
+                .chatMemoryProvider(memoryId -> MessageWindowChatMemory.builder()
+                        .id(memoryId)
+                        .maxMessages(20)
+                        .chatMemoryStore(store)
+                        .build())
+                .tools(new SlowReservationTool(new ToolInvoker(toolScheduler, new StandardEnvironment())))
+                .build();
+        return new ChatController(consultantService, ioScheduler);
+    }
+
+    /**
+     * 在事件循环线程上回调的模型：第一次请求调用工具，拿到工具结果后输出回答
+     * 回调抛出的异常交给onError，让错误传到Flux上，而不是只打印在事件循环线程上
+     */
+    static class EventLoopModel implements StreamingChatModel {
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            List<ChatMessage> messages = chatRequest.messages();
+            ChatMessage last = messages.get(messages.size() - 1);
+            Schedulers.parallel().schedule(() -> {
+                try {
+                    respond(last, handler);
+                } catch (Throwable e) {
+                    handler.onError(e);
+                }
+            });
+        }
+
+        private static void respond(ChatMessage last, StreamingChatResponseHandler handler) {
+            if (last instanceof ToolExecutionResultMessage result) {
+                handler.onPartialResponse("已查到预约：");
+                handler.onPartialResponse(result.text());
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from("已查到预约：" + result.text()))
+                        .build());
+            } else {
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from(ToolExecutionRequest.builder()
+                                .id("call_1")
+                                .name("findReservation")
+                                .arguments("{\"phone\":\"13800000000\"}")
+                                .build()))
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * 模拟MyBatis查询的阻塞工具
+     */
+    static class SlowReservationTool {
+
+        private final ToolInvoker toolInvoker;
+
+        SlowReservationTool(ToolInvoker toolInvoker) {
+            this.toolInvoker = toolInvoker;
+        }
+
+        @Tool("根据考生手机号查询预约单")
+        public String findReservation(@P("考生手机号") String phone) {
+            return toolInvoker.call("findReservation", () -> {
+                Thread.sleep(20);
+                return "张三";
+            });
+        }
+    }
+
+    /**
+     * 模拟Redis读写的阻塞记忆存储
+     */
+    static class SlowChatMemoryStore implements ChatMemoryStore {
+
+        private final Map<Object, List<ChatMessage>> messages = new ConcurrentHashMap<>();
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            sleep();
+            return new ArrayList<>(messages.getOrDefault(memoryId, List.of()));
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> list) {
+            sleep();
+            messages.put(memoryId, new ArrayList<>(list));
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            sleep();
+            messages.remove(memoryId);
+        }
+
+        private static void sleep() {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.itheima.consultant.repository;
+
+import com.itheima.consultant.repository.codec.BinaryChatMessageCodec;
+import com.itheima.consultant.repository.codec.ChatMessageCodec;
+import dev.langchain4j.data.message.*;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import redis.embedded.RedisServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 对话记忆存储基准测试：整段JSON SET（旧实现） vs List增量写入（RedisChatMemoryStore）
+ * 另外验证多节点间本地缓存的失效广播、记忆窗口满后仍只追加新消息
+ * 使用嵌入式Redis，不依赖外部服务；耗时对比（benchmark）需 mvn test -Pbenchmark 运行
+ */
+public class RedisChatMemoryStoreBenchmarkTest {
+
+    private static final int PORT = 16379;
+
+    private static final int CONVERSATIONS = 20;
+
+    private static final int TURNS = 100;
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void start() throws Exception {
+        redisServer = new RedisServer(PORT);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", PORT);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    // 两种实现读出的记忆一致
+    @Test
+    void testParity() {
+        ChatMemory legacy = memory("parity", new JsonChatMemoryStore(redisTemplate));
+        ChatMemory list = memory("parity", new RedisChatMemoryStore(redisTemplate));
+        legacy.add(SystemMessage.from("你是志愿填报顾问"));
+        list.add(SystemMessage.from("你是志愿填报顾问"));
+        for (int turn = 0; turn < 30; turn++) {
+            for (ChatMemory memory : List.of(legacy, list)) {
+                memory.add(UserMessage.from("问题" + turn));
+                memory.add(AiMessage.from("回答" + turn));
+            }
+        }
+        assertEquals(ChatMessageSerializer.messagesToJson(legacy.messages()),
+                ChatMessageSerializer.messagesToJson(list.messages()));
+        // 重新创建存储（无快照）读取，结果仍一致
+        ChatMemory reloaded = memory("parity", new RedisChatMemoryStore(redisTemplate));
+        assertEquals(ChatMessageSerializer.messagesToJson(legacy.messages()),
+                ChatMessageSerializer.messagesToJson(reloaded.messages()));
+    }
+
+    // 窗口已满（系统消息 + 19条）后，每次写入只编码并追加新消息
+    @Test
+    void testFullWindowAppendsOnlyNewMessages() {
+        AtomicInteger encoded = new AtomicInteger();
+        ChatMessageCodec binary = new BinaryChatMessageCodec(256);
+        ChatMessageCodec counting = new ChatMessageCodec() {
+            @Override
+            public byte[] encode(ChatMessage message) {
+                encoded.incrementAndGet();
+                return binary.encode(message);
+            }
+
+            @Override
+            public ChatMessage decode(byte[] data) {
+                return binary.decode(data);
+            }
+        };
+        ChatMemory memory = memory("window", new RedisChatMemoryStore(redisTemplate, counting));
+        memory.add(SystemMessage.from("你是志愿填报顾问"));
+        for (int turn = 0; turn < 10; turn++) {
+            memory.add(UserMessage.from("问题" + turn));
+            memory.add(AiMessage.from("回答" + turn));
+        }
+        assertEquals(20, memory.messages().size());
+        for (int turn = 10; turn < 20; turn++) {
+            encoded.set(0);
+            memory.add(UserMessage.from("问题" + turn));
+            memory.add(AiMessage.from("回答" + turn));
+            assertEquals(2, encoded.get());
+        }
+        assertEquals(19, redisTemplate.opsForList().size("chat:memory:{window}"));
+        // 重新读取：系统消息仍在第0条，其后是最近的19条
+        List<ChatMessage> reloaded = new RedisChatMemoryStore(redisTemplate).getMessages("window");
+        assertEquals(ChatMessageSerializer.messagesToJson(memory.messages()),
+                ChatMessageSerializer.messagesToJson(reloaded));
+        assertEquals(SystemMessage.from("你是志愿填报顾问"), reloaded.get(0));
+        memory.clear();
+    }
+
+    // 两个节点：一个节点写入后，另一个节点的本地缓存失效
+    @Test
+    void testInvalidation() throws Exception {
+        RedisChatMemoryStore nodeA = new RedisChatMemoryStore(redisTemplate);
+        RedisChatMemoryStore nodeB = new RedisChatMemoryStore(redisTemplate);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nodeB, new ChannelTopic(RedisChatMemoryStore.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        try {
+            nodeA.updateMessages("invalidate", List.of(UserMessage.from("第一轮")));
+            assertEquals(1, nodeB.getMessages("invalidate").size()); // 写入B的本地缓存
+            nodeA.updateMessages("invalidate", List.of(UserMessage.from("第一轮"), AiMessage.from("回答")));
+            long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+            while (nodeB.getMessages("invalidate").size() != 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, nodeB.getMessages("invalidate").size());
+        } finally {
+            nodeA.deleteMessages("invalidate");
+            container.destroy();
+        }
+    }
+
+    // 失效广播丢失：B基于旧版本追加时检测到版本不一致，改为整体重写，不会把两个节点的消息混在一起
+    @Test
+    void testStaleAppendRewritesWholeList() {
+        RedisChatMemoryStore nodeA = new RedisChatMemoryStore(redisTemplate);
+        RedisChatMemoryStore nodeB = new RedisChatMemoryStore(redisTemplate);
+        UserMessage first = UserMessage.from("第一轮");
+        nodeA.updateMessages("stale", List.of(first));
+        List<ChatMessage> seenByB = nodeB.getMessages("stale");
+        nodeA.updateMessages("stale", List.of(first, AiMessage.from("A的回答")));
+
+        List<ChatMessage> fromB = List.of(seenByB.get(0), AiMessage.from("B的回答"));
+        nodeB.updateMessages("stale", fromB);
+
+        List<ChatMessage> stored = new RedisChatMemoryStore(redisTemplate).getMessages("stale");
+        assertEquals(ChatMessageSerializer.messagesToJson(fromB), ChatMessageSerializer.messagesToJson(stored));
+        // A的本地缓存版本落后，下一次追加同样整体重写
+        nodeA.updateMessages("stale", List.of(first, AiMessage.from("A的回答"), UserMessage.from("A的第二轮")));
+        assertEquals(3, new RedisChatMemoryStore(redisTemplate).getMessages("stale").size());
+        nodeA.deleteMessages("stale");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark() {
+        run("JSON SET", new JsonChatMemoryStore(redisTemplate), 5);
+        run("List增量", new RedisChatMemoryStore(redisTemplate), 5);
+        double legacy = run("JSON SET", new JsonChatMemoryStore(redisTemplate), TURNS);
+        double list = run("List增量", new RedisChatMemoryStore(redisTemplate), TURNS);
+        System.out.printf("加速比：%.2fx%n", legacy / list);
+    }
+
+    private static double run(String name, ChatMemoryStore store, int turns) {
+        String text = "请介绍一下志愿填报的注意事项，".repeat(10);
+        long start = System.nanoTime();
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            ChatMemory memory = memory(name + "-" + c, store);
+            memory.add(SystemMessage.from("你是志愿填报顾问"));
+            for (int turn = 0; turn < turns; turn++) {
+                memory.add(UserMessage.from(text + turn));
+                memory.add(AiMessage.from(text + turn));
+            }
+            store.deleteMessages(name + "-" + c);
+        }
+        double usPerTurn = (System.nanoTime() - start) / 1000.0 / (CONVERSATIONS * turns);
+        System.out.printf("%-10s %8.1f us/turn%n", name, usPerTurn);
+        return usPerTurn;
+    }
+
+    private static ChatMemory memory(String id, ChatMemoryStore store) {
+        return MessageWindowChatMemory.builder()
+                .id(id)
+                .maxMessages(20)
+                .chatMemoryStore(store)
+                .build();
+    }
+
+    /**
+     * 旧实现：每轮整体序列化后SET
+     */
+    static class JsonChatMemoryStore implements ChatMemoryStore {
+
+        private final StringRedisTemplate redisTemplate;
+
+        JsonChatMemoryStore(StringRedisTemplate redisTemplate) {
+            this.redisTemplate = redisTemplate;
+        }
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            String json = redisTemplate.opsForValue().get("json:" + memoryId);
+            return ChatMessageDeserializer.messagesFromJson(json);
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> list) {
+            String json = ChatMessageSerializer.messagesToJson(list);
+            redisTemplate.opsForValue().set("json:" + memoryId, json, Duration.ofDays(1));
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            redisTemplate.delete("json:" + memoryId);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.itheima.consultant.repository.codec;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 对话消息编解码基准测试：JSON vs 紧凑二进制(+LZ4)
+ * 对话内容取自实际的系统提示词（system.txt）和一轮完整的志愿咨询+预约工具调用；
+ * 耗时对比（benchmark）需 mvn test -Pbenchmark 运行，控制台输出总字节数与编解码吞吐
+ */
+public class ChatMessageCodecBenchmarkTest {
+
+    private static final int ROUNDS = 2_000;
+
+    // 两种编码都能读取对方写入的数据，结果与原消息一致
+    @Test
+    void testRoundTrip() throws IOException {
+        List<ChatMessage> conversation = conversation();
+        ChatMessageCodec json = new JsonChatMessageCodec();
+        ChatMessageCodec binary = new BinaryChatMessageCodec(256);
+        for (ChatMessage message : conversation) {
+            String expected = ChatMessageSerializer.messageToJson(message);
+            assertEquals(expected, ChatMessageSerializer.messageToJson(binary.decode(binary.encode(message))));
+            assertEquals(expected, ChatMessageSerializer.messageToJson(binary.decode(json.encode(message))));
+            assertEquals(expected, ChatMessageSerializer.messageToJson(json.decode(binary.encode(message))));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark() throws IOException {
+        List<ChatMessage> conversation = conversation();
+        run("json", new JsonChatMessageCodec(), conversation, 200);
+        run("binary", new BinaryChatMessageCodec(Integer.MAX_VALUE), conversation, 200);
+        run("binary+lz4", new BinaryChatMessageCodec(256), conversation, 200);
+        run("json", new JsonChatMessageCodec(), conversation, ROUNDS);
+        run("binary", new BinaryChatMessageCodec(Integer.MAX_VALUE), conversation, ROUNDS);
+        run("binary+lz4", new BinaryChatMessageCodec(256), conversation, ROUNDS);
+    }
+
+    private static void run(String name, ChatMessageCodec codec, List<ChatMessage> conversation, int rounds) {
+        int bytes = 0;
+        List<byte[]> encoded = new ArrayList<>();
+        for (ChatMessage message : conversation) {
+            byte[] data = codec.encode(message);
+            bytes += data.length;
+            encoded.add(data);
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (ChatMessage message : conversation) {
+                codec.encode(message);
+            }
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (byte[] data : encoded) {
+                codec.decode(data);
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+        double mb = (double) bytes * rounds / 1024 / 1024;
+        System.out.printf("%-12s %8d bytes  encode %8.1f MB/s  decode %8.1f MB/s%n",
+                name, bytes, mb / (encodeNanos / 1e9), mb / (decodeNanos / 1e9));
+    }
+
+    private static List<ChatMessage> conversation() throws IOException {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (InputStream in = ChatMessageCodecBenchmarkTest.class.getClassLoader().getResourceAsStream("system.txt")) {
+            messages.add(SystemMessage.from(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+        messages.add(UserMessage.from("你好，我是河南的考生，今年物理类预估分数580分，想报计算机相关专业，有什么建议吗？"));
+        messages.add(AiMessage.from("你好！580分在河南物理类大约处于全省前两万名左右。计算机相关专业竞争激烈，"
+                + "建议采用“冲一冲、稳一稳、保一保”的梯度策略：冲刺可以考虑郑州大学的软件工程，"
+                + "稳妥可以选择河南大学、河南理工大学的计算机科学与技术，保底可以选择省内其它本科院校的信息类专业。"
+                + "另外要关注各校的选科要求和学费标准，中外合作办学专业的学费通常较高。需要的话我可以帮你预约一对一的志愿填报指导。"));
+        messages.add(UserMessage.from("好的，帮我预约一下吧。我叫张三，男，手机号13800000000，明天下午三点可以沟通。"));
+        messages.add(AiMessage.from(List.of(ToolExecutionRequest.builder()
+                .id("call_8f3a2c1b")
+                .name("addReservation")
+                .arguments("{\"name\":\"张三\",\"gender\":\"男\",\"phone\":\"13800000000\","
+                        + "\"communicationTime\":\"2025-06-28T15:00\",\"province\":\"河南\",\"estimatedScore\":580}")
+                .build())));
+        messages.add(ToolExecutionResultMessage.from("call_8f3a2c1b", "addReservation", "Success"));
+        messages.add(AiMessage.from("已为你预约成功：张三，男，河南考生，预估580分，沟通时间为2025年6月28日15:00。"
+                + "届时老师会通过13800000000与你联系，请保持电话畅通。"));
+        messages.add(UserMessage.from("我想确认一下我的预约信息"));
+        messages.add(AiMessage.from(List.of(ToolExecutionRequest.builder()
+                .id("call_1d9e7f40")
+                .name("findReservation")
+                .arguments("{\"phone\":\"13800000000\"}")
+                .build())));
+        messages.add(ToolExecutionResultMessage.from("call_1d9e7f40", "findReservation",
+                "{\"id\":1,\"name\":\"张三\",\"gender\":\"男\",\"phone\":\"13800000000\","
+                        + "\"communicationTime\":\"2025-06-28T15:00:00\",\"province\":\"河南\",\"estimatedScore\":580}"));
+        messages.add(AiMessage.from("查询到你的预约信息：姓名张三，性别男，手机号13800000000，"
+                + "沟通时间2025-06-28 15:00，省份河南，预估分数580分。如需修改请告诉我。"));
+        return messages;
+    }
+}
@@ -0,0 +1,135 @@
+package com.itheima.consultant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.consultant.mapper.ReservationMapper;
+import com.itheima.consultant.pojo.Reservation;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 预约单查询基准测试（100万条预约，每个手机号2条）
+ * 对比：无索引查库 / 执行V2迁移加索引后查库 / Redis读缓存
+ * 使用H2（MySQL模式）和嵌入式Redis，不依赖外部服务；控制台输出每次查询的平均耗时
+ * 准备数据较慢，只在 mvn test -Pbenchmark 时运行；缓存正确性见 ReservationServiceCacheTest
+ */
+@Tag("benchmark")
+public class ReservationQueryBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int PHONES = ROWS / 2;
+
+    private static final int PORT = 16380;
+
+    private static JdbcDataSource dataSource;
+
+    private static SqlSession session;
+
+    private static ReservationMapper mapper;
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static ReservationService reservationService;
+
+    @BeforeAll
+    static void start() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:reservation;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        migrate("db/migration/V1__create_reservation.sql");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("insert into reservation(name,gender,phone,communication_time,province,estimated_score) "
+                    + "select concat('考生', x), case when mod(x, 2) = 0 then '男' else '女' end, "
+                    + "concat('138', lpad(cast(mod(x, " + PHONES + ") as varchar), 8, '0')), "
+                    + "dateadd('MINUTE', x, timestamp '2025-06-01 00:00:00'), '河南', 500 + mod(x, 200) "
+                    + "from system_range(1, " + ROWS + ")");
+        }
+
+        Configuration configuration = new Configuration(
+                new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 关闭一级缓存，每次查询都真正访问数据库
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.addMapper(ReservationMapper.class);
+        session = new SqlSessionFactoryBuilder().build(configuration).openSession(true);
+        mapper = session.getMapper(ReservationMapper.class);
+
+        redisServer = new RedisServer(PORT);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", PORT);
+        connectionFactory.afterPropertiesSet();
+        reservationService = new ReservationService(mapper, new StringRedisTemplate(connectionFactory),
+                new ObjectMapper().findAndRegisterModules(), Duration.ofMinutes(10));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        session.close();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void benchmark() throws Exception {
+        double scan = measure("无索引", 20, PHONES, mapper::findByPhone);
+        migrate("db/migration/V2__reservation_phone_index.sql");
+        double indexed = measure("手机号索引", 5_000, PHONES, mapper::findByPhone);
+        // 预热缓存：热点手机号1000个
+        for (int i = 0; i < 1_000; i++) {
+            reservationService.findByPhone(phone(i));
+        }
+        double cached = measure("Redis缓存", 5_000, 1_000, reservationService::findByPhone);
+        System.out.printf("索引加速比：%.1fx，缓存相对索引：%.2fx%n", scan / indexed, indexed / cached);
+    }
+
+    private static double measure(String name, int iterations, int phones, Function<String, List<Reservation>> lookup) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<Reservation> reservations = lookup.apply(phone(ThreadLocalRandom.current().nextInt(phones)));
+            if (reservations.isEmpty()) {
+                throw new AssertionError("未查到预约单");
+            }
+        }
+        double usPerOp = (System.nanoTime() - start) / 1000.0 / iterations;
+        System.out.printf("%-8s %10.1f us/op%n", name, usPerOp);
+        return usPerOp;
+    }
+
+    private static String phone(int i) {
+        return "138" + String.format("%08d", i);
+    }
+
+    private static void migrate(String resource) throws IOException, SQLException {
+        String sql;
+        try (InputStream in = ReservationQueryBenchmarkTest.class.getClassLoader().getResourceAsStream(resource)) {
+            sql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
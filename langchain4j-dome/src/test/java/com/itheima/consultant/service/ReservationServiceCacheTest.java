@@ -0,0 +1,127 @@
+package com.itheima.consultant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.consultant.mapper.ReservationMapper;
+import com.itheima.consultant.pojo.Reservation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 预约单缓存：多条结果、新增后失效、查库期间新增预约时不写回旧结果
+ * 使用内存中的Mapper和嵌入式Redis，不依赖外部服务
+ */
+public class ReservationServiceCacheTest {
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void start() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    // 同一手机号的多条预约都能查到；第二次查询命中缓存；新增预约后缓存失效
+    @Test
+    void testMultiResultAndInvalidation() {
+        InMemoryReservationMapper mapper = new InMemoryReservationMapper();
+        ReservationService service = service(mapper);
+        String phone = "13800000042";
+        mapper.insert(reservation("李四", phone));
+        mapper.insert(reservation("王五", phone));
+
+        assertEquals(2, service.findByPhone(phone).size());
+        assertEquals(2, service.findByPhone(phone).size());
+        assertEquals(1, mapper.queries.get());
+
+        service.insert(reservation("张三", phone));
+        List<Reservation> after = service.findByPhone(phone);
+        assertEquals(3, after.size());
+        assertEquals("张三", after.get(2).getName());
+        assertEquals(2, mapper.queries.get());
+    }
+
+    // 读请求查库后、写回缓存前，另一个请求新增了预约：旧结果不能写回缓存
+    @Test
+    void testStaleReadIsNotCachedAfterConcurrentInsert() {
+        InMemoryReservationMapper mapper = new InMemoryReservationMapper();
+        ReservationService service = service(mapper);
+        String phone = "13800000043";
+        mapper.insert(reservation("李四", phone));
+        mapper.beforeReturn = () -> {
+            mapper.beforeReturn = null;
+            service.insert(reservation("张三", phone));
+        };
+
+        // 这次查库读到的是新增之前的结果
+        assertEquals(1, service.findByPhone(phone).size());
+        assertEquals(2, service.findByPhone(phone).size());
+    }
+
+    private ReservationService service(ReservationMapper mapper) {
+        return new ReservationService(mapper, redisTemplate, new ObjectMapper().findAndRegisterModules(),
+                Duration.ofMinutes(10));
+    }
+
+    private static Reservation reservation(String name, String phone) {
+        return new Reservation(null, name, "男", phone, LocalDateTime.of(2026, 1, 1, 10, 0), "河南", 600);
+    }
+
+    /**
+     * 内存中的预约表：记录查库次数，可以在查询结果返回前插入其它操作
+     */
+    static class InMemoryReservationMapper implements ReservationMapper {
+
+        private final List<Reservation> rows = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private volatile Runnable beforeReturn;
+
+        @Override
+        public void insert(Reservation reservation) {
+            rows.add(reservation);
+        }
+
+        @Override
+        public List<Reservation> findByPhone(String phone) {
+            queries.incrementAndGet();
+            List<Reservation> result = rows.stream().filter(r -> r.getPhone().equals(phone)).toList();
+            Runnable hook = beforeReturn;
+            if (hook != null) {
+                hook.run();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 本地意图分类器 - 放在LLM任务分类（GreetingExpert）前面的快速通道
+ * 分类顺序：
+ * 1. 关键词规则：只命中一种任务类型时直接返回
+ * 2. 向量最近质心：用标注样例的向量均值作为每种类型的质心，
+ *    最相似的质心相似度 >= minSimilarity 且领先第二名 >= minMargin 时返回
+ * 3. 以上都不确定（规则冲突、相似度低、两类接近）时才调用LLM兜底
+ *
+ * 设计特点：
+ * - 向量模型用本地模型（如BgeSmallZhV15QuantizedEmbeddingModel）时，分类全程不出进程
+ * - 质心在构造时计算一次，分类只需一次向量化 + 4次点积
+ * - 统计各通道的命中次数，便于调整阈值
+ */
+public class IntentClassifier {
+
+    /**
+     * 分类来源
+     */
+    public enum Source { RULE, EMBEDDING, LLM }
+
+    /**
+     * 分类结果
+     * @param type 任务类型
+     * @param confidence 置信度（规则为1，向量为质心相似度，LLM为0）
+     * @param source 分类来源
+     */
+    public record Intent(TASKTYPE type, double confidence, Source source) {
+    }
+
+    // 关键词规则
+    private static final Map<TASKTYPE, Pattern> RULES = new EnumMap<>(Map.of(
+            TASKTYPE.CANCEL_TICKET, Pattern.compile("退票|退掉|取消.{0,4}(预订|预定|订单|机票|航班|行程|改签)|不(想)?去了"),
+            TASKTYPE.MODIFY_TICKET, Pattern.compile("改签|改(成|到|为)?.{0,4}(日期|时间|航班|座位)|修改.{0,4}(预订|预定|订单|乘客|姓名)|换.{0,6}(航班|日期|时间)|(日期|时间|航班).{0,2}改|延期|推迟"),
+            TASKTYPE.QUERY_TICKET, Pattern.compile("查(询|一下|下)?.{0,12}(机票|航班|票|预订|预定|订单)|有没有.{0,8}(航班|机票|票)|(机票|航班).{0,6}(多少钱|价格|几点)|余票")
+    ));
+
+    // 默认标注样例
+    private static final Map<TASKTYPE, List<String>> EXAMPLES = new EnumMap<>(Map.of(
+            TASKTYPE.QUERY_TICKET, List.of(
+                    "帮我查一下明天北京到上海的机票",
+                    "下周一去成都的航班还有吗",
+                    "我的订单现在是什么状态",
+                    "看看我订的票是几点起飞",
+                    "从广州飞杭州最便宜的是哪一班",
+                    "我想知道预订号123456的行程信息"),
+            TASKTYPE.CANCEL_TICKET, List.of(
+                    "我要退票",
+                    "帮我把这张机票退了",
+                    "行程有变，不坐这班飞机了",
+                    "取消我的预订，预订号是123456",
+                    "临时有事去不了，票能退吗",
+                    "这个订单我不要了"),
+            TASKTYPE.MODIFY_TICKET, List.of(
+                    "我想改签到后天",
+                    "能帮我换一个晚一点的航班吗",
+                    "把出发日期改成下周三",
+                    "乘客姓名写错了，需要修改",
+                    "我想把经济舱升级成商务舱",
+                    "航班能往后挪一天吗"),
+            TASKTYPE.OTHER, List.of(
+                    "你好",
+                    "你们的客服电话是多少",
+                    "托运行李最多可以带多重",
+                    "飞机上可以带充电宝吗",
+                    "谢谢你的帮助",
+                    "今天天气怎么样")
+    ));
+
+    private final EmbeddingModel embeddingModel;
+
+    private final Function<String, TASKTYPE> fallback;
+
+    private final double minSimilarity;
+
+    private final double minMargin;
+
+    private final Map<TASKTYPE, float[]> centroids = new EnumMap<>(TASKTYPE.class);
+
+    private final Map<Source, AtomicLong> counters = new EnumMap<>(Source.class);
+
+    /**
+     * 使用默认样例和阈值
+     * @param embeddingModel 向量模型
+     * @param fallback LLM兜底分类，如 greetingExpert::isTask
+     */
+    public IntentClassifier(EmbeddingModel embeddingModel, Function<String, TASKTYPE> fallback) {
+        this(embeddingModel, EXAMPLES, 0.5, 0.05, fallback);
+    }
+
+    /**
+     * @param embeddingModel 向量模型
+     * @param examples 每种任务类型的标注样例
+     * @param minSimilarity 最相似质心的最低相似度
+     * @param minMargin 第一名与第二名质心相似度的最小差距
+     * @param fallback LLM兜底分类
+     */
+    public IntentClassifier(EmbeddingModel embeddingModel, Map<TASKTYPE, List<String>> examples,
+                            double minSimilarity, double minMargin, Function<String, TASKTYPE> fallback) {
+        this.embeddingModel = embeddingModel;
+        this.fallback = fallback;
+        this.minSimilarity = minSimilarity;
+        this.minMargin = minMargin;
+        for (Source source : Source.values()) {
+            counters.put(source, new AtomicLong());
+        }
+        examples.forEach((type, texts) -> {
+            List<TextSegment> segments = texts.stream().map(TextSegment::from).toList();
+            List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+            float[] centroid = new float[embeddings.get(0).dimension()];
+            for (Embedding embedding : embeddings) {
+                float[] vector = normalize(embedding.vector());
+                for (int i = 0; i < centroid.length; i++) {
+                    centroid[i] += vector[i];
+                }
+            }
+            centroids.put(type, normalize(centroid));
+        });
+    }
+
+    /**
+     * 分类
+     * @param text 用户输入
+     * @return 任务类型及来源
+     */
+    public Intent classify(String text) {
+        // 1.关键词规则
+        TASKTYPE matched = null;
+        int matches = 0;
+        for (Map.Entry<TASKTYPE, Pattern> rule : RULES.entrySet()) {
+            if (rule.getValue().matcher(text).find()) {
+                matched = rule.getKey();
+                matches++;
+            }
+        }
+        if (matches == 1) {
+            return count(new Intent(matched, 1, Source.RULE));
+        }
+
+        // 2.向量最近质心
+        float[] vector = normalize(embeddingModel.embed(text).content().vector());
+        TASKTYPE best = null;
+        double bestSimilarity = -1;
+        double secondSimilarity = -1;
+        for (Map.Entry<TASKTYPE, float[]> centroid : centroids.entrySet()) {
+            double similarity = dot(vector, centroid.getValue());
+            if (similarity > bestSimilarity) {
+                secondSimilarity = bestSimilarity;
+                bestSimilarity = similarity;
+                best = centroid.getKey();
+            } else if (similarity > secondSimilarity) {
+                secondSimilarity = similarity;
+            }
+        }
+        if (bestSimilarity >= minSimilarity && bestSimilarity - secondSimilarity >= minMargin) {
+            return count(new Intent(best, bestSimilarity, Source.EMBEDDING));
+        }
+
+        // 3.LLM兜底
+        return count(new Intent(fallback.apply(text), 0, Source.LLM));
+    }
+
+    /**
+     * 各分类来源的命中次数
+     */
+    public Map<Source, Long> stats() {
+        Map<Source, Long> stats = new EnumMap<>(Source.class);
+        counters.forEach((source, counter) -> stats.put(source, counter.get()));
+        return stats;
+    }
+
+    private Intent count(Intent intent) {
+        counters.get(intent.source()).incrementAndGet();
+        return intent;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (sum == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
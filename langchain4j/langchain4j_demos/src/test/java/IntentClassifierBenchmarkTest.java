@@ -0,0 +1,144 @@
+import dev.langchain4j.community.model.dashscope.QwenChatModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhv15q.BgeSmallZhV15QuantizedEmbeddingModel;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.UserMessage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 意图分类基准：本地分类器（规则 + 本地向量质心） vs LLM分类（GreetingExpert）
+ * 默认只断言本地分类的准确率（不依赖外部服务）；
+ * 耗时对比（benchmark）需 mvn test -Pbenchmark 运行，输出准确率、平均耗时和走LLM兜底的比例，
+ * 设置了 ALI_AI_KEY 时再跑一遍LLM分类作对比
+ */
+public class IntentClassifierBenchmarkTest {
+
+    interface GreetingExpert {
+        @UserMessage("以下文本是什么任务： {{it}}")
+        TASKTYPE isTask(String text);
+    }
+
+    // 标注数据（与分类器内置样例不重复）
+    private static final Map<String, TASKTYPE> DATASET = new LinkedHashMap<>();
+
+    static {
+        DATASET.put("我要退票！", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("麻烦把我明天的机票退掉", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("取消预订号654321的行程", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("公司出差取消了，这张票不要了", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("我不去了，钱能退回来吗", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("生病了坐不了飞机，帮我退掉", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("订单作废吧", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("退票要扣多少手续费，我要退", TASKTYPE.CANCEL_TICKET);
+        DATASET.put("帮我改签到周五", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("能不能换到下午的航班", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("出发时间想往后推迟两天", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("身份证号填错了要改一下", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("修改一下我的预订", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("日期改成十月三号", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("我想坐早一班的飞机", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("座位想换到靠窗", TASKTYPE.MODIFY_TICKET);
+        DATASET.put("查询一下我的机票", TASKTYPE.QUERY_TICKET);
+        DATASET.put("后天上海飞深圳还有票吗", TASKTYPE.QUERY_TICKET);
+        DATASET.put("有没有晚上去西安的航班", TASKTYPE.QUERY_TICKET);
+        DATASET.put("我订的航班几点登机", TASKTYPE.QUERY_TICKET);
+        DATASET.put("北京到三亚的机票多少钱", TASKTYPE.QUERY_TICKET);
+        DATASET.put("预订号123456现在什么状态", TASKTYPE.QUERY_TICKET);
+        DATASET.put("看下我下周的行程", TASKTYPE.QUERY_TICKET);
+        DATASET.put("明天飞重庆的余票还多吗", TASKTYPE.QUERY_TICKET);
+        DATASET.put("你好呀", TASKTYPE.OTHER);
+        DATASET.put("行李超重怎么收费", TASKTYPE.OTHER);
+        DATASET.put("宠物可以上飞机吗", TASKTYPE.OTHER);
+        DATASET.put("你们有会员积分吗", TASKTYPE.OTHER);
+        DATASET.put("好的，谢谢", TASKTYPE.OTHER);
+        DATASET.put("机场怎么走", TASKTYPE.OTHER);
+        DATASET.put("飞机上有wifi吗", TASKTYPE.OTHER);
+        DATASET.put("讲个笑话吧", TASKTYPE.OTHER);
+    }
+
+    // 本地分类器自己做出判断的样本中，准确率不低于85%
+    @Test
+    void testLocalAccuracy() {
+        IntentClassifier classifier = localClassifier(new AtomicInteger());
+        int correct = 0;
+        int decided = 0;
+        List<String> wrong = new ArrayList<>();
+        for (Map.Entry<String, TASKTYPE> sample : DATASET.entrySet()) {
+            IntentClassifier.Intent intent = classifier.classify(sample.getKey());
+            if (intent.source() != IntentClassifier.Source.LLM) {
+                decided++;
+                if (intent.type() == sample.getValue()) {
+                    correct++;
+                } else {
+                    wrong.add(sample.getKey() + " -> " + intent.type());
+                }
+            }
+        }
+        double accuracy = (double) correct / decided;
+        assertTrue(accuracy >= 0.85, "本地分类准确率过低：" + accuracy + "，误判：" + wrong);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark() {
+        AtomicInteger fallbacks = new AtomicInteger();
+        IntentClassifier classifier = localClassifier(fallbacks);
+        classifier.classify("预热");
+
+        int correct = 0;
+        int decided = 0;
+        long nanos = 0;
+        for (Map.Entry<String, TASKTYPE> sample : DATASET.entrySet()) {
+            long start = System.nanoTime();
+            IntentClassifier.Intent intent = classifier.classify(sample.getKey());
+            nanos += System.nanoTime() - start;
+            if (intent.source() != IntentClassifier.Source.LLM) {
+                decided++;
+                if (intent.type() == sample.getValue()) {
+                    correct++;
+                } else {
+                    System.out.printf("误判：%s -> %s（%s，%.3f）%n", sample.getKey(), intent.type(), intent.source(), intent.confidence());
+                }
+            }
+        }
+        double accuracy = (double) correct / decided;
+        System.out.printf("本地分类：准确率 %.1f%%（%d/%d），兜底比例 %.1f%%，平均 %.2f ms，来源 %s%n",
+                accuracy * 100, correct, decided, 100.0 * (DATASET.size() - decided) / DATASET.size(),
+                nanos / 1e6 / DATASET.size(), classifier.stats());
+
+        String apiKey = System.getenv("ALI_AI_KEY");
+        if (apiKey == null) {
+            return;
+        }
+        GreetingExpert expert = AiServices.create(GreetingExpert.class,
+                QwenChatModel.builder().apiKey(apiKey).modelName("qwen-max").build());
+        int llmCorrect = 0;
+        long llmNanos = 0;
+        for (Map.Entry<String, TASKTYPE> sample : DATASET.entrySet()) {
+            long start = System.nanoTime();
+            TASKTYPE type = expert.isTask(sample.getKey());
+            llmNanos += System.nanoTime() - start;
+            if (type == sample.getValue()) {
+                llmCorrect++;
+            }
+        }
+        System.out.printf("LLM分类：准确率 %.1f%%，平均 %.2f ms%n",
+                100.0 * llmCorrect / DATASET.size(), llmNanos / 1e6 / DATASET.size());
+    }
+
+    // 本地部分不调用LLM：兜底只计数
+    private static IntentClassifier localClassifier(AtomicInteger fallbacks) {
+        return new IntentClassifier(new BgeSmallZhV15QuantizedEmbeddingModel(), text -> {
+            fallbacks.incrementAndGet();
+            return null;
+        });
+    }
+}
@@ -1,5 +1,6 @@
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhv15q.BgeSmallZhV15QuantizedEmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
@@ -39,11 +40,11 @@ public class TestAgent {
 
     // 业务处理类 - 组合使用两个AI代理
     class MilesOfSmiles {
-        private GreetingExpert greetingExpert; // 任务分类器
-        private ChatBot chatBot;              // 通用聊天机器人
+        private IntentClassifier intentClassifier; // 任务分类器（本地优先，不确定时调用GreetingExpert）
+        private ChatBot chatBot;                   // 通用聊天机器人
 
-        public MilesOfSmiles(GreetingExpert greetingExpert, ChatBot chatBot) {
-            this.greetingExpert = greetingExpert;
+        public MilesOfSmiles(IntentClassifier intentClassifier, ChatBot chatBot) {
+            this.intentClassifier = intentClassifier;
             this.chatBot = chatBot;
         }
 
@@ -54,7 +55,7 @@ public class TestAgent {
          */
         public String handle(String userMessage) {
             // 1. 先判断任务类型
-            TASKTYPE task = greetingExpert.isTask(userMessage);
+            TASKTYPE task = intentClassifier.classify(userMessage).type();
 
             // 2. 根据不同类型处理
             switch (task) {
@@ -105,10 +106,14 @@ public class TestAgent {
         // 2. 创建聊天机器人（使用通义千问模型）
         ChatBot chatBot = AiServices.create(ChatBot.class, qwen);
 
-        // 3. 组合业务处理器
-        MilesOfSmiles milesOfSmiles = new MilesOfSmiles(greetingExpert, chatBot);
+        // 3. 本地意图分类器：规则和本地向量模型判断不了时才调用任务分类专家
+        IntentClassifier intentClassifier = new IntentClassifier(
+                new BgeSmallZhV15QuantizedEmbeddingModel(), greetingExpert::isTask);
 
-        // 4. 测试退票场景
+        // 4. 组合业务处理器
+        MilesOfSmiles milesOfSmiles = new MilesOfSmiles(intentClassifier, chatBot);
+
+        // 5. 测试退票场景
         String greeting = milesOfSmiles.handle("我要退票！");
         System.out.println(greeting); // 预期输出："CANCEL_TICKET调用service方法处理"
     }
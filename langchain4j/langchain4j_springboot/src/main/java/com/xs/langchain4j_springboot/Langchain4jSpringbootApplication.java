@@ -9,13 +9,19 @@ import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentByLineSplitter;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.store.embedding.EmbeddingStore;
+import com.xs.langchain4j_springboot.store.HnswEmbeddingStore;
+import dev.langchain4j.store.embedding.filter.MetadataFilterBuilder;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @SpringBootApplication
 public class Langchain4jSpringbootApplication {
@@ -28,6 +34,8 @@ public class Langchain4jSpringbootApplication {
      * 在Spring应用完全启动后执行,在所有Bean初始化完成后执行,在应用程序开始接收外部请求前执行
      * 文档向量化存储的初始化Bean
      * 功能：在应用启动时自动将文档分割、向量化并存储到向量数据库
+     * 片段ID由内容生成，快照中已有的片段跳过，重启时不再重复向量化；
+     * 文档修改后分割不再产生的片段（按file_name元数据识别）从向量存储中删除
      *
      * @param embeddingStore 向量存储接口（由Spring自动注入）
      * @param qwenEmbeddingModel 通义千问嵌入模型（用于文本向量化）
@@ -35,7 +43,7 @@ public class Langchain4jSpringbootApplication {
      */
     @Bean
     CommandLineRunner ingestTermOfServiceToVectorStore(
-            EmbeddingStore embeddingStore,
+            HnswEmbeddingStore embeddingStore,
             QwenEmbeddingModel qwenEmbeddingModel) {
 
         return args -> {
@@ -56,8 +64,30 @@ public class Langchain4jSpringbootApplication {
                     30    // maxOverlapSizeInChars
             );
 
-            // 执行文档分割
-            List<TextSegment> segments = splitter.split(document);
+            // 执行文档分割，只保留向量存储中还没有的片段
+            List<TextSegment> segments = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            Set<String> current = new HashSet<>();
+            for (TextSegment segment : splitter.split(document)) {
+                String id = UUID.nameUUIDFromBytes(segment.text().getBytes(StandardCharsets.UTF_8)).toString();
+                if (current.add(id) && !embeddingStore.contains(id)) {
+                    ids.add(id);
+                    segments.add(segment);
+                }
+            }
+
+            // 删除该文档以前产生、这次分割不再产生的片段
+            String fileName = document.metadata().getString(Document.FILE_NAME);
+            if (fileName != null) {
+                Set<String> stale = embeddingStore.ids(MetadataFilterBuilder.metadataKey(Document.FILE_NAME).isEqualTo(fileName));
+                stale.removeAll(current);
+                if (!stale.isEmpty()) {
+                    embeddingStore.removeAll(stale);
+                }
+            }
+            if (segments.isEmpty()) {
+                return; // 快照中已全部存在
+            }
 
             // 3. 向量化处理
             // 使用通义千问模型批量生成嵌入向量
@@ -65,7 +95,7 @@ public class Langchain4jSpringbootApplication {
 
             // 4. 存储到向量数据库
             // 将向量和对应的文本片段存入向量存储
-            embeddingStore.addAll(embeddings, segments);
+            embeddingStore.addAll(ids, embeddings, segments);
         };
     }
 }
\ No newline at end of file
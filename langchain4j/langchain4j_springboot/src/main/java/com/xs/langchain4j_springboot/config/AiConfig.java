@@ -1,8 +1,8 @@
 package com.xs.langchain4j_springboot.config;
 
 import com.xs.langchain4j_springboot.service.ToolsService;
+import com.xs.langchain4j_springboot.store.HnswEmbeddingStore;
 import dev.langchain4j.community.model.dashscope.QwenEmbeddingModel;
-import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatLanguageModel;
@@ -11,10 +11,13 @@ import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.*;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 /**
  * LangChain4j AI助手配置类
  * 功能：
@@ -27,7 +30,9 @@ public class AiConfig {
 
     /**
      * 基础AI助手接口定义
-     * 提供聊天和流式聊天功能
+     * 提供聊天和流式聊天功能，sessionId区分用户/会话，每个会话有独立的对话记忆
+     * 继承ChatMemoryAccess：AI服务内部按memoryId缓存ChatMemory且不会自动清理，
+     * 分片存储淘汰会话时通过evictChatMemory一并释放，缓存的会话数与存储上限一致
      *
      * @SystemMessage 定义系统提示词模板，包含：
      *   - 角色定位（航空公司客服）
@@ -36,12 +41,12 @@ public class AiConfig {
      *   - 语言要求（中文）
      *   - 动态日期变量 {{current_date}}
      */
-    public interface Assistant {
+    public interface Assistant extends ChatMemoryAccess {
         // 普通聊天接口
-        String chat(String message);
+        String chat(@MemoryId String sessionId, @UserMessage String message);
 
         // 流式聊天接口
-        TokenStream stream(String message);
+        TokenStream stream(@MemoryId String sessionId, @UserMessage String message);
 
         // 带动态变量的流式聊天接口
         @SystemMessage("""
@@ -51,17 +56,43 @@ public class AiConfig {
                 请讲中文。
                 今天的日期是 {{current_date}}.
                 """)
-        TokenStream stream(@UserMessage String message,
+        TokenStream stream(@MemoryId String sessionId,
+                           @UserMessage String message,
                            @V("current_date") String currentDate);
     }
 
     /**
-     * 内存嵌入存储 - 用于向量检索
-     * @return 内存嵌入存储实例
+     * 嵌入存储 - 用于向量检索（HNSW索引，启动时从快照加载）
+     * @param file 快照文件
+     * @param m 每个节点的最大邻居数
+     * @param efConstruction 建图候选集大小
+     * @param efSearch 检索候选集大小
+     * @param snapshotInterval 写快照间隔（有改动时）
+     * @return 嵌入存储实例
+     */
+    @Bean(destroyMethod = "close")
+    public HnswEmbeddingStore embeddingStore(
+            @Value("${app.embedding-store.file:data/embedding-store.bin}") Path file,
+            @Value("${app.embedding-store.m:16}") int m,
+            @Value("${app.embedding-store.ef-construction:200}") int efConstruction,
+            @Value("${app.embedding-store.ef-search:64}") int efSearch,
+            @Value("${app.embedding-store.snapshot-interval:1m}") Duration snapshotInterval
+    ) {
+        return new HnswEmbeddingStore(file, m, efConstruction, efSearch, snapshotInterval);
+    }
+
+    /**
+     * 基础助手的对话记忆存储：按会话分片，会话数有上限（LRU淘汰）
+     * @param shards 分片数
+     * @param maxSessions 最多保存的会话数
+     * @return 分片存储实例
      */
     @Bean
-    public EmbeddingStore embeddingStore() {
-        return new InMemoryEmbeddingStore(); // 基于内存的向量存储
+    public ShardedChatMemoryStore shardedChatMemoryStore(
+            @Value("${app.assistant-memory.shards:16}") int shards,
+            @Value("${app.assistant-memory.max-sessions:10000}") int maxSessions
+    ) {
+        return new ShardedChatMemoryStore(shards, maxSessions);
     }
 
     /**
@@ -71,6 +102,7 @@ public class AiConfig {
      * @param toolsService 工具服务（自定义工具）
      * @param embeddingStore 向量存储
      * @param qwenEmbeddingModel 通义千问嵌入模型
+     * @param shardedChatMemoryStore 分片对话记忆存储
      * @return 配置完成的AI助手实例
      */
     @Bean
@@ -79,10 +111,16 @@ public class AiConfig {
             StreamingChatLanguageModel qwenStreamingChatModel,
             ToolsService toolsService,
             EmbeddingStore embeddingStore,
-            QwenEmbeddingModel qwenEmbeddingModel
+            QwenEmbeddingModel qwenEmbeddingModel,
+            ShardedChatMemoryStore shardedChatMemoryStore
     ) {
-        // 对话记忆配置 - 最多保留10条对话历史
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
+        // 对话记忆配置 - 每个会话最多保留10条对话历史，消息保存在分片存储中
+        ChatMemoryProvider chatMemoryProvider = sessionId ->
+                MessageWindowChatMemory.builder()
+                        .id(sessionId)
+                        .maxMessages(10)
+                        .chatMemoryStore(shardedChatMemoryStore)
+                        .build();
 
         // 内容检索器配置 - 用于RAG（检索增强生成）
         ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
@@ -98,9 +136,12 @@ public class AiConfig {
                 .contentRetriever(contentRetriever)   // 设置内容检索器
                 .chatLanguageModel(qwenChatModel)      // 设置聊天模型
                 .streamingChatLanguageModel(qwenStreamingChatModel) // 设置流式聊天模型
-                .chatMemory(chatMemory)               // 设置对话记忆
+                .chatMemoryProvider(chatMemoryProvider) // 按会话提供对话记忆
                 .build();
 
+        // 存储淘汰会话时释放AI服务缓存的ChatMemory，否则每个sessionId的缓存永远不会被清理
+        shardedChatMemoryStore.setEvictionListener(assistant::evictChatMemory);
+
         return assistant;
     }
 
@@ -143,19 +184,37 @@ public class AiConfig {
         return assistant;
     }
 
+    /**
+     * 对话记忆持久化存储（内存映射的追加写日志，无需外部数据库）
+     * @param file 日志文件位置
+     * @param fsyncPolicy 刷盘策略：ALWAYS / INTERVAL / NEVER
+     * @param fsyncInterval INTERVAL策略的刷盘间隔
+     * @param compactionInterval 检查是否需要压缩日志的间隔
+     * @return 持久化存储实例，容器关闭时刷盘并关闭文件
+     */
+    @Bean(destroyMethod = "close")
+    public PersistentChatMemoryStore persistentChatMemoryStore(
+            @Value("${app.chat-memory.file:data/chat-memory.log}") Path file,
+            @Value("${app.chat-memory.fsync-policy:INTERVAL}") PersistentChatMemoryStore.FsyncPolicy fsyncPolicy,
+            @Value("${app.chat-memory.fsync-interval:1s}") Duration fsyncInterval,
+            @Value("${app.chat-memory.compaction-interval:10m}") Duration compactionInterval
+    ) {
+        return new PersistentChatMemoryStore(file, fsyncPolicy, fsyncInterval, compactionInterval);
+    }
+
     /**
      * 持久化存储版带记忆的AI助手
      * @param qwenChatModel 聊天模型
      * @param qwenStreamingChatModel 流式聊天模型
+     * @param store 持久化存储
      * @return 配置完成的AI助手实例
      */
     @Bean
     public AssistantUnique assistantUniqueStore(
             ChatLanguageModel qwenChatModel,
-            StreamingChatLanguageModel qwenStreamingChatModel
+            StreamingChatLanguageModel qwenStreamingChatModel,
+            PersistentChatMemoryStore store
     ) {
-        // 自定义持久化存储实现
-        PersistentChatMemoryStore store = new PersistentChatMemoryStore();
 
         // 记忆提供者 - 支持持久化存储
         ChatMemoryProvider chatMemoryProvider = memoryId ->
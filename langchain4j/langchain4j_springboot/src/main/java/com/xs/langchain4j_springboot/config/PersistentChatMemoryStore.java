@@ -1,24 +1,428 @@
 package com.xs.langchain4j_springboot.config;
 
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 自定义对话持久化存储：内存映射的追加写日志
+ * 功能：
+ * 1. 每次更新/删除都追加一条记录到日志文件（内存映射，写入即内存拷贝）
+ * 2. 内存中保存 memoryId -> 最新记录偏移量 的索引，读取时直接定位
+ * 3. 启动时顺序扫描日志重建索引，遇到校验失败的记录（写了一半就宕机）从该处截断
+ * 4. 定期压缩：过期记录占比超过一半时，只保留每个会话的最新记录写成下一代日志文件
+ *
+ * 日志分代：
+ * - 第0代就是配置的文件本身，第n代为 文件名.n，启动时使用编号最大的一代，删除更旧的
+ * - 压缩时先写临时文件，刷盘后原子重命名为下一代，再切换过去；
+ *   不覆盖仍被内存映射的当前文件（Windows上映射未释放时无法替换或删除），
+ *   旧文件删除失败时留到下次压缩或启动时再删
+ *
+ * 刷盘策略（FsyncPolicy）：
+ * - ALWAYS：每条记录写入后立即刷盘，宕机不丢数据，写入最慢
+ * - INTERVAL：后台按固定间隔刷盘，宕机最多丢失一个间隔内的数据
+ * - NEVER：由操作系统决定何时写回，进程崩溃不丢数据，断电可能丢失
+ *
+ * 记录格式：
+ * [长度 int][CRC32 int][操作 byte][memoryId长度 short][memoryId][消息JSON]
+ * 长度不含自身4字节；长度为0表示文件末尾的预分配空间
+ */
+public class PersistentChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentChatMemoryStore.class);
+
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final byte OP_UPDATE = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    // 记录头：长度 + CRC32
+    private static final int HEADER = 8;
+
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    // 日志小于该大小时不压缩
+    private static final long MIN_COMPACT_SIZE = 1 << 20;
+
+    private final Path file;
+
+    // 当前日志的代数，0表示配置的文件本身
+    private long generation;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService scheduler;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    // 会话ID -> 最新UPDATE记录的偏移量
+    private final Map<String, Integer> index = new HashMap<>();
+
+    // 会话ID -> 最新记录的长度（含记录头），用于计算过期记录占比
+    private final Map<String, Integer> sizes = new HashMap<>();
+
+    private long liveBytes;
+
+    public PersistentChatMemoryStore(Path file, FsyncPolicy fsyncPolicy,
+                                     Duration fsyncInterval, Duration compactionInterval) {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            generation = latestGeneration();
+            deleteOldGenerations();
+            open();
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("对话记忆日志打开失败：" + file, e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long millis = fsyncInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        }
+        long compactMillis = compactionInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::compactIfNeeded, compactMillis, compactMillis, TimeUnit.MILLISECONDS);
+    }
 
-// 自定义对话持久化存储(未实现)
-public class PersistentChatMemoryStore implements ChatMemoryStore {
     @Override
     public List<ChatMessage> getMessages(Object memoryId) {
-        return null;
+        String key = memoryId.toString();
+        lock.readLock().lock();
+        try {
+            Integer offset = index.get(key);
+            if (offset == null) {
+                return new ArrayList<>();
+            }
+            ByteBuffer record = buffer.duplicate();
+            int length = record.getInt(offset);
+            int keyLength = record.getShort(offset + HEADER + 1);
+            int payloadStart = offset + HEADER + 3 + keyLength;
+            byte[] payload = new byte[offset + 4 + length - payloadStart];
+            record.position(payloadStart);
+            record.get(payload);
+            return new ArrayList<>(ChatMessageDeserializer.messagesFromJson(new String(payload, StandardCharsets.UTF_8)));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public void updateMessages(Object memoryId, List<ChatMessage> messages) {
-
+        byte[] payload = ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8);
+        append(OP_UPDATE, memoryId.toString(), payload);
     }
 
     @Override
     public void deleteMessages(Object memoryId) {
+        append(OP_DELETE, memoryId.toString(), new byte[0]);
+    }
+
+    /**
+     * 刷盘（INTERVAL策略的后台任务，关闭时也会调用）
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } catch (RuntimeException e) {
+            log.warn("对话记忆日志刷盘失败", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 压缩日志：只保留每个会话的最新记录
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+            Map<String, Integer> newIndex = new HashMap<>();
+            int position = 0;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                    int offset = entry.getValue();
+                    int size = 4 + buffer.getInt(offset);
+                    ByteBuffer record = buffer.duplicate();
+                    record.position(offset).limit(offset + size);
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                    newIndex.put(entry.getKey(), position);
+                    position += size;
+                }
+                out.force(true);
+            }
+            // 重命名为下一代之后才切换，失败时继续使用当前日志
+            Files.move(tmp, generationPath(generation + 1),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long before = writePosition;
+            channel.close();
+            // 不再引用旧映射，便于尽早释放
+            buffer = null;
+            generation++;
+            try {
+                open();
+            } catch (IOException e) {
+                // 切换失败，回到当前日志（此时还未删除）；同时删除新一代文件，
+                // 否则之后追加到当前日志的记录在重启时会因选中新一代文件而丢失
+                generation--;
+                try {
+                    Files.deleteIfExists(generationPath(generation + 1));
+                } catch (IOException deleteError) {
+                    e.addSuppressed(deleteError);
+                }
+                open();
+                throw e;
+            }
+            index.clear();
+            index.putAll(newIndex);
+            writePosition = position;
+            liveBytes = position;
+            deleteOldGenerations();
+            log.info("对话记忆日志压缩完成：{} -> {} 字节，会话数：{}，当前文件：{}",
+                    before, position, index.size(), generationPath(generation));
+        } catch (IOException e) {
+            throw new UncheckedIOException("对话记忆日志压缩失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("对话记忆日志关闭失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(byte op, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + 1 + 2 + keyBytes.length + payload.length;
+        ByteBuffer body = ByteBuffer.allocate(length - 4);
+        body.put(op).putShort((short) keyBytes.length).put(keyBytes).put(payload).flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(writePosition + 4 + length);
+            int offset = writePosition;
+            // 先写内容，最后写长度：长度为0时视为未写完
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.put(offset + HEADER, body, 0, body.remaining());
+            buffer.putInt(offset, length);
+            writePosition += 4 + length;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                buffer.force(offset, 4 + length);
+            }
+            Integer oldSize = sizes.remove(key);
+            if (oldSize != null) {
+                liveBytes -= oldSize;
+            }
+            if (op == OP_UPDATE) {
+                index.put(key, offset);
+                sizes.put(key, 4 + length);
+                liveBytes += 4 + length;
+            } else {
+                index.remove(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        try {
+            boolean needed;
+            lock.readLock().lock();
+            try {
+                needed = writePosition > MIN_COMPACT_SIZE && writePosition - liveBytes > writePosition / 2;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (needed) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            log.warn("对话记忆日志压缩失败", e);
+        }
+    }
+
+    /**
+     * 启动时扫描日志重建索引
+     */
+    private void recover() {
+        int position = 0;
+        int capacity = buffer.capacity();
+        while (position + HEADER <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4L + length > capacity) {
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + HEADER).limit(position + 4 + length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("对话记忆日志在偏移量{}处损坏，截断之后的内容", position);
+                truncateFrom(position);
+                break;
+            }
+            byte op = body.get();
+            byte[] keyBytes = new byte[body.getShort()];
+            body.get(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            Integer oldSize = sizes.remove(key);
+            if (oldSize != null) {
+                liveBytes -= oldSize;
+            }
+            if (op == OP_UPDATE) {
+                index.put(key, position);
+                sizes.put(key, 4 + length);
+                liveBytes += 4 + length;
+            } else {
+                index.remove(key);
+            }
+            position += 4 + length;
+        }
+        writePosition = position;
+        log.info("对话记忆日志加载完成：{}，会话数：{}，大小：{} 字节", generationPath(generation), index.size(), position);
+    }
+
+    // 清零损坏位置之后的内容，防止以后追加的短记录之后残留旧数据被误读
+    private void truncateFrom(int position) {
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("对话记忆日志超过2GB，请缩短压缩间隔");
+        }
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("对话记忆日志扩容失败", e);
+        }
+    }
+
+    /**
+     * 当前日志文件（第0代为配置的文件本身）
+     */
+    Path currentFile() {
+        return generationPath(generation);
+    }
+
+    private Path generationPath(long generation) {
+        return generation == 0 ? file : file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    private long latestGeneration() throws IOException {
+        return generations().keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    // 删除比当前更旧的日志和压缩中断留下的临时文件；失败（如仍被映射）时下次再删
+    private void deleteOldGenerations() {
+        List<Path> stale = new ArrayList<>();
+        stale.add(file.resolveSibling(file.getFileName() + ".compact"));
+        try {
+            generations().forEach((g, path) -> {
+                if (g < generation) {
+                    stale.add(path);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("对话记忆日志目录读取失败：{}", file, e);
+        }
+        for (Path path : stale) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.debug("旧的对话记忆日志暂时无法删除：{}", path, e);
+            }
+        }
+    }
+
+    // 目录中已有的各代日志：代数 -> 文件
+    private Map<Long, Path> generations() throws IOException {
+        String prefix = file.getFileName() + ".";
+        Map<Long, Path> generations = new HashMap<>();
+        if (Files.exists(file)) {
+            generations.put(0L, file);
+        }
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            siblings.forEach(sibling -> {
+                String name = sibling.getFileName().toString();
+                String suffix = name.startsWith(prefix) ? name.substring(prefix.length()) : "";
+                if (!suffix.isEmpty() && suffix.length() < 19 && suffix.chars().allMatch(Character::isDigit)) {
+                    generations.put(Long.parseLong(suffix), sibling);
+                }
+            });
+        }
+        return generations;
+    }
 
+    private void open() throws IOException {
+        channel = FileChannel.open(currentFile(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), INITIAL_CAPACITY);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
     }
 }
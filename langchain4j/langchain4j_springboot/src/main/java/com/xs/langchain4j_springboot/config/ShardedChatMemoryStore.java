@@ -0,0 +1,127 @@
+package com.xs.langchain4j_springboot.config;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 分片的内存对话记忆存储
+ * 功能：
+ * 1. 按memoryId哈希分到多个分片，每个分片单独加锁，不同会话之间基本不竞争
+ * 2. 每个分片最多保存 maxSessions / shards 个会话，超出时淘汰最久未访问的会话（LRU）
+ * 3. 淘汰时通知监听器（见setEvictionListener），AI服务据此释放该会话缓存的ChatMemory
+ *
+ * 设计特点：
+ * - 读写都复制消息列表，调用方拿到的列表与存储互不影响
+ * - 分片数取不小于指定值的2的幂，用位运算定位分片
+ * - 监听器在释放分片锁之后调用，监听器内再访问存储不会死锁
+ */
+public class ShardedChatMemoryStore implements ChatMemoryStore {
+
+    private final Shard[] shards;
+
+    private final int mask;
+
+    private volatile Consumer<Object> evictionListener = memoryId -> {
+    };
+
+    public ShardedChatMemoryStore(int shardCount, int maxSessions) {
+        int size = 1;
+        while (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new Shard[size];
+        this.mask = size - 1;
+        int perShard = Math.max(1, maxSessions / size);
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard(perShard);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        Shard shard = shard(memoryId);
+        synchronized (shard) {
+            List<ChatMessage> messages = shard.get(memoryId);
+            return messages == null ? new ArrayList<>() : new ArrayList<>(messages);
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> copy = new ArrayList<>(messages);
+        Shard shard = shard(memoryId);
+        Object evicted;
+        synchronized (shard) {
+            shard.put(memoryId, copy);
+            evicted = shard.evicted;
+            shard.evicted = null;
+        }
+        if (evicted != null) {
+            evictionListener.accept(evicted);
+        }
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        Shard shard = shard(memoryId);
+        synchronized (shard) {
+            shard.remove(memoryId);
+        }
+    }
+
+    /**
+     * 设置会话被LRU淘汰时的监听器（参数为被淘汰的memoryId）
+     */
+    public void setEvictionListener(Consumer<Object> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * 当前保存的会话数
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    private Shard shard(Object memoryId) {
+        int h = memoryId.hashCode();
+        return shards[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * 单个分片：按访问顺序淘汰的会话表
+     */
+    private static final class Shard extends LinkedHashMap<Object, List<ChatMessage>> {
+
+        private final int capacity;
+
+        // 最近一次put淘汰的会话，由updateMessages取走
+        private Object evicted;
+
+        Shard(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, List<ChatMessage>> eldest) {
+            if (size() > capacity) {
+                evicted = eldest.getKey();
+                return true;
+            }
+            return false;
+        }
+    }
+}
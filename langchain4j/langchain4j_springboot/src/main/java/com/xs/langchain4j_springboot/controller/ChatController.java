@@ -1,10 +1,9 @@
 package com.xs.langchain4j_springboot.controller;
 
 import com.xs.langchain4j_springboot.config.AiConfig;
+import com.xs.langchain4j_springboot.stream.TokenStreamBridge;
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.community.model.dashscope.QwenStreamingChatModel;
-import dev.langchain4j.model.chat.response.ChatResponse;
-import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.service.TokenStream;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,6 +34,10 @@ public class ChatController {
     @Autowired
     QwenStreamingChatModel streamingChatModel;
 
+    // 流式输出桥接（有界缓冲、取消传播）
+    @Autowired
+    TokenStreamBridge tokenStreamBridge;
+
     /**
      * 普通聊天接口
      * @param message 聊天消息，默认"你是谁"
@@ -55,25 +58,16 @@ public class ChatController {
      */
     @RequestMapping(value = "/stream", produces = "text/stream;charset=UTF-8")
     public Flux<String> stream(@RequestParam(defaultValue="你是谁") String message) {
-        // 创建响应式流
-        return Flux.create(fluxSink -> {
-            streamingChatModel.chat(message, new StreamingChatResponseHandler() {
-                @Override
-                public void onPartialResponse(String partialResponse) {
-                    fluxSink.next(partialResponse); // 实时推送部分响应
-                }
-
-                @Override
-                public void onCompleteResponse(ChatResponse completeResponse) {
-                    fluxSink.complete(); // 结束流
-                }
+        // 创建响应式流，客户端断开后中止模型输出
+        return tokenStreamBridge.from("stream", handler -> streamingChatModel.chat(message, handler));
+    }
 
-                @Override
-                public void onError(Throwable error) {
-                    fluxSink.error(error); // 错误处理
-                }
-            });
-        });
+    /**
+     * 流式输出统计：开始/完成/失败/中止的流数，溢出的流数与丢弃的片段数
+     */
+    @RequestMapping("/stream_stats")
+    public TokenStreamBridge.Stats streamStats() {
+        return tokenStreamBridge.stats();
     }
 
     // 注入带记忆的AI助手（来自AiConfig配置）
@@ -83,32 +77,31 @@ public class ChatController {
     /**
      * 带记忆的聊天接口
      * @param message 聊天消息，默认"我叫徐庶"
+     * @param sessionId 会话ID（必填，每个会话独立的对话历史；不提供默认值，避免所有调用方共用一份历史）
      * @return 聊天响应
      */
     @RequestMapping(value = "/memory_chat")
-    public String memoryChat(@RequestParam(defaultValue="我叫小小") String message) {
-        return assistant.chat(message); // 自动维护对话历史
+    public String memoryChat(@RequestParam(defaultValue="我叫小小") String message,
+                             @RequestParam String sessionId) {
+        return assistant.chat(sessionId, message); // 自动维护该会话的对话历史
     }
 
     /**
      * 带记忆的流式聊天接口
      * @param message 聊天消息，默认"我是谁"
+     * @param sessionId 会话ID（必填，每个会话独立的对话历史）
      * @param response Http响应对象
      * @return 流式响应Flux
      */
     @RequestMapping(value = "/memory_stream_chat", produces ="text/stream;charset=UTF-8")
     public Flux<String> memoryStreamChat(@RequestParam(defaultValue="我是谁") String message,
+                                         @RequestParam String sessionId,
                                          HttpServletResponse response) {
         // 获取带日期上下文的流
-        TokenStream stream = assistant.stream(message, LocalDate.now().toString());
+        TokenStream stream = assistant.stream(sessionId, message, LocalDate.now().toString());
 
         // 转换为Flux
-        return Flux.create(sink -> {
-            stream.onPartialResponse(s -> sink.next(s))
-                    .onCompleteResponse(c -> sink.complete())
-                    .onError(sink::error)
-                    .start();
-        });
+        return tokenStreamBridge.from("memory_stream_chat", stream);
     }
 
     // 注入支持多用户隔离的AI助手
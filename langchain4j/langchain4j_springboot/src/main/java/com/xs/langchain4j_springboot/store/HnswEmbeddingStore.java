@@ -0,0 +1,814 @@
+package com.xs.langchain4j_springboot.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内向量存储：HNSW近似最近邻索引 + 磁盘二进制快照
+ * 功能：
+ * 1. 实现langchain4j的EmbeddingStore接口，可直接替换InMemoryEmbeddingStore
+ * 2. 检索走HNSW图（分层小世界图），耗时随数据量近似对数增长，不再线性扫描
+ * 3. 启动时从快照加载向量、文本片段和图结构，无需重新向量化和建图
+ * 4. 有改动时按间隔写快照，关闭时再写一次；写快照先写临时文件并刷盘，再原子替换
+ * 5. 快照损坏（截断、格式错误）时不阻止启动：记录错误、把文件改名留存，从空索引开始，由导入流程重建
+ *
+ * 设计特点：
+ * - 相似度为余弦相似度，得分与InMemoryEmbeddingStore一致（RelevanceScore.fromCosineSimilarity）
+ * - 删除只做标记，节点仍参与图的遍历；已删除节点超过一半时写快照前重建图
+ * - 带过滤条件的检索直接线性扫描（过滤后的结果在图上可能不连通）
+ * - 读写锁：检索并发，写入互斥；写快照只在锁内复制节点，序列化和写盘在锁外进行，不阻塞检索
+ *
+ * 参数：
+ * - m：每层每个节点的最大邻居数（第0层为2m），越大召回越高、内存越大
+ * - efConstruction：建图时的候选集大小
+ * - efSearch：检索时的候选集大小（不小于maxResults）
+ */
+public class HnswEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswEmbeddingStore.class);
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+
+    private static final int VERSION = 1;
+
+    private final Path file;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    private final double levelFactor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService scheduler;
+
+    // 串行化写快照（定时任务与关闭时的写入），保证后复制的快照后落盘
+    private final Object snapshotLock = new Object();
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    // 向量ID -> 节点下标（不含已删除节点）
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private int dimension = -1;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    private int deleted;
+
+    private boolean dirty;
+
+    public HnswEmbeddingStore(Path file, int m, int efConstruction, int efSearch, Duration snapshotInterval) {
+        this.file = file;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelFactor = 1 / Math.log(m);
+        if (Files.exists(file)) {
+            try {
+                load();
+            } catch (IOException | RuntimeException e) {
+                discardCorruptSnapshot(e);
+            }
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "embedding-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotIfDirty, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), Collections.singletonList(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return addAll(embeddings, null);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> ids = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        addAll(ids, embeddings, textSegments);
+        return ids;
+    }
+
+    /**
+     * 批量写入，ID已存在时覆盖
+     */
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        if (ids.size() != embeddings.size() || (textSegments != null && textSegments.size() != ids.size())) {
+            throw new IllegalArgumentException("ID、向量和文本片段的数量不一致");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                markDeleted(ids.get(i));
+                insert(ids.get(i), embeddings.get(i).vector(), textSegments == null ? null : textSegments.get(i));
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                markDeleted(id);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (Node node : nodes) {
+                if (!node.deleted && node.segment != null && filter.test(node.segment.metadata())) {
+                    markDeleted(node.id);
+                }
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        float queryInvNorm = invNorm(query);
+        List<Candidate> candidates;
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new EmbeddingSearchResult<>(new ArrayList<>());
+            }
+            checkDimension(query);
+            candidates = request.filter() == null
+                    ? searchGraph(query, queryInvNorm, Math.max(efSearch, request.maxResults()))
+                    : scan(query, queryInvNorm, request.filter());
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            double score = RelevanceScore.fromCosineSimilarity(candidate.similarity);
+            if (score < request.minScore() || matches.size() >= request.maxResults()) {
+                break;
+            }
+            Node node = candidate.node;
+            matches.add(new EmbeddingMatch<>(score, node.id, Embedding.from(node.vector), node.segment));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    /**
+     * 当前向量数（不含已删除）
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 是否包含指定ID
+     */
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 元数据满足过滤条件的向量ID（不含已删除）
+     */
+    public Set<String> ids(Filter filter) {
+        lock.readLock().lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (Node node : nodes) {
+                if (!node.deleted && node.segment != null && filter.test(node.segment.metadata())) {
+                    ids.add(node.id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写快照：已删除节点过多时先重建图；锁内只复制节点，写盘在锁外进行
+     */
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            Snapshot snapshot;
+            lock.writeLock().lock();
+            try {
+                if (deleted > index.size()) {
+                    rebuild();
+                }
+                List<Node> copy = new ArrayList<>(nodes.size());
+                for (Node node : nodes) {
+                    copy.add(node.copy());
+                }
+                snapshot = new Snapshot(dimension, entryPoint, maxLevel, copy, index.size());
+                dirty = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                write(snapshot);
+            } catch (IOException e) {
+                // 写入失败，下一次定时任务重试
+                lock.writeLock().lock();
+                try {
+                    dirty = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw new UncheckedIOException("向量快照写入失败：" + file, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        snapshotIfDirty();
+    }
+
+    private void snapshotIfDirty() {
+        try {
+            boolean needed;
+            lock.readLock().lock();
+            try {
+                needed = dirty;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (needed) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.warn("向量快照写入失败", e);
+        }
+    }
+
+    // ---------------- HNSW ----------------
+
+    private void insert(String id, float[] vector, TextSegment segment) {
+        if (dimension < 0) {
+            dimension = vector.length;
+        }
+        checkDimension(vector);
+        int level = (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelFactor);
+        Node node = new Node(id, vector.clone(), segment, level, m);
+        int position = nodes.size();
+        nodes.add(node);
+        index.put(id, position);
+        link(node, position);
+    }
+
+    // 把节点接入图中（新增或重建时调用）
+    private void link(Node node, int position) {
+        if (entryPoint < 0) {
+            entryPoint = position;
+            maxLevel = node.level;
+            return;
+        }
+        Node entry = nodes.get(entryPoint);
+        Candidate nearest = new Candidate(entry, entryPoint, similarity(node.vector, node.invNorm, entry));
+        // 1.高层贪心下降到节点所在层
+        for (int level = maxLevel; level > node.level; level--) {
+            nearest = greedy(node.vector, node.invNorm, nearest, level);
+        }
+        // 2.在节点所在的每一层选邻居并双向连接
+        for (int level = Math.min(node.level, maxLevel); level >= 0; level--) {
+            List<Candidate> found = searchLayer(node.vector, node.invNorm, nearest, efConstruction, level);
+            int limit = level == 0 ? 2 * m : m;
+            for (Candidate neighbor : selectNeighbors(found, limit)) {
+                node.connect(level, neighbor.position);
+                connect(neighbor.node, new Candidate(node, position, neighbor.similarity), level, limit);
+            }
+            nearest = found.get(0);
+        }
+        if (node.level > maxLevel) {
+            maxLevel = node.level;
+            entryPoint = position;
+        }
+    }
+
+    // 给已有节点加一条边，超过上限时重新挑选邻居
+    private void connect(Node node, Candidate target, int level, int limit) {
+        if (node.count[level] < limit) {
+            node.connect(level, target.position);
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(node.count[level] + 1);
+        candidates.add(target);
+        for (int i = 0; i < node.count[level]; i++) {
+            int position = node.links[level][i];
+            Node neighbor = nodes.get(position);
+            candidates.add(new Candidate(neighbor, position, similarity(node.vector, node.invNorm, neighbor)));
+        }
+        candidates.sort(Comparator.comparingDouble(c -> -c.similarity));
+        node.count[level] = 0;
+        for (Candidate neighbor : selectNeighbors(candidates, limit)) {
+            node.connect(level, neighbor.position);
+        }
+    }
+
+    /**
+     * 启发式选邻居（HNSW论文算法4）：候选按相似度降序，只保留与基准点比与已选邻居都更相似的候选，
+     * 让邻居分布在不同方向上，聚类数据之间也能保持连通
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (similarity(candidate.node.vector, candidate.node.invNorm, chosen.node) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    private Candidate greedy(float[] query, float queryInvNorm, Candidate start, int level) {
+        Candidate current = start;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Node node = current.node;
+            for (int i = 0; i < node.count[level]; i++) {
+                int position = node.links[level][i];
+                Node neighbor = nodes.get(position);
+                double sim = similarity(query, queryInvNorm, neighbor);
+                if (sim > current.similarity) {
+                    current = new Candidate(neighbor, position, sim);
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层搜索，返回按相似度降序排列的最多ef个候选（含已删除节点）
+     */
+    private List<Candidate> searchLayer(float[] query, float queryInvNorm, Candidate start, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        visited.set(start.position);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(c -> -c.similarity));
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(c -> c.similarity));
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.similarity < results.peek().similarity) {
+                break;
+            }
+            Node node = current.node;
+            for (int i = 0; i < node.count[level]; i++) {
+                int position = node.links[level][i];
+                if (visited.get(position)) {
+                    continue;
+                }
+                visited.set(position);
+                Node neighbor = nodes.get(position);
+                double sim = similarity(query, queryInvNorm, neighbor);
+                if (results.size() < ef || sim > results.peek().similarity) {
+                    Candidate candidate = new Candidate(neighbor, position, sim);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(c -> -c.similarity));
+        return sorted;
+    }
+
+    private List<Candidate> searchGraph(float[] query, float queryInvNorm, int ef) {
+        Node entry = nodes.get(entryPoint);
+        Candidate nearest = new Candidate(entry, entryPoint, similarity(query, queryInvNorm, entry));
+        for (int level = maxLevel; level > 0; level--) {
+            nearest = greedy(query, queryInvNorm, nearest, level);
+        }
+        List<Candidate> found = searchLayer(query, queryInvNorm, nearest, ef, 0);
+        found.removeIf(c -> c.node.deleted);
+        return found;
+    }
+
+    private List<Candidate> scan(float[] query, float queryInvNorm, Filter filter) {
+        List<Candidate> found = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (!node.deleted && node.segment != null && filter.test(node.segment.metadata())) {
+                found.add(new Candidate(node, i, similarity(query, queryInvNorm, node)));
+            }
+        }
+        found.sort(Comparator.comparingDouble(c -> -c.similarity));
+        return found;
+    }
+
+    private void markDeleted(String id) {
+        Integer position = index.remove(id);
+        if (position != null) {
+            nodes.get(position).deleted = true;
+            deleted++;
+        }
+    }
+
+    // 只用未删除的节点重新建图
+    private void rebuild() {
+        List<Node> live = new ArrayList<>();
+        for (Node node : nodes) {
+            if (!node.deleted) {
+                live.add(node);
+            }
+        }
+        int before = nodes.size();
+        clear();
+        for (Node node : live) {
+            insert(node.id, node.vector, node.segment);
+        }
+        log.info("向量索引重建完成：{} -> {} 个节点", before, nodes.size());
+    }
+
+    private void clear() {
+        nodes.clear();
+        index.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        deleted = 0;
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不一致：期望" + dimension + "，实际" + vector.length);
+        }
+    }
+
+    private static double similarity(float[] query, float queryInvNorm, Node node) {
+        float[] vector = node.vector;
+        double dot = 0;
+        for (int i = 0; i < vector.length; i++) {
+            dot += query[i] * vector[i];
+        }
+        return dot * queryInvNorm * node.invNorm;
+    }
+
+    private static float invNorm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return sum == 0 ? 0 : (float) (1 / Math.sqrt(sum));
+    }
+
+    // ---------------- 快照 ----------------
+
+    /**
+     * 快照格式：
+     * [MAGIC][VERSION][维度][节点数][入口节点][最高层]
+     * 每个节点：[ID][已删除][层数][向量][是否有片段][文本][元数据]，[每层邻居数][邻居下标...]
+     */
+    private void write(Snapshot snapshot) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 不关闭包装流，刷盘后由外层关闭通道
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.dimension());
+            out.writeInt(snapshot.nodes().size());
+            out.writeInt(snapshot.entryPoint());
+            out.writeInt(snapshot.maxLevel());
+            for (Node node : snapshot.nodes()) {
+                out.writeUTF(node.id);
+                out.writeBoolean(node.deleted);
+                out.writeByte(node.level);
+                for (float v : node.vector) {
+                    out.writeFloat(v);
+                }
+                out.writeBoolean(node.segment != null);
+                if (node.segment != null) {
+                    writeString(out, node.segment.text());
+                    writeMetadata(out, node.segment.metadata());
+                }
+                for (int level = 0; level <= node.level; level++) {
+                    out.writeShort(node.count[level]);
+                    for (int i = 0; i < node.count[level]; i++) {
+                        out.writeInt(node.links[level][i]);
+                    }
+                }
+            }
+            out.flush();
+            // 先刷盘再替换，崩溃后不会留下截断的快照
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("向量快照已写入：{}，向量数：{}", file, snapshot.size());
+    }
+
+    private void load() throws IOException {
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不是向量快照文件或版本不支持：" + file);
+            }
+            dimension = in.readInt();
+            int count = in.readInt();
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            for (int n = 0; n < count; n++) {
+                String id = in.readUTF();
+                boolean removed = in.readBoolean();
+                int level = in.readByte();
+                float[] vector = new float[dimension];
+                for (int i = 0; i < dimension; i++) {
+                    vector[i] = in.readFloat();
+                }
+                TextSegment segment = in.readBoolean() ? TextSegment.from(readString(in), readMetadata(in)) : null;
+                Node node = new Node(id, vector, segment, level, m);
+                for (int l = 0; l <= level; l++) {
+                    int links = in.readShort();
+                    for (int i = 0; i < links; i++) {
+                        node.connect(l, in.readInt());
+                    }
+                }
+                node.deleted = removed;
+                nodes.add(node);
+                if (removed) {
+                    deleted++;
+                } else {
+                    index.put(id, n);
+                }
+            }
+        }
+        // 邻居和入口节点下标越界说明快照损坏，加载后检索会出错
+        int count = nodes.size();
+        if (count > 0 && (entryPoint < 0 || entryPoint >= count || maxLevel != nodes.get(entryPoint).level)) {
+            throw new IOException("向量快照入口节点无效：" + file);
+        }
+        for (Node node : nodes) {
+            for (int l = 0; l <= node.level; l++) {
+                for (int i = 0; i < node.count[l]; i++) {
+                    int target = node.links[l][i];
+                    if (target < 0 || target >= count || nodes.get(target).level < l) {
+                        throw new IOException("向量快照邻居下标无效：" + file);
+                    }
+                }
+            }
+        }
+        log.info("向量快照加载完成：{}，向量数：{}，耗时：{}ms", file, index.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 快照无法加载：记录错误，把文件改名留存（便于排查），从空索引开始，由导入流程重新写入
+     */
+    private void discardCorruptSnapshot(Exception e) {
+        clear();
+        dimension = -1;
+        Path aside = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+        try {
+            Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+            log.error("向量快照加载失败，已改名为{}，从空索引开始：{}", aside, file, e);
+        } catch (IOException moveError) {
+            e.addSuppressed(moveError);
+            log.error("向量快照加载失败且无法改名，从空索引开始：{}", file, e);
+        }
+    }
+
+    // writeUTF限制64KB，文本片段用长度+UTF-8字节
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMetadata(DataOutputStream out, Metadata metadata) throws IOException {
+        Map<String, Object> map = metadata.toMap();
+        out.writeShort(map.size());
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer v) {
+                out.writeByte(1);
+                out.writeInt(v);
+            } else if (value instanceof Long v) {
+                out.writeByte(2);
+                out.writeLong(v);
+            } else if (value instanceof Float v) {
+                out.writeByte(3);
+                out.writeFloat(v);
+            } else if (value instanceof Double v) {
+                out.writeByte(4);
+                out.writeDouble(v);
+            } else if (value instanceof UUID v) {
+                out.writeByte(5);
+                out.writeUTF(v.toString());
+            } else {
+                out.writeByte(0);
+                writeString(out, String.valueOf(value));
+            }
+        }
+    }
+
+    private static Metadata readMetadata(DataInputStream in) throws IOException {
+        int size = in.readShort();
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            byte type = in.readByte();
+            Object value = switch (type) {
+                case 1 -> in.readInt();
+                case 2 -> in.readLong();
+                case 3 -> in.readFloat();
+                case 4 -> in.readDouble();
+                case 5 -> UUID.fromString(in.readUTF());
+                default -> readString(in);
+            };
+            map.put(key, value);
+        }
+        return Metadata.from(map);
+    }
+
+    /**
+     * 图节点：向量、文本片段和每层的邻居
+     */
+    private static final class Node {
+
+        final String id;
+
+        final float[] vector;
+
+        final float invNorm;
+
+        final TextSegment segment;
+
+        final int level;
+
+        // 每层的邻居下标，第0层容量2m，其余m
+        final int[][] links;
+
+        final int[] count;
+
+        boolean deleted;
+
+        Node(String id, float[] vector, TextSegment segment, int level, int m) {
+            this.id = id;
+            this.vector = vector;
+            this.invNorm = invNorm(vector);
+            this.segment = segment;
+            this.level = level;
+            this.links = new int[level + 1][];
+            this.count = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? 2 * m : m];
+            }
+        }
+
+        private Node(Node source) {
+            this.id = source.id;
+            this.vector = source.vector;
+            this.invNorm = source.invNorm;
+            this.segment = source.segment;
+            this.level = source.level;
+            this.links = new int[level + 1][];
+            this.count = source.count.clone();
+            for (int l = 0; l <= level; l++) {
+                links[l] = Arrays.copyOf(source.links[l], count[l]);
+            }
+            this.deleted = source.deleted;
+        }
+
+        // 快照用的副本：向量和文本片段不可变，直接共享；邻居和删除标记会变化，复制一份
+        Node copy() {
+            return new Node(this);
+        }
+
+        // 快照的m大于当前配置时邻居数可能超过容量，按需扩容
+        void connect(int level, int target) {
+            if (count[level] == links[level].length) {
+                links[level] = Arrays.copyOf(links[level], count[level] * 2);
+            }
+            links[level][count[level]++] = target;
+        }
+    }
+
+    private record Candidate(Node node, int position, double similarity) {
+    }
+
+    /**
+     * 锁内复制的快照内容
+     * @param size 未删除的向量数（日志用）
+     */
+    private record Snapshot(int dimension, int entryPoint, int maxLevel, List<Node> nodes, int size) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.xs.langchain4j_springboot.stream;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.service.TokenStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 流式模型输出 -> Flux 的桥接
+ * 功能：
+ * 1. 有界缓冲：客户端读得慢时最多缓存 buffer-size 个片段，超出按 overflow 策略处理
+ *    - ERROR（默认）：中止上游，已缓冲的片段发完后以错误结束，残缺的回答不会被当作正常完成
+ *    - DROP_LATEST / DROP_OLDEST：丢弃最新/最旧的片段，流继续
+ * 2. 取消传播：客户端断开或缓冲溢出后，上游再推送片段时抛出CancellationException，
+ *    模型SDK收到回调异常后结束订阅并关闭HTTP流，不再继续消耗token
+ * 3. 统计：开始/完成/失败的流数，客户端中止的流数，溢出的流数与丢弃的片段数
+ *
+ * 设计特点：
+ * - 流式回调没有取消接口，只能在下一次回调时中止上游，所以中止前最多还会收到一个片段
+ * - 已中止的流上游再报错不计入失败
+ */
+@Component
+public class TokenStreamBridge {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenStreamBridge.class);
+
+    private final int bufferSize;
+
+    private final BufferOverflowStrategy overflowStrategy;
+
+    private final AtomicLong started = new AtomicLong();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong aborted = new AtomicLong();
+
+    private final AtomicLong overflowed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public TokenStreamBridge(@Value("${app.streaming.buffer-size:256}") int bufferSize,
+                             @Value("${app.streaming.overflow:ERROR}") BufferOverflowStrategy overflowStrategy) {
+        this.bufferSize = bufferSize;
+        this.overflowStrategy = overflowStrategy;
+    }
+
+    /**
+     * 统计快照
+     * @param started 开始的流数
+     * @param completed 正常结束的流数
+     * @param failed 上游报错的流数
+     * @param aborted 客户端断开或溢出后中止的流数
+     * @param overflowed 缓冲溢出的流数（ERROR策略）
+     * @param dropped 丢弃的片段数
+     */
+    public record Stats(long started, long completed, long failed, long aborted, long overflowed, long dropped) {
+    }
+
+    /**
+     * 桥接AI服务的TokenStream
+     * @param name 流名称（日志用）
+     * @param tokenStream 尚未start的TokenStream，订阅时才开始请求模型
+     */
+    public Flux<String> from(String name, TokenStream tokenStream) {
+        return from(name, handler -> tokenStream
+                .onPartialResponse(handler::onPartialResponse)
+                .onCompleteResponse(handler::onCompleteResponse)
+                .onError(handler::onError)
+                .start());
+    }
+
+    /**
+     * 桥接流式模型的回调
+     * @param name 流名称（日志用）
+     * @param request 用给定回调发起模型请求，订阅时才调用
+     */
+    public Flux<String> from(String name, Consumer<StreamingChatResponseHandler> request) {
+        Flux<String> flux = Flux.create(sink -> {
+            started.incrementAndGet();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onCancel(() -> {
+                if (cancelled.compareAndSet(false, true)) {
+                    aborted.incrementAndGet();
+                    log.debug("流式输出已取消，等待中止上游：{}", name);
+                }
+            });
+            request.accept(new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    if (cancelled.get()) {
+                        // 抛给模型SDK，中止上游HTTP流
+                        throw new CancellationException("客户端已断开：" + name);
+                    }
+                    sink.next(partialResponse);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    if (!cancelled.get()) {
+                        completed.incrementAndGet();
+                        sink.complete();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    failed.incrementAndGet();
+                    log.warn("流式输出失败：{}", name, error);
+                    sink.error(error);
+                }
+            });
+        }, FluxSink.OverflowStrategy.BUFFER);
+        return flux
+                .onBackpressureBuffer(bufferSize, token -> dropped.incrementAndGet(), overflowStrategy)
+                .doOnError(error -> {
+                    if (Exceptions.isOverflow(error)) {
+                        overflowed.incrementAndGet();
+                        log.warn("流式输出缓冲溢出（{}个片段），已中止：{}", bufferSize, name);
+                    }
+                });
+    }
+
+    public Stats stats() {
+        return new Stats(started.get(), completed.get(), failed.get(), aborted.get(), overflowed.get(), dropped.get());
+    }
+}
@@ -0,0 +1,147 @@
+package com.xs.langchain4j_springboot.config;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对话记忆日志：重启恢复、删除记录、宕机留下的半条/校验失败记录、压缩换代
+ */
+public class PersistentChatMemoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecoverUpdatesAndDeletes() {
+        Path file = dir.resolve("chat-memory.log");
+        try (PersistentChatMemoryStore store = open(file)) {
+            store.updateMessages("a", messages("a", 1));
+            store.updateMessages("b", messages("b", 1));
+            store.updateMessages("a", messages("a", 2));
+            store.deleteMessages("b");
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 2), store.getMessages("a"));
+            assertTrue(store.getMessages("b").isEmpty());
+        }
+    }
+
+    @Test
+    void testCorruptedTailIsTruncated() throws IOException {
+        Path file = dir.resolve("chat-memory.log");
+        try (PersistentChatMemoryStore store = open(file)) {
+            store.updateMessages("a", messages("a", 1));
+            store.updateMessages("b", messages("b", 1));
+        }
+        int last = recordOffsets(file).get(1);
+        // 最后一条记录的内容被改坏（CRC校验失败）
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'x'}), last + 20);
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 1), store.getMessages("a"));
+            assertTrue(store.getMessages("b").isEmpty());
+            // 截断后从损坏处继续追加
+            store.updateMessages("c", messages("c", 1));
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 1), store.getMessages("a"));
+            assertEquals(messages("c", 1), store.getMessages("c"));
+            assertTrue(store.getMessages("b").isEmpty());
+        }
+    }
+
+    @Test
+    void testTornRecordIsIgnored() throws IOException {
+        Path file = dir.resolve("chat-memory.log");
+        try (PersistentChatMemoryStore store = open(file)) {
+            store.updateMessages("a", messages("a", 1));
+        }
+        List<Integer> offsets = recordOffsets(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, offsets.get(0));
+            int end = offsets.get(0) + 4 + length.flip().getInt();
+            // 只写了长度就宕机：内容全为0
+            channel.write(ByteBuffer.allocate(4).putInt(0, 200), end);
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 1), store.getMessages("a"));
+            store.updateMessages("b", messages("b", 1));
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 1), store.getMessages("a"));
+            assertEquals(messages("b", 1), store.getMessages("b"));
+        }
+    }
+
+    @Test
+    void testCompactionSwitchesToNextGeneration() throws IOException {
+        Path file = dir.resolve("chat-memory.log");
+        try (PersistentChatMemoryStore store = open(file)) {
+            for (int turn = 1; turn <= 50; turn++) {
+                store.updateMessages("a", messages("a", turn));
+                store.updateMessages("b", messages("b", turn));
+            }
+            store.deleteMessages("b");
+            store.compact();
+            Path compacted = store.currentFile();
+            assertNotEquals(file, compacted);
+            assertFalse(Files.exists(file));
+            assertEquals(messages("a", 50), store.getMessages("a"));
+            assertTrue(store.getMessages("b").isEmpty());
+            // 压缩后只剩一条记录
+            assertEquals(1, recordOffsets(compacted).size());
+            store.updateMessages("c", messages("c", 1));
+        }
+        try (PersistentChatMemoryStore store = open(file)) {
+            assertEquals(messages("a", 50), store.getMessages("a"));
+            assertEquals(messages("c", 1), store.getMessages("c"));
+            assertTrue(store.getMessages("b").isEmpty());
+            store.compact();
+            store.compact();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of("chat-memory.log.3"), files.map(p -> p.getFileName().toString()).toList());
+        }
+    }
+
+    private static PersistentChatMemoryStore open(Path file) {
+        return new PersistentChatMemoryStore(file, PersistentChatMemoryStore.FsyncPolicy.NEVER,
+                Duration.ofSeconds(1), Duration.ofHours(1));
+    }
+
+    private static List<ChatMessage> messages(String session, int turn) {
+        return List.of(UserMessage.from(session + "的问题" + turn), AiMessage.from(session + "的回答" + turn));
+    }
+
+    /**
+     * 按记录格式顺序读出各条记录的偏移量（长度为0处结束）
+     */
+    private static List<Integer> recordOffsets(Path file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Integer> offsets = new ArrayList<>();
+        int position = 0;
+        while (position + 4 <= data.limit() && data.getInt(position) > 0) {
+            offsets.add(position);
+            position += 4 + data.getInt(position);
+        }
+        return offsets;
+    }
+}
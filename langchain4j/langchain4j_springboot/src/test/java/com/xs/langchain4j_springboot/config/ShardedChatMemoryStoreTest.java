@@ -0,0 +1,167 @@
+package com.xs.langchain4j_springboot.config;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片对话记忆并发测试
+ * 每个线程对应一个会话，连续写入用户消息和AI消息，验证会话隔离和淘汰；
+ * 另外验证淘汰的会话同时从AI服务缓存的ChatMemory中释放；
+ * 并发度扩展（benchmark）只输出各并发度下存储本身的轮次/秒，需 mvn test -Pbenchmark 运行
+ */
+public class ShardedChatMemoryStoreTest {
+
+    private static final int TURNS = 50;
+
+    // 扩展性测试每个会话的轮数（不模拟模型耗时，只测存储的锁竞争）
+    private static final int BENCHMARK_TURNS = 20_000;
+
+    @Test
+    void testIsolation() throws Exception {
+        ShardedChatMemoryStore store = new ShardedChatMemoryStore(16, 1000);
+        run(store, 8, TURNS);
+        for (int session = 0; session < 8; session++) {
+            List<ChatMessage> messages = store.getMessages("session-" + session);
+            assertEquals(10, messages.size()); // 窗口最多10条
+            for (ChatMessage message : messages) {
+                String text = message instanceof UserMessage user ? user.singleText() : ((AiMessage) message).text();
+                assertTrue(text.startsWith("session-" + session + ":"), text);
+            }
+        }
+        assertEquals(8, store.size());
+    }
+
+    @Test
+    void testEviction() {
+        ShardedChatMemoryStore store = new ShardedChatMemoryStore(4, 40);
+        for (int i = 0; i < 1000; i++) {
+            store.updateMessages("session-" + i, List.of(UserMessage.from("问题" + i)));
+        }
+        assertTrue(store.size() <= 40, "会话数：" + store.size());
+        // 最近写入的会话仍在
+        assertEquals(1, store.getMessages("session-999").size());
+        store.deleteMessages("session-999");
+        assertTrue(store.getMessages("session-999").isEmpty());
+    }
+
+    @Test
+    void testEvictionNotifiesListener() {
+        ShardedChatMemoryStore store = new ShardedChatMemoryStore(1, 3);
+        List<Object> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+        for (int i = 0; i < 5; i++) {
+            store.updateMessages("session-" + i, List.of(UserMessage.from("问题" + i)));
+        }
+        assertEquals(List.of("session-0", "session-1"), evicted);
+        // 读取刷新访问顺序：session-2变为最近访问，下一次淘汰session-3
+        store.getMessages("session-2");
+        store.updateMessages("session-5", List.of(UserMessage.from("问题5")));
+        assertEquals("session-3", evicted.get(2));
+    }
+
+    // 与AiConfig相同的装配：存储淘汰会话后，AI服务不再缓存该会话的ChatMemory
+    @Test
+    void testEvictionReleasesAiServiceChatMemory() {
+        ShardedChatMemoryStore store = new ShardedChatMemoryStore(1, 3);
+        ChatLanguageModel model = new ChatLanguageModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                return ChatResponse.builder().aiMessage(AiMessage.from("好的")).build();
+            }
+        };
+        AiConfig.Assistant assistant = AiServices.builder(AiConfig.Assistant.class)
+                .chatLanguageModel(model)
+                .chatMemoryProvider(sessionId -> MessageWindowChatMemory.builder()
+                        .id(sessionId)
+                        .maxMessages(10)
+                        .chatMemoryStore(store)
+                        .build())
+                .build();
+        store.setEvictionListener(assistant::evictChatMemory);
+        for (int i = 0; i < 100; i++) {
+            assistant.chat("session-" + i, "你好");
+            int cached = 0;
+            for (int j = 0; j <= i; j++) {
+                if (assistant.getChatMemory("session-" + j) != null) {
+                    cached++;
+                }
+            }
+            assertTrue(cached <= 3, "缓存的会话数：" + cached);
+        }
+        assertNull(assistant.getChatMemory("session-0"));
+        assertEquals(2, assistant.getChatMemory("session-99").messages().size());
+        assertEquals(3, store.size());
+    }
+
+    // 墙钟吞吐受机器核数和调度影响，只输出不断言
+    @Test
+    @Tag("benchmark")
+    void benchmarkScaling() throws Exception {
+        run(new ShardedChatMemoryStore(16, 1000), 2, BENCHMARK_TURNS); // 预热
+        double base = 0;
+        double last = 0;
+        for (int sessions : new int[]{1, 2, 4, 8}) {
+            double turnsPerSecond = run(new ShardedChatMemoryStore(16, 1000), sessions, BENCHMARK_TURNS);
+            System.out.printf("会话数 %d：%10.1f 轮/秒%n", sessions, turnsPerSecond);
+            if (sessions == 1) {
+                base = turnsPerSecond;
+            }
+            last = turnsPerSecond;
+        }
+        System.out.printf("8会话加速比：%.2fx（可用核数：%d）%n", last / base, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 每个会话一个线程，同时开始，返回总吞吐（轮/秒）
+     */
+    private static double run(ShardedChatMemoryStore store, int sessions, int turns) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                String sessionId = "session-" + i;
+                futures.add(pool.submit(() -> {
+                    // 与AiConfig中的chatMemoryProvider相同的构造方式
+                    ChatMemory memory = MessageWindowChatMemory.builder()
+                            .id(sessionId)
+                            .maxMessages(10)
+                            .chatMemoryStore(store)
+                            .build();
+                    start.await();
+                    for (int turn = 0; turn < turns; turn++) {
+                        memory.add(UserMessage.from(sessionId + ":问题" + turn));
+                        memory.add(AiMessage.from(sessionId + ":回答" + turn));
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (double) sessions * turns / ((System.nanoTime() - begin) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.xs.langchain4j_springboot.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HNSW向量存储：与暴力检索对比召回率、快照往返（元数据类型、已删除节点）、按ID覆盖、删除过半后重建、
+ * 快照损坏时从空索引启动
+ */
+public class HnswEmbeddingStoreTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path dir;
+
+    // 随机向量，top10召回率与线性扫描对比
+    @Test
+    void testRecallAgainstBruteForce() {
+        Random random = new Random(42);
+        List<float[]> vectors = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            vectors.add(randomVector(random));
+            ids.add("v" + i);
+        }
+        try (HnswEmbeddingStore store = store()) {
+            store.addAll(ids, vectors.stream().map(Embedding::from).toList(), null);
+            int hits = 0;
+            int queries = 50;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector(random);
+                Set<String> expected = new HashSet<>(bruteForce(query, ids, vectors, 10));
+                for (EmbeddingMatch<TextSegment> match : search(store, query, 10)) {
+                    if (expected.contains(match.embeddingId())) {
+                        hits++;
+                    }
+                }
+            }
+            double recall = hits / (queries * 10.0);
+            assertTrue(recall >= 0.9, "召回率：" + recall);
+        }
+    }
+
+    @Test
+    void testSnapshotRoundTrip() {
+        Random random = new Random(7);
+        Path file = dir.resolve("embeddings.bin");
+        Metadata metadata = new Metadata()
+                .put("file_name", "ragKnowledge.txt")
+                .put("index", 3)
+                .put("offset", 1L << 40)
+                .put("weight", 0.5f)
+                .put("score", 0.25d)
+                .put("uuid", UUID.fromString("00000000-0000-0000-0000-000000000001"));
+        List<float[]> queries = List.of(randomVector(random), randomVector(random), randomVector(random));
+        List<List<String>> before = new ArrayList<>();
+        try (HnswEmbeddingStore store = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            for (int i = 0; i < 100; i++) {
+                store.addAll(List.of("v" + i), List.of(Embedding.from(randomVector(random))),
+                        List.of(TextSegment.from("片段" + i, metadata.copy())));
+            }
+            // 少量删除，不触发重建，已删除节点随快照保存
+            store.removeAll(List.of("v1", "v2", "v3"));
+            for (float[] query : queries) {
+                before.add(ids(search(store, query, 5)));
+            }
+            store.snapshot();
+        }
+        try (HnswEmbeddingStore loaded = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            assertEquals(97, loaded.size());
+            assertFalse(loaded.contains("v1"));
+            assertTrue(loaded.contains("v4"));
+            for (int i = 0; i < queries.size(); i++) {
+                assertEquals(before.get(i), ids(search(loaded, queries.get(i), 5)));
+            }
+            TextSegment segment = search(loaded, queries.get(0), 1).get(0).embedded();
+            assertEquals(metadata, segment.metadata());
+            assertInstanceOf(Integer.class, segment.metadata().toMap().get("index"));
+            assertInstanceOf(Long.class, segment.metadata().toMap().get("offset"));
+            assertInstanceOf(Float.class, segment.metadata().toMap().get("weight"));
+            assertInstanceOf(Double.class, segment.metadata().toMap().get("score"));
+            assertInstanceOf(UUID.class, segment.metadata().toMap().get("uuid"));
+            assertEquals(97, loaded.ids(metadataKey("file_name").isEqualTo("ragKnowledge.txt")).size());
+        }
+    }
+
+    @Test
+    void testAddWithExistingIdOverwrites() {
+        Random random = new Random(3);
+        float[] first = randomVector(random);
+        float[] second = randomVector(random);
+        try (HnswEmbeddingStore store = store()) {
+            store.addAll(List.of("a"), List.of(Embedding.from(first)), List.of(TextSegment.from("旧内容")));
+            store.addAll(List.of("a"), List.of(Embedding.from(second)), List.of(TextSegment.from("新内容")));
+            assertEquals(1, store.size());
+            List<EmbeddingMatch<TextSegment>> matches = search(store, first, 10);
+            assertEquals(1, matches.size());
+            assertEquals("新内容", matches.get(0).embedded().text());
+            assertArrayEquals(second, matches.get(0).embedding().vector());
+        }
+    }
+
+    // 删除超过一半后写快照会重建图：剩余向量仍能准确检索，重新加载后不含已删除节点
+    @Test
+    void testRebuildAfterMostNodesDeleted() {
+        Random random = new Random(11);
+        Path file = dir.resolve("rebuild.bin");
+        List<float[]> vectors = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            vectors.add(randomVector(random));
+            ids.add("v" + i);
+        }
+        List<String> live = ids.subList(200, 300);
+        List<float[]> liveVectors = vectors.subList(200, 300);
+        try (HnswEmbeddingStore store = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            store.addAll(ids, vectors.stream().map(Embedding::from).toList(), null);
+            store.removeAll(ids.subList(0, 200));
+            store.snapshot();
+            for (int i = 0; i < 20; i++) {
+                float[] query = liveVectors.get(i);
+                List<String> found = ids(search(store, query, 5));
+                assertEquals(live.get(i), found.get(0));
+                assertTrue(live.containsAll(found), found.toString());
+            }
+        }
+        try (HnswEmbeddingStore loaded = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            assertEquals(100, loaded.size());
+            float[] query = randomVector(random);
+            assertEquals(bruteForce(query, live, liveVectors, 1), ids(search(loaded, query, 1)));
+        }
+    }
+
+    // 截断或格式错误的快照：不抛异常，文件改名留存，从空索引开始，之后正常写入新快照
+    @Test
+    void testCorruptSnapshotStartsEmpty() throws IOException {
+        Random random = new Random(5);
+        Path file = dir.resolve("corrupt.bin");
+        try (HnswEmbeddingStore store = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            for (int i = 0; i < 50; i++) {
+                store.addAll(List.of("v" + i), List.of(Embedding.from(randomVector(random))),
+                        List.of(TextSegment.from("片段" + i)));
+            }
+            store.snapshot();
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size / 2);
+        }
+        assertStartsEmpty(file, size / 2, random);
+
+        byte[] garbage = new byte[256];
+        random.nextBytes(garbage);
+        Files.write(file, garbage);
+        assertStartsEmpty(file, garbage.length, random);
+    }
+
+    private void assertStartsEmpty(Path file, long corruptSize, Random random) throws IOException {
+        try (HnswEmbeddingStore store = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            assertEquals(0, store.size());
+            assertFalse(Files.exists(file));
+            try (var files = Files.list(dir)) {
+                assertTrue(files.anyMatch(f -> f.getFileName().toString().startsWith("corrupt.bin.corrupt-")
+                        && size(f) == corruptSize));
+            }
+            store.addAll(List.of("new"), List.of(Embedding.from(randomVector(random))), List.of(TextSegment.from("新片段")));
+            store.snapshot();
+        }
+        try (HnswEmbeddingStore loaded = new HnswEmbeddingStore(file, 8, 64, 64, Duration.ofHours(1))) {
+            assertEquals(1, loaded.size());
+            assertTrue(loaded.contains("new"));
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private HnswEmbeddingStore store() {
+        return new HnswEmbeddingStore(dir.resolve(UUID.randomUUID() + ".bin"), 16, 100, 100, Duration.ofHours(1));
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(HnswEmbeddingStore store, float[] query, int maxResults) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query))
+                .maxResults(maxResults)
+                .build()).matches();
+    }
+
+    private static List<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).toList();
+    }
+
+    // 线性扫描的余弦相似度top-k
+    private static List<String> bruteForce(float[] query, List<String> ids, List<float[]> vectors, int k) {
+        Integer[] order = new Integer[ids.size()];
+        double[] scores = new double[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            scores[i] = cosine(query, vectors.get(i));
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+        return Arrays.stream(order).limit(k).map(ids::get).toList();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double na = 0;
+        double nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,126 @@
+package com.xs.langchain4j_springboot.stream;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式输出桥接：取消传播、缓冲溢出策略、统计
+ * 用假的模型回调手动推送片段，StepVerifier按需请求模拟读得慢的客户端
+ */
+public class TokenStreamBridgeTest {
+
+    private final AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+
+    // 客户端取消后，上游下一次推送抛出CancellationException；之后的完成和报错都不计数
+    @Test
+    void testCancelAbortsUpstream() {
+        TokenStreamBridge bridge = new TokenStreamBridge(4, BufferOverflowStrategy.ERROR);
+        StepVerifier.create(bridge.from("cancel", handler::set), 1)
+                .then(() -> handler.get().onPartialResponse("你"))
+                .expectNext("你")
+                .thenCancel()
+                .verify();
+
+        assertThrows(CancellationException.class, () -> handler.get().onPartialResponse("好"));
+        handler.get().onError(new IllegalStateException("上游已关闭"));
+        handler.get().onCompleteResponse(response());
+        assertEquals(new TokenStreamBridge.Stats(1, 0, 0, 1, 0, 0), bridge.stats());
+    }
+
+    // ERROR：缓冲满后中止上游，已缓冲的片段发完后以溢出错误结束（不会正常完成）
+    @Test
+    void testErrorStrategyFailsAndAbortsOnOverflow() {
+        TokenStreamBridge bridge = new TokenStreamBridge(2, BufferOverflowStrategy.ERROR);
+        StepVerifier.create(bridge.from("error", handler::set), 0)
+                .then(() -> push("a", "b", "c"))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext("a", "b")
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify();
+
+        assertThrows(CancellationException.class, () -> handler.get().onPartialResponse("d"));
+        TokenStreamBridge.Stats stats = bridge.stats();
+        assertEquals(1, stats.started());
+        assertEquals(1, stats.overflowed());
+        assertEquals(1, stats.aborted());
+        assertEquals(0, stats.failed());
+        assertEquals(0, stats.completed());
+        assertEquals(1, stats.dropped());
+    }
+
+    // DROP_LATEST：缓冲满后丢弃新到的片段，流正常结束
+    @Test
+    void testDropLatestKeepsBufferedChunks() {
+        TokenStreamBridge bridge = new TokenStreamBridge(2, BufferOverflowStrategy.DROP_LATEST);
+        StepVerifier.create(bridge.from("drop-latest", handler::set), 0)
+                .then(() -> push("a", "b", "c", "d"))
+                .then(() -> handler.get().onCompleteResponse(response()))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext("a", "b")
+                .verifyComplete();
+
+        assertEquals(new TokenStreamBridge.Stats(1, 1, 0, 0, 0, 2), bridge.stats());
+    }
+
+    // DROP_OLDEST：缓冲满后丢弃最旧的片段，保留最近的片段
+    @Test
+    void testDropOldestKeepsRecentChunks() {
+        TokenStreamBridge bridge = new TokenStreamBridge(2, BufferOverflowStrategy.DROP_OLDEST);
+        StepVerifier.create(bridge.from("drop-oldest", handler::set), 0)
+                .then(() -> push("a", "b", "c", "d"))
+                .then(() -> handler.get().onCompleteResponse(response()))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext("c", "d")
+                .verifyComplete();
+
+        assertEquals(new TokenStreamBridge.Stats(1, 1, 0, 0, 0, 2), bridge.stats());
+    }
+
+    // 上游报错：错误传给订阅者并计入失败
+    @Test
+    void testUpstreamErrorIsCountedAsFailure() {
+        TokenStreamBridge bridge = new TokenStreamBridge(4, BufferOverflowStrategy.ERROR);
+        StepVerifier.create(bridge.from("failed", handler::set))
+                .then(() -> push("a"))
+                .expectNext("a")
+                .then(() -> handler.get().onError(new IllegalStateException("503")))
+                .expectErrorMessage("503")
+                .verify();
+
+        assertEquals(new TokenStreamBridge.Stats(1, 0, 1, 0, 0, 0), bridge.stats());
+    }
+
+    // 订阅时才发起请求
+    @Test
+    void testRequestStartsOnSubscribe() {
+        TokenStreamBridge bridge = new TokenStreamBridge(4, BufferOverflowStrategy.ERROR);
+        Flux<String> flux = bridge.from("lazy", handler::set);
+        assertNull(handler.get());
+        assertEquals(0, bridge.stats().started());
+        StepVerifier.create(flux)
+                .then(() -> handler.get().onCompleteResponse(response()))
+                .verifyComplete();
+        assertEquals(new TokenStreamBridge.Stats(1, 1, 0, 0, 0, 0), bridge.stats());
+    }
+
+    private void push(String... chunks) {
+        for (String chunk : chunks) {
+            handler.get().onPartialResponse(chunk);
+        }
+    }
+
+    private static ChatResponse response() {
+        return ChatResponse.builder().aiMessage(AiMessage.from("完成")).build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.itheima.ai.advisor;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import com.itheima.ai.metrics.MeteredToolCallingManager;
+import com.itheima.ai.model.RoutingChatModel;
+import org.springframework.ai.chat.client.advisor.api.*;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对话延迟指标Advisor
+ * 功能：按ChatClient和模型记录用户真实感受到的延迟
+ *
+ * 记录内容：
+ * 1. 首个Token耗时（从发起请求到收到第一段非空文本）
+ * 2. 相邻分片间隔
+ * 3. 流式输出速率（模型返回usage时记录tokens/秒，否则单独记录分片/秒）
+ * 4. 对话总耗时、失败次数与客户端取消次数
+ * 5. 把ChatClient名称放进工具上下文，MeteredToolCallingManager据此给工具调用耗时打client标签
+ *
+ * 使用方式：放在Advisor链最外层，使记忆加载、向量检索等前置耗时都计入首Token耗时
+ *
+ * 模型标签：响应元数据中有RoutingChatModel.ROUTED_MODEL时使用实际路由到的模型，
+ * 否则使用请求选项中的模型（失败、取消时没有响应，也使用请求选项中的模型）
+ */
+public class ChatMetricsAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final String client;
+
+    private final ChatMetrics chatMetrics;
+
+    public ChatMetricsAdvisor(String client, ChatMetrics chatMetrics) {
+        this.client = client;
+        this.chatMetrics = chatMetrics;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        String model = resolveModel(advisedRequest);
+        long start = System.nanoTime();
+        try {
+            AdvisedResponse advisedResponse = chain.nextAroundCall(withClient(advisedRequest));
+            chatMetrics.recordDuration(client, routedModel(advisedResponse.response(), model),
+                    System.nanoTime() - start);
+            return advisedResponse;
+        } catch (RuntimeException e) {
+            chatMetrics.recordError(client, model);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        String model = resolveModel(advisedRequest);
+        return Flux.defer(() -> {
+            StreamState state = new StreamState(model);
+            return chain.nextAroundStream(withClient(advisedRequest))
+                    .doOnNext(state::onResponse)
+                    .doOnComplete(state::onComplete)
+                    .doOnCancel(() -> chatMetrics.recordCancel(client, state.model))
+                    .doOnError(e -> chatMetrics.recordError(client, state.model));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // 最外层，覆盖其余所有Advisor的耗时
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * 工具上下文中加入ChatClient名称（由MeteredToolCallingManager取出并移除，不会传给工具）
+     */
+    private AdvisedRequest withClient(AdvisedRequest advisedRequest) {
+        Map<String, Object> toolContext = advisedRequest.toolContext() == null
+                ? new HashMap<>() : new HashMap<>(advisedRequest.toolContext());
+        toolContext.put(MeteredToolCallingManager.CLIENT, client);
+        return AdvisedRequest.from(advisedRequest)
+                .toolContext(toolContext)
+                .build();
+    }
+
+    /**
+     * 解析模型名称：请求级选项 > 模型默认选项
+     */
+    private static String resolveModel(AdvisedRequest advisedRequest) {
+        ChatOptions options = advisedRequest.chatOptions();
+        if (options != null && StringUtils.hasText(options.getModel())) {
+            return options.getModel();
+        }
+        ChatOptions defaultOptions = advisedRequest.chatModel().getDefaultOptions();
+        return defaultOptions != null ? defaultOptions.getModel() : null;
+    }
+
+    /**
+     * 响应中记录的实际路由模型，没有时返回请求模型
+     */
+    private static String routedModel(ChatResponse response, String requested) {
+        if (response == null || response.getMetadata() == null) {
+            return requested;
+        }
+        Object routed = response.getMetadata().get(RoutingChatModel.ROUTED_MODEL);
+        return routed != null ? routed.toString() : requested;
+    }
+
+    /**
+     * 单次流式请求的计时状态（每次订阅独立一份）
+     */
+    private class StreamState {
+
+        // 请求模型，收到响应后替换为实际路由到的模型
+        private String model;
+
+        private final long start = System.nanoTime();
+
+        private long firstTokenAt;
+
+        private long lastChunkAt;
+
+        private long chunks;
+
+        private Integer completionTokens;
+
+        StreamState(String model) {
+            this.model = model;
+        }
+
+        void onResponse(AdvisedResponse advisedResponse) {
+            ChatResponse response = advisedResponse.response();
+            if (response == null) {
+                return;
+            }
+            model = routedModel(response, model);
+            Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+            if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+                completionTokens = usage.getCompletionTokens();
+            }
+            if (response.getResult() == null || !StringUtils.hasLength(response.getResult().getOutput().getText())) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (chunks == 0) {
+                firstTokenAt = now;
+                chatMetrics.recordFirstToken(client, model, now - start);
+            } else {
+                chatMetrics.recordChunkGap(client, model, now - lastChunkAt);
+            }
+            lastChunkAt = now;
+            chunks++;
+        }
+
+        void onComplete() {
+            long now = System.nanoTime();
+            chatMetrics.recordDuration(client, model, now - start);
+            if (chunks == 0) {
+                return;
+            }
+            if (completionTokens != null) {
+                chatMetrics.recordTokenRate(client, model, completionTokens, now - firstTokenAt);
+            } else {
+                chatMetrics.recordChunkRate(client, model, chunks, now - firstTokenAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.itheima.ai.advisor;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import com.itheima.ai.rag.Bm25Index;
+import com.itheima.ai.rag.ChineseTokenizer;
+import org.springframework.ai.chat.client.advisor.api.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 混合检索Advisor（BM25 + 向量），替代QuestionAnswerAdvisor
+ * 功能：
+ * 1. 关键词快速通道：查询中含有API名称、错误码等标识符形式的精确词（见ChineseTokenizer.exactTerms），
+ *    且BM25首条结果包含全部精确词时，直接使用BM25结果，不调用向量模型
+ * 2. 其余情况：BM25与向量检索各取候选，按倒数排名融合（RRF）后取TopK
+ * 3. 把检索结果拼接进用户消息，与QuestionAnswerAdvisor的提示方式一致
+ *
+ * 使用方式：请求时通过 CHAT_ID 参数指定只检索哪个会话上传的文件；
+ * 没有会话ID元数据的旧数据通过 FILE_NAME 参数按文件名检索
+ */
+public class HybridRetrievalAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    // 请求参数：当前会话ID（检索该会话上传的文件）
+    public static final String CHAT_ID = "hybrid_chat_id";
+
+    // 请求参数：当前会话对应的文件名（仅用于旧数据）
+    public static final String FILE_NAME = "hybrid_file_name";
+
+    // 与QuestionAnswerAdvisor保持一致，方便下游读取检索到的文档
+    public static final String RETRIEVED_DOCUMENTS = "qa_retrieved_documents";
+
+    private static final String USER_TEXT_ADVISE = """
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
+    // RRF平滑常数
+    private static final int RRF_K = 60;
+
+    private final VectorStore vectorStore;
+
+    private final Bm25Index bm25Index;
+
+    private final ChatMetrics chatMetrics;
+
+    private final String client;
+
+    private final int topK;
+
+    private final double similarityThreshold;
+
+    public HybridRetrievalAdvisor(VectorStore vectorStore, Bm25Index bm25Index, ChatMetrics chatMetrics,
+                                  String client, int topK, double similarityThreshold) {
+        this.vectorStore = vectorStore;
+        this.bm25Index = bm25Index;
+        this.chatMetrics = chatMetrics;
+        this.client = client;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        return chain.nextAroundCall(before(advisedRequest));
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        // 检索是阻塞调用，切到boundedElastic执行
+        return Mono.just(advisedRequest)
+                .publishOn(Schedulers.boundedElastic())
+                .map(this::before)
+                .flatMapMany(chain::nextAroundStream);
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    private AdvisedRequest before(AdvisedRequest request) {
+        long start = System.nanoTime();
+        String query = request.userText();
+        Object chatIdParam = request.advisorParams().get(CHAT_ID);
+        Object fileNameParam = request.advisorParams().get(FILE_NAME);
+        String chatId = chatIdParam == null ? null : chatIdParam.toString();
+        String file = chatId != null || fileNameParam == null ? null : fileNameParam.toString();
+
+        // 1.BM25检索（候选数放大一倍，留给融合）
+        List<Bm25Index.Hit> keywordHits = bm25Index.search(query, chatId, file, topK * 2);
+
+        // 2.关键词快速通道
+        List<Document> documents = keywordFastPath(query, keywordHits);
+        String path = "keyword";
+        if (documents == null) {
+            // 3.向量检索 + RRF融合
+            SearchRequest.Builder searchRequest = SearchRequest.builder()
+                    .query(query)
+                    .topK(topK * 2)
+                    .similarityThreshold(similarityThreshold);
+            // 会话ID来自请求路径、文件名由上传者提供，用表达式构建器生成过滤条件，不拼接字符串，避免引号改写过滤条件
+            if (chatId != null) {
+                searchRequest.filterExpression(new FilterExpressionBuilder().eq(Bm25Index.CHAT_ID, chatId).build());
+            } else if (file != null) {
+                searchRequest.filterExpression(new FilterExpressionBuilder().eq(Bm25Index.FILE_NAME, file).build());
+            }
+            List<Document> vectorHits = vectorStore.similaritySearch(searchRequest.build());
+            documents = fuse(keywordHits.stream().map(Bm25Index.Hit::document).toList(),
+                    vectorHits == null ? List.of() : vectorHits);
+            path = "hybrid";
+        }
+        chatMetrics.recordRetrieval(client, path, System.nanoTime() - start);
+
+        // 4.拼接上下文
+        String context = documents.stream()
+                .map(Document::getText)
+                .collect(Collectors.joining(System.lineSeparator()));
+        Map<String, Object> userParams = new HashMap<>(request.userParams());
+        userParams.put("question_answer_context", context);
+        Map<String, Object> adviseContext = new HashMap<>(request.adviseContext());
+        adviseContext.put(RETRIEVED_DOCUMENTS, documents);
+
+        return AdvisedRequest.from(request)
+                .userText(query + System.lineSeparator() + USER_TEXT_ADVISE)
+                .userParams(userParams)
+                .adviseContext(adviseContext)
+                .build();
+    }
+
+    /**
+     * 精确词全部命中时直接返回BM25结果，否则返回null
+     */
+    private List<Document> keywordFastPath(String query, List<Bm25Index.Hit> keywordHits) {
+        List<String> exactTerms = ChineseTokenizer.exactTerms(query);
+        if (exactTerms.isEmpty() || keywordHits.isEmpty()
+                || !keywordHits.get(0).matchedTerms().containsAll(exactTerms)) {
+            return null;
+        }
+        return keywordHits.stream()
+                .filter(hit -> hit.matchedTerms().containsAll(exactTerms))
+                .limit(topK)
+                .map(Bm25Index.Hit::document)
+                .toList();
+    }
+
+    /**
+     * 倒数排名融合：score = Σ 1 / (k + rank)
+     */
+    private List<Document> fuse(List<Document> keywordHits, List<Document> vectorHits) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> byId = new LinkedHashMap<>();
+        for (List<Document> ranking : List.of(vectorHits, keywordHits)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                scores.merge(document.getId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+                byId.putIfAbsent(document.getId(), document);
+            }
+        }
+        return byId.values().stream()
+                .sorted(Comparator.comparingDouble((Document d) -> scores.get(d.getId())).reversed())
+                .limit(topK)
+                .toList();
+    }
+}
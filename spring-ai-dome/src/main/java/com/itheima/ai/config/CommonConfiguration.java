@@ -1,17 +1,26 @@
 package com.itheima.ai.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.ai.advisor.ChatMetricsAdvisor;
+import com.itheima.ai.advisor.HybridRetrievalAdvisor;
 import com.itheima.ai.constants.SystemConstants;
+import com.itheima.ai.metrics.ChatMetrics;
+import com.itheima.ai.metrics.MeteredToolCallingManager;
 import com.itheima.ai.model.AlibabaOpenAiChatModel;
+import com.itheima.ai.model.RoutingChatModel;
+import com.itheima.ai.prompt.SystemPrompts;
+import com.itheima.ai.rag.Bm25Index;
+import com.itheima.ai.rag.PageFingerprintIndex;
+import com.itheima.ai.repository.LazyFileChatMemory;
+import com.itheima.ai.repository.codec.ChatMemoryCodec;
 import com.itheima.ai.tools.CourseTools;
 import io.micrometer.observation.ObservationRegistry;
 import org.springframework.ai.autoconfigure.openai.OpenAiChatProperties;
 import org.springframework.ai.autoconfigure.openai.OpenAiConnectionProperties;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
 import org.springframework.ai.chat.observation.ChatModelObservationConvention;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.model.SimpleApiKey;
@@ -19,10 +28,10 @@ import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiEmbeddingModel;
 import org.springframework.ai.openai.api.OpenAiApi;
-import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.support.RetryTemplate;
@@ -32,6 +41,8 @@ import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -49,20 +60,29 @@ import java.util.*;
  * - 支持多场景对话配置（游戏/服务/PDF问答等）
  * - 集成Spring AI生态组件
  * - 支持可观测性（Observation）
+ * - 每个ChatClient挂载ChatMetricsAdvisor，按client/model记录首Token耗时等延迟指标
  */
 @Configuration
 public class CommonConfiguration {
 
     /**
-     * 内存式聊天记忆存储
-     * @return InMemoryChatMemory 实例
+     * 按会话懒加载的聊天记忆存储
+     * @param objectMapper JSON序列化
+     * @param codec 会话文件格式：binary（紧凑二进制+Zstd）或 json
+     * @param compressThreshold 超过该字节数才压缩
+     * @return LazyFileChatMemory 实例
      *
      * 作用：保存对话上下文，实现多轮对话能力
-     * 实现原理：基于ConcurrentHashMap的线程安全实现
+     * 实现原理：会话首次访问时从chat-memory目录读取，关闭时只写回修改过的会话
      */
-    @Bean
-    public ChatMemory chatMemory() {
-        return new InMemoryChatMemory();
+    @Bean(destroyMethod = "persist")
+    public ChatMemory chatMemory(ObjectMapper objectMapper,
+                                 @Value("${app.chat-memory.codec:binary}") String codec,
+                                 @Value("${app.chat-memory.compress-threshold:512}") int compressThreshold) {
+        LazyFileChatMemory chatMemory = new LazyFileChatMemory(Paths.get("chat-memory"), objectMapper,
+                ChatMemoryCodec.of(codec, objectMapper, compressThreshold));
+        chatMemory.migrate(Paths.get("chat-memory.json"));
+        return chatMemory;
     }
 
     /**
@@ -79,25 +99,62 @@ public class CommonConfiguration {
         return SimpleVectorStore.builder(embeddingModel).build();
     }
 
+    /**
+     * BM25关键词索引
+     * @return Bm25Index 实例
+     *
+     * 应用场景：
+     * - 与向量库同步写入PDF内容
+     * - 精确词（如Java API名称）检索，免去向量模型调用
+     */
+    @Bean
+    public Bm25Index bm25Index() {
+        return new Bm25Index();
+    }
+
+    /**
+     * PDF页级指纹索引
+     * @return PageFingerprintIndex 实例
+     *
+     * 应用场景：
+     * - 重新上传PDF时只向量化新增/修改的页，删除已移除的页
+     */
+    @Bean
+    public PageFingerprintIndex pageFingerprintIndex() {
+        return new PageFingerprintIndex();
+    }
+
     /**
      * 通用聊天客户端
      * @param model 阿里云OpenAI模型
      * @param chatMemory 聊天记忆
+     * @param chatMetrics 延迟指标
      * @return 配置好的ChatClient
      *
      * 默认配置：
-     * - 使用qwen-omni-turbo模型
+     * - 优先使用qwen-omni-turbo模型，慢或出错时由RoutingChatModel切换到qwen-plus
+     *   （带图片/音频附件的请求只会路由到qwen-omni-turbo）
      * - 设定AI人格为"小团团"
      * - 启用日志记录和记忆功能
      */
     @Bean
-    public ChatClient chatClient(AlibabaOpenAiChatModel model, ChatMemory chatMemory) {
+    public ChatClient chatClient(AlibabaOpenAiChatModel model, ChatMemory chatMemory, ChatMetrics chatMetrics) {
 //        String systemMsg = String.format("你是一个热心、可爱的智能助手，你的名字叫小团团，请以小团团的身份和语气回答问题,今天的日期是%s。", LocalDate.now());
+        RoutingChatModel routingChatModel = new RoutingChatModel(
+                model,
+                List.of(
+                        new RoutingChatModel.Route("qwen-omni-turbo", true, true), // 多模态，仅支持流式
+                        new RoutingChatModel.Route("qwen-plus", false, false)
+                ),
+                Duration.ofSeconds(10), // 首个分片超时，超时则切换模型
+                chatMetrics
+        );
         return ChatClient
-                .builder(model)
+                .builder(routingChatModel)
                 .defaultOptions(ChatOptions.builder().model("qwen-omni-turbo").build())
-                .defaultSystem("你是一个热心、可爱的智能助手，你的名字叫小团团，请以小团团的身份和语气回答问题,今天的日期是：{current_date}。")
+                .defaultSystem(SystemConstants.CHAT_SYSTEM_PROMPT) // 请求时由ChatController传入渲染好的SystemPrompts.chat()
                 .defaultAdvisors(
+                        new ChatMetricsAdvisor("chat", chatMetrics), // 延迟指标
                         new SimpleLoggerAdvisor(),  // 日志记录
                         new MessageChatMemoryAdvisor(chatMemory) // 记忆功能
                 )
@@ -108,17 +165,19 @@ public class CommonConfiguration {
      * 游戏场景聊天客户端
      * @param model OpenAI模型
      * @param chatMemory 聊天记忆
+     * @param chatMetrics 延迟指标
      * @return 游戏专用ChatClient
      *
      * 特点：
      * - 使用预定义的游戏系统提示词
      */
     @Bean
-    public ChatClient gameChatClient(OpenAiChatModel model, ChatMemory chatMemory) {
+    public ChatClient gameChatClient(OpenAiChatModel model, ChatMemory chatMemory, ChatMetrics chatMetrics) {
         return ChatClient
                 .builder(model)
-                .defaultSystem(SystemConstants.GAME_SYSTEM_PROMPT)
+                .defaultSystem(SystemPrompts.GAME.render())
                 .defaultAdvisors(
+                        new ChatMetricsAdvisor("game", chatMetrics),
                         new SimpleLoggerAdvisor(),
                         new MessageChatMemoryAdvisor(chatMemory)
                 )
@@ -130,17 +189,20 @@ public class CommonConfiguration {
      * @param model 阿里云OpenAI模型
      * @param chatMemory 聊天记忆
      * @param courseTools 课程查询工具
+     * @param chatMetrics 延迟指标
      * @return 客服专用ChatClient
      *
      * 扩展能力：
      * - 集成课程查询工具（ToolCalling）
      */
     @Bean
-    public ChatClient serviceChatClient(AlibabaOpenAiChatModel model, ChatMemory chatMemory, CourseTools courseTools) {
+    public ChatClient serviceChatClient(AlibabaOpenAiChatModel model, ChatMemory chatMemory, CourseTools courseTools,
+                                        ChatMetrics chatMetrics) {
         return ChatClient
                 .builder(model)
-                .defaultSystem(SystemConstants.SERVICE_SYSTEM_PROMPT)
+                .defaultSystem(SystemPrompts.SERVICE.render())
                 .defaultAdvisors(
+                        new ChatMetricsAdvisor("service", chatMetrics),
                         new SimpleLoggerAdvisor(),
                         new MessageChatMemoryAdvisor(chatMemory)
                 )
@@ -153,25 +215,31 @@ public class CommonConfiguration {
      * @param model OpenAI模型
      * @param chatMemory 聊天记忆
      * @param vectorStore 向量存储
+     * @param bm25Index BM25关键词索引
+     * @param chatMetrics 延迟指标
      * @return PDF专用ChatClient
      *
      * 核心机制：
-     * - 基于向量相似度检索（相似度阈值0.6，返回Top2结果）
+     * - BM25 + 向量混合检索，RRF融合（向量相似度阈值0.6，返回Top2结果）
+     * - 精确词全部命中时走关键词快速通道，不调用向量模型
      */
     @Bean
-    public ChatClient pdfChatClient(OpenAiChatModel model, ChatMemory chatMemory, VectorStore vectorStore) {
+    public ChatClient pdfChatClient(OpenAiChatModel model, ChatMemory chatMemory, VectorStore vectorStore,
+                                    Bm25Index bm25Index, ChatMetrics chatMetrics) {
         return ChatClient
                 .builder(model)
                 .defaultSystem("请根据上下文回答问题，遇到上下文没有的问题，不要随意编造。")
                 .defaultAdvisors(
+                        new ChatMetricsAdvisor("pdf", chatMetrics),
                         new SimpleLoggerAdvisor(),
                         new MessageChatMemoryAdvisor(chatMemory),
-                        new QuestionAnswerAdvisor(  // 向量检索增强
+                        new HybridRetrievalAdvisor(  // 混合检索增强
                                 vectorStore,
-                                SearchRequest.builder()
-                                        .similarityThreshold(0.6)  // 相似度阈值(大于才符合)
-                                        .topK(2)  // 返回结果数
-                                        .build()
+                                bm25Index,
+                                chatMetrics,
+                                "pdf",
+                                2,    // 返回结果数
+                                0.6   // 向量相似度阈值(大于才符合)
                         )
                 )
                 .build();
@@ -185,6 +253,7 @@ public class CommonConfiguration {
      * 1. 支持多级参数继承（chatProperties > commonProperties）
      * 2. 自动配置HTTP客户端（RestClient/WebClient）
      * 3. 集成可观测性体系
+     * 4. 工具调用经MeteredToolCallingManager计时
      */
     @Bean
     public AlibabaOpenAiChatModel alibabaOpenAiChatModel(
@@ -196,7 +265,8 @@ public class CommonConfiguration {
             RetryTemplate retryTemplate,
             ResponseErrorHandler responseErrorHandler,
             ObjectProvider<ObservationRegistry> observationRegistry,
-            ObjectProvider<ChatModelObservationConvention> observationConvention) {
+            ObjectProvider<ChatModelObservationConvention> observationConvention,
+            ChatMetrics chatMetrics) {
 
         // 参数优先级处理
         String baseUrl = StringUtils.hasText(chatProperties.getBaseUrl())
@@ -235,7 +305,7 @@ public class CommonConfiguration {
         AlibabaOpenAiChatModel chatModel = AlibabaOpenAiChatModel.builder()
                 .openAiApi(openAiApi)
                 .defaultOptions(chatProperties.getOptions())
-                .toolCallingManager(toolCallingManager)
+                .toolCallingManager(new MeteredToolCallingManager(toolCallingManager, chatMetrics))
                 .retryTemplate(retryTemplate)
                 .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
                 .build();
@@ -13,6 +13,6 @@ public class MvcConfiguration implements WebMvcConfigurer {
                 .allowedOrigins("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders("Content-Disposition");
+                .exposedHeaders("Content-Disposition", "Content-Range", "Accept-Ranges");
     }
 }
@@ -1,17 +1,21 @@
 package com.itheima.ai.controller;
 
+import com.itheima.ai.prompt.SystemPrompts;
 import com.itheima.ai.repository.ChatHistoryRepository;
+import com.itheima.ai.stream.StreamingResponder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.model.Media;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.MimeType;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
@@ -26,11 +30,29 @@ public class ChatController {
 
     private final ChatHistoryRepository chatHistoryRepository;
 
+    private final StreamingResponder streamingResponder;
+
     @RequestMapping(value = "/chat", produces = "text/html;charset=utf-8")
     public Flux<String> chat(
             @RequestParam("prompt") String prompt,
             @RequestParam("chatId") String chatId,
             @RequestParam(value = "files", required = false) List<MultipartFile> files) {
+        return streamingResponder.text("chat", content(prompt, chatId, files));
+    }
+
+    /**
+     * SSE模式，支持Last-Event-ID断线续传
+     */
+    @RequestMapping(value = "/chat/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatSse(
+            @RequestParam("prompt") String prompt,
+            @RequestParam("chatId") String chatId,
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamingResponder.sse("chat", Flux.defer(() -> content(prompt, chatId, files)), lastEventId);
+    }
+
+    private Flux<String> content(String prompt, String chatId, List<MultipartFile> files) {
         // 1.保存会话id
         chatHistoryRepository.save("chat", chatId);
         // 2.请求模型
@@ -55,6 +77,7 @@ public class ChatController {
                 .toList();
         // 2.请求模型
         return chatClient.prompt()
+                .system(SystemPrompts.chat())
                 .user(p -> p.text(prompt).media(medias.toArray(Media[]::new)))
                 .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, chatId))
                 .stream()
@@ -63,7 +86,7 @@ public class ChatController {
 
     private Flux<String> textChat(String prompt, String chatId) {
         return chatClient.prompt()
-                .system(p -> p.param("current_date", LocalDate.now()))
+                .system(SystemPrompts.chat()) // 预编译模板，当天内直接命中缓存
                 .user(prompt)
                 .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, chatId))
                 .stream()
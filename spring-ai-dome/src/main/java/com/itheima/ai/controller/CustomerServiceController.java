@@ -1,8 +1,12 @@
 package com.itheima.ai.controller;
 
 import com.itheima.ai.repository.ChatHistoryRepository;
+import com.itheima.ai.stream.StreamingResponder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
@@ -18,8 +22,23 @@ public class CustomerServiceController {
 
     private final ChatHistoryRepository chatHistoryRepository;
 
+    private final StreamingResponder streamingResponder;
+
     @RequestMapping(value = "/service", produces = "text/html;charset=utf-8")
     public Flux<String> service(String prompt, String chatId) {
+        return streamingResponder.text("service", content(prompt, chatId));
+    }
+
+    /**
+     * SSE模式，支持Last-Event-ID断线续传
+     */
+    @RequestMapping(value = "/service/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> serviceSse(String prompt, String chatId,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamingResponder.sse("service", Flux.defer(() -> content(prompt, chatId)), lastEventId);
+    }
+
+    private Flux<String> content(String prompt, String chatId) {
         // 1.保存会话id
         chatHistoryRepository.save("service", chatId);
         // 2.请求模型
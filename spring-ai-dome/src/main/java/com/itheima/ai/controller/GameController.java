@@ -1,8 +1,11 @@
 package com.itheima.ai.controller;
 
-import com.itheima.ai.repository.ChatHistoryRepository;
+import com.itheima.ai.stream.StreamingResponder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
@@ -16,8 +19,23 @@ public class GameController {
 
     private final ChatClient gameChatClient;
 
+    private final StreamingResponder streamingResponder;
+
     @RequestMapping(value = "/game", produces = "text/html;charset=utf-8")
     public Flux<String> chat(String prompt, String chatId) {
+        return streamingResponder.text("game", content(prompt, chatId));
+    }
+
+    /**
+     * SSE模式，支持Last-Event-ID断线续传
+     */
+    @RequestMapping(value = "/game/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatSse(String prompt, String chatId,
+                                                 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamingResponder.sse("game", content(prompt, chatId), lastEventId);
+    }
+
+    private Flux<String> content(String prompt, String chatId) {
         return gameChatClient.prompt()
                 .user(prompt)
                 .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, chatId))
@@ -1,12 +1,19 @@
 package com.itheima.ai.controller;
 
+import com.itheima.ai.advisor.HybridRetrievalAdvisor;
 import com.itheima.ai.entity.vo.Result;
+import com.itheima.ai.rag.Bm25Index;
+import com.itheima.ai.rag.PageFingerprintIndex;
 import com.itheima.ai.repository.ChatHistoryRepository;
 import com.itheima.ai.repository.FileRepository;
+import com.itheima.ai.storage.BlobResource;
+import com.itheima.ai.stream.StreamingResponder;
+import com.itheima.ai.utils.FileTransferUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.ExtractedTextFormatter;
 import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
@@ -14,7 +21,7 @@ import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
@@ -24,9 +31,9 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 
 import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
-import static org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor.FILTER_EXPRESSION;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -38,25 +45,51 @@ public class PdfController {
 
     private final VectorStore vectorStore;
 
+    private final Bm25Index bm25Index;
+
+    private final PageFingerprintIndex pageFingerprintIndex;
+
     private final ChatClient pdfChatClient;
 
     private final ChatHistoryRepository chatHistoryRepository;
 
+    private final StreamingResponder streamingResponder;
+
     @RequestMapping(value = "/chat", produces = "text/html;charset=utf-8")
     public Flux<String> chat(String prompt, String chatId) {
+        return streamingResponder.text("pdf", content(prompt, chatId));
+    }
+
+    /**
+     * SSE模式，支持Last-Event-ID断线续传
+     */
+    @RequestMapping(value = "/chat/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatSse(String prompt, String chatId,
+                                                 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamingResponder.sse("pdf", Flux.defer(() -> content(prompt, chatId)), lastEventId);
+    }
+
+    private Flux<String> content(String prompt, String chatId) {
         // 1.找到会话文件
         Resource file = fileRepository.getFile(chatId);
         if (!file.exists()) {
             // 文件不存在，不回答
             throw new RuntimeException("会话文件不存在！");
         }
+        if (!fileRepository.isReady()) {
+            // 知识库仍在后台加载，检索结果不完整
+            throw new RuntimeException("知识库加载中，请稍后再试！");
+        }
         // 2.保存会话id
         chatHistoryRepository.save("pdf", chatId);
-        // 3.请求模型
+        // 3.请求模型（检索时只处理当前会话上传的文件；旧的文件名映射仍按文件名检索）
+        String retrievalKey = file instanceof BlobResource ? HybridRetrievalAdvisor.CHAT_ID
+                : HybridRetrievalAdvisor.FILE_NAME;
+        String retrievalValue = file instanceof BlobResource ? chatId : file.getFilename();
         return pdfChatClient.prompt()
                 .user(prompt)
                 .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, chatId))
-                .advisors(a -> a.param(FILTER_EXPRESSION, "file_name == '" + file.getFilename() + "'")) // 在向量库检索时只处理当前会话的文件
+                .advisors(a -> a.param(retrievalKey, retrievalValue))
                 .stream()
                 .content();
     }
@@ -71,13 +104,14 @@ public class PdfController {
             if (!Objects.equals(file.getContentType(), "application/pdf")) {
                 return Result.fail("只能上传PDF文件！");
             }
-            // 2.保存文件
+            // 2.保存文件（等待知识库加载完成，避免与后台加载交错）
+            fileRepository.awaitReady();
             boolean success = fileRepository.save(chatId, file.getResource());
             if (!success) {
                 return Result.fail("保存文件失败！");
             }
-            // 3.写入向量库
-            this.writeToVectorStore(file.getResource());
+            // 3.写入向量库（从已落盘的文件读取，不再重复读取上传内容）
+            this.writeToVectorStore(chatId, fileRepository.getFile(chatId));
             return Result.ok();
         } catch (Exception e) {
             log.error("Failed to upload PDF.", e);
@@ -86,25 +120,26 @@ public class PdfController {
     }
 
     /**
-     * 文件下载
+     * 文件下载（支持Range断点续传，零拷贝发送）
      */
     @GetMapping("/file/{chatId}")
-    public ResponseEntity<Resource> download(@PathVariable("chatId") String chatId) throws IOException {
+    public void download(@PathVariable("chatId") String chatId, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
         // 1.读取文件
         Resource resource = fileRepository.getFile(chatId);
         if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
         // 2.文件名编码，写入响应头
         String filename = URLEncoder.encode(Objects.requireNonNull(resource.getFilename()), StandardCharsets.UTF_8);
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
         // 3.返回文件
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                .body(resource);
+        FileTransferUtils.send(resource.getFile().toPath(), request, response);
     }
 
-    private void writeToVectorStore(Resource resource) {
+    private void writeToVectorStore(String chatId, Resource resource) {
         // 1.创建PDF的读取器
         PagePdfDocumentReader reader = new PagePdfDocumentReader(
                 resource, // 文件源
@@ -115,7 +150,25 @@ public class PdfController {
         );
         // 2.读取PDF文档，拆分为Document
         List<Document> documents = reader.read();
-        // 3.写入向量库
-        vectorStore.add(documents);
+        // 3.按页指纹与该会话已入库内容比对，只写入差异
+        String fileName = Objects.requireNonNull(resource.getFilename());
+        Lock lock = pageFingerprintIndex.lock(chatId);
+        lock.lock();
+        try {
+            PageFingerprintIndex.Diff diff = pageFingerprintIndex.diff(chatId, fileName, documents);
+            if (!diff.removed().isEmpty()) {
+                vectorStore.delete(diff.removed());
+                bm25Index.delete(diff.removed());
+            }
+            if (!diff.added().isEmpty()) {
+                vectorStore.add(diff.added());
+                bm25Index.add(diff.added());
+            }
+            pageFingerprintIndex.commit(chatId, diff);
+            log.info("PDF入库完成：{}（会话{}），新增{}页，删除{}页，复用{}页",
+                    fileName, chatId, diff.added().size(), diff.removed().size(), diff.unchanged());
+        } finally {
+            lock.unlock();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.itheima.ai.health;
+
+import com.itheima.ai.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * PDF知识库就绪检查
+ * 向量库等数据在后台加载，加载完成前返回OUT_OF_SERVICE，
+ * 通过readiness分组暴露为就绪探针（/actuator/health/readiness）
+ */
+@Component("pdfStore")
+@RequiredArgsConstructor
+public class PdfStoreHealthIndicator implements HealthIndicator {
+
+    private final FileRepository fileRepository;
+
+    @Override
+    public Health health() {
+        return fileRepository.isReady()
+                ? Health.up().build()
+                : Health.outOfService().withDetail("reason", "PDF知识库加载中").build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.itheima.ai.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 对话延迟指标统一入口
+ * 功能：把用户真实感受到的延迟拆成若干指标，通过Actuator/Prometheus导出
+ *
+ * 指标列表：
+ * - ai.chat.first.token   首个Token耗时（TTFT）
+ * - ai.chat.chunk.gap     流式输出中相邻两个分片的间隔
+ * - ai.chat.duration      一次对话的总耗时
+ * - ai.chat.tokens.rate   流式输出速率（tokens/秒，仅在模型返回usage时记录）
+ * - ai.chat.chunks.rate   流式分片速率（分片/秒，模型未返回usage时的替代指标）
+ * - ai.chat.retrieval     检索耗时（path=keyword 关键词快速通道，path=hybrid 混合检索）
+ * - ai.chat.tool          工具调用耗时（client标签由ChatMetricsAdvisor经工具上下文传给MeteredToolCallingManager）
+ * - ai.chat.errors        对话失败次数
+ * - ai.chat.cancelled     流式对话被客户端取消（断开连接）的次数
+ * - ai.stream.chunks      模型返回的原始分片数（mode=text/sse）
+ * - ai.stream.writes      合并后实际写出的次数，rate(ai_stream_writes_total)即每秒写次数
+ * - ai.route.ttft         路由模型的EWMA首Token耗时（毫秒）
+ * - ai.route.error.rate   路由模型的EWMA错误率
+ *
+ * 标签约定（保持低基数）：
+ * - client：ChatClient名称（chat/game/service/pdf）
+ * - model：模型名称（如qwen-plus、qwen-omni-turbo）
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatMetrics {
+
+    public static final String TAG_CLIENT = "client";
+    public static final String TAG_MODEL = "model";
+
+    // 模型名称未知时的占位值
+    public static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    public void recordFirstToken(String client, String model, long nanos) {
+        timer("ai.chat.first.token", "首个Token耗时", client, model).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChunkGap(String client, String model, long nanos) {
+        timer("ai.chat.chunk.gap", "流式分片间隔", client, model).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDuration(String client, String model, long nanos) {
+        timer("ai.chat.duration", "对话总耗时", client, model).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetrieval(String client, String path, long nanos) {
+        Timer.builder("ai.chat.retrieval")
+                .description("检索耗时")
+                .tag(TAG_CLIENT, client)
+                .tag("path", path)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTool(String client, String model, long nanos) {
+        timer("ai.chat.tool", "工具调用耗时", normalize(client), model).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录流式输出速率
+     * @param tokens 本次输出的token数
+     * @param nanos 从首个Token到结束的耗时
+     */
+    public void recordTokenRate(String client, String model, long tokens, long nanos) {
+        if (tokens <= 0 || nanos <= 0) {
+            return;
+        }
+        double tokensPerSecond = tokens * 1_000_000_000.0 / nanos;
+        DistributionSummary.builder("ai.chat.tokens.rate")
+                .description("流式输出速率")
+                .baseUnit("tokens/s")
+                .tag(TAG_CLIENT, client)
+                .tag(TAG_MODEL, normalize(model))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(tokensPerSecond);
+    }
+
+    /**
+     * 记录流式分片速率（模型未返回usage时使用，分片数不等于token数，单独成指标）
+     * @param chunks 本次输出的非空分片数
+     * @param nanos 从首个分片到结束的耗时
+     */
+    public void recordChunkRate(String client, String model, long chunks, long nanos) {
+        if (chunks <= 0 || nanos <= 0) {
+            return;
+        }
+        DistributionSummary.builder("ai.chat.chunks.rate")
+                .description("流式分片速率")
+                .baseUnit("chunks/s")
+                .tag(TAG_CLIENT, client)
+                .tag(TAG_MODEL, normalize(model))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(chunks * 1_000_000_000.0 / nanos);
+    }
+
+    public void recordCancel(String client, String model) {
+        Counter.builder("ai.chat.cancelled")
+                .description("流式对话被客户端取消的次数")
+                .tag(TAG_CLIENT, client)
+                .tag(TAG_MODEL, normalize(model))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordError(String client, String model) {
+        Counter.builder("ai.chat.errors")
+                .description("对话失败次数")
+                .tag(TAG_CLIENT, client)
+                .tag(TAG_MODEL, normalize(model))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordStreamChunk(String client, String mode) {
+        counter("ai.stream.chunks", "模型返回的原始分片数", client, mode).increment();
+    }
+
+    public void recordStreamWrite(String client, String mode) {
+        counter("ai.stream.writes", "合并后实际写出的次数", client, mode).increment();
+    }
+
+    public void registerRouteGauges(String model, Supplier<Number> ttftMillis, Supplier<Number> errorRate) {
+        Gauge.builder("ai.route.ttft", ttftMillis)
+                .description("路由模型的EWMA首Token耗时")
+                .baseUnit("ms")
+                .tag(TAG_MODEL, normalize(model))
+                .register(meterRegistry);
+        Gauge.builder("ai.route.error.rate", errorRate)
+                .description("路由模型的EWMA错误率")
+                .tag(TAG_MODEL, normalize(model))
+                .register(meterRegistry);
+    }
+
+    private Counter counter(String name, String description, String client, String mode) {
+        return Counter.builder(name)
+                .description(description)
+                .tag(TAG_CLIENT, client)
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String name, String description, String client, String model) {
+        return Timer.builder(name)
+                .description(description)
+                .tag(TAG_CLIENT, client)
+                .tag(TAG_MODEL, normalize(model))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String normalize(String model) {
+        return StringUtils.hasText(model) ? model : UNKNOWN;
+    }
+}
@@ -0,0 +1,60 @@
+package com.itheima.ai.metrics;
+
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带计时的ToolCallingManager装饰器
+ * 功能：统计每轮工具调用（可能包含多个工具）的耗时，按ChatClient和模型打标签
+ *
+ * ChatClient名称：ChatMetricsAdvisor把名称放进工具上下文（CLIENT），这里取出后从上下文中移除再交给工具执行，
+ * 否则不接收ToolContext参数的@Tool方法会因上下文非空而报错
+ */
+public class MeteredToolCallingManager implements ToolCallingManager {
+
+    // 工具上下文中的ChatClient名称
+    public static final String CLIENT = "ai_metrics_client";
+
+    private final ToolCallingManager delegate;
+
+    private final ChatMetrics chatMetrics;
+
+    public MeteredToolCallingManager(ToolCallingManager delegate, ChatMetrics chatMetrics) {
+        this.delegate = delegate;
+        this.chatMetrics = chatMetrics;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        String client = null;
+        Prompt toolPrompt = prompt;
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options
+                && options.getToolContext() != null && options.getToolContext().containsKey(CLIENT)) {
+            Map<String, Object> toolContext = new HashMap<>(options.getToolContext());
+            client = String.valueOf(toolContext.remove(CLIENT));
+            ToolCallingChatOptions copy = options.copy();
+            copy.setToolContext(toolContext);
+            toolPrompt = new Prompt(prompt.getInstructions(), copy);
+        }
+        long start = System.nanoTime();
+        try {
+            return delegate.executeToolCalls(toolPrompt, chatResponse);
+        } finally {
+            String model = prompt.getOptions() != null ? prompt.getOptions().getModel() : null;
+            chatMetrics.recordTool(client, model, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.itheima.ai.model;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按延迟路由的ChatModel
+ * 功能：
+ * 1. 按模型统计EWMA总耗时、EWMA首Token耗时和EWMA错误率
+ * 2. 每次请求在可用模型中选择得分最好的一个（含图片/音频等附件时只选多模态模型）
+ * 3. 在输出第一个分片之前出错或超时，自动切换到下一个模型重试
+ * 4. 实际使用的模型写入响应元数据（ROUTED_MODEL），供ChatMetricsAdvisor按实际模型打标签
+ *
+ * 设计特点：
+ * - 只改写请求选项里的模型名称，底层仍由同一个ChatModel发送请求
+ * - 同步调用的耗时只计入总耗时，不计入流式路由使用的首Token耗时
+ * - 请求中指定的模型作为偏好，得分相近时优先使用
+ * - 错误率随时间衰减，出过错的模型过一段时间会重新参与选择
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    /**
+     * 路由候选
+     * @param model 模型名称
+     * @param multimodal 是否支持图片/音频等多模态输入
+     * @param streamOnly 是否只支持流式调用（如qwen-omni-turbo）
+     */
+    public record Route(String model, boolean multimodal, boolean streamOnly) {
+    }
+
+    // 响应元数据键：实际路由到的模型
+    public static final String ROUTED_MODEL = "routed_model";
+
+    // EWMA平滑系数
+    private static final double ALPHA = 0.2;
+
+    // 错误率为100%时的得分惩罚（相当于多等10秒）
+    private static final double ERROR_PENALTY_NANOS = Duration.ofSeconds(10).toNanos();
+
+    // 错误率衰减半衰期
+    private static final long ERROR_HALF_LIFE_NANOS = Duration.ofSeconds(30).toNanos();
+
+    // 请求指定模型的得分折扣（越小越偏好）
+    private static final double PREFERRED_DISCOUNT = 0.8;
+
+    private final ChatModel delegate;
+
+    private final List<Route> routes;
+
+    private final Duration firstTokenTimeout;
+
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    public RoutingChatModel(ChatModel delegate, List<Route> routes, Duration firstTokenTimeout, ChatMetrics chatMetrics) {
+        this.delegate = delegate;
+        this.routes = List.copyOf(routes);
+        this.firstTokenTimeout = firstTokenTimeout;
+        for (Route route : routes) {
+            Stats s = new Stats();
+            stats.put(route.model(), s);
+            chatMetrics.registerRouteGauges(route.model(), s::ttftMillis, s::errorRate);
+        }
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<Route> candidates = rank(prompt, false);
+        RuntimeException last = null;
+        for (Route route : candidates) {
+            Stats s = stats.get(route.model());
+            long start = System.nanoTime();
+            try {
+                ChatResponse response = delegate.call(withModel(prompt, route.model()));
+                s.onSuccess(System.nanoTime() - start);
+                return withRoutedModel(response, route.model());
+            } catch (RuntimeException e) {
+                s.onError();
+                log.warn("模型{}调用失败，尝试下一个模型", route.model(), e);
+                last = e;
+            }
+        }
+        throw last != null ? last : new IllegalStateException("没有可用的模型");
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        List<Route> candidates = rank(prompt, true);
+        if (candidates.isEmpty()) {
+            return Flux.error(new IllegalStateException("没有可用的模型"));
+        }
+        return streamFrom(prompt, candidates, 0);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private Flux<ChatResponse> streamFrom(Prompt prompt, List<Route> candidates, int index) {
+        Route route = candidates.get(index);
+        Stats s = stats.get(route.model());
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return delegate.stream(withModel(prompt, route.model()))
+                    // 只限制首个分片的等待时间
+                    .timeout(Mono.delay(firstTokenTimeout), response -> Mono.never())
+                    .doOnNext(response -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            s.onFirstToken(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnComplete(() -> s.onSuccess(System.nanoTime() - start))
+                    .map(response -> withRoutedModel(response, route.model()))
+                    .onErrorResume(e -> {
+                        s.onError();
+                        if (emitted.get() || index + 1 >= candidates.size()) {
+                            // 已经输出过内容，无法无缝切换
+                            return Flux.error(e);
+                        }
+                        log.warn("模型{}首个分片前失败，切换到{}：{}",
+                                route.model(), candidates.get(index + 1).model(), e.toString());
+                        return streamFrom(prompt, candidates, index + 1);
+                    });
+        });
+    }
+
+    /**
+     * 按得分从好到坏排列可用模型
+     */
+    private List<Route> rank(Prompt prompt, boolean streaming) {
+        boolean needsMultimodal = prompt.getInstructions().stream()
+                .anyMatch(message -> message instanceof UserMessage user && !user.getMedia().isEmpty());
+        String preferred = prompt.getOptions() != null ? prompt.getOptions().getModel() : null;
+        long now = System.nanoTime();
+        return routes.stream()
+                .filter(route -> !needsMultimodal || route.multimodal())
+                .filter(route -> streaming || !route.streamOnly())
+                .sorted(Comparator.comparingDouble(route -> {
+                    double score = stats.get(route.model()).score(now, streaming);
+                    return route.model().equals(preferred) ? score * PREFERRED_DISCOUNT : score;
+                }))
+                .toList();
+    }
+
+    /**
+     * 在响应元数据中记录实际使用的模型
+     */
+    private static ChatResponse withRoutedModel(ChatResponse response, String model) {
+        if (response == null) {
+            return null;
+        }
+        return ChatResponse.builder().from(response).metadata(ROUTED_MODEL, model).build();
+    }
+
+    /**
+     * 复制请求选项并替换模型名称
+     */
+    private static Prompt withModel(Prompt prompt, String model) {
+        ChatOptions options = prompt.getOptions();
+        if (options == null) {
+            return new Prompt(prompt.getInstructions(), ChatOptions.builder().model(model).build());
+        }
+        ChatOptions copy = options.copy();
+        BeanWrapper wrapper = new BeanWrapperImpl(copy);
+        if (wrapper.isWritableProperty("model")) {
+            wrapper.setPropertyValue("model", model);
+        } else {
+            log.debug("请求选项{}不支持修改模型，按原模型发送", copy.getClass().getSimpleName());
+        }
+        return new Prompt(prompt.getInstructions(), copy);
+    }
+
+    /**
+     * 单个模型的统计数据
+     */
+    private static final class Stats {
+
+        private double ewmaLatencyNanos;
+
+        private double ewmaTtftNanos;
+
+        private double errorRate;
+
+        private long errorUpdatedAt = System.nanoTime();
+
+        synchronized void onFirstToken(long nanos) {
+            ewmaTtftNanos = ewmaTtftNanos == 0 ? nanos : ALPHA * nanos + (1 - ALPHA) * ewmaTtftNanos;
+        }
+
+        synchronized void onSuccess(long nanos) {
+            ewmaLatencyNanos = ewmaLatencyNanos == 0 ? nanos : ALPHA * nanos + (1 - ALPHA) * ewmaLatencyNanos;
+            updateErrorRate(0);
+        }
+
+        synchronized void onError() {
+            updateErrorRate(1);
+        }
+
+        /**
+         * 得分越小越好；没有样本的模型得分为0，会优先被尝试
+         */
+        synchronized double score(long now, boolean streaming) {
+            double latency = streaming ? ewmaTtftNanos : ewmaLatencyNanos;
+            return latency + ERROR_PENALTY_NANOS * decayedErrorRate(now);
+        }
+
+        synchronized double ttftMillis() {
+            return ewmaTtftNanos / 1_000_000;
+        }
+
+        synchronized double errorRate() {
+            return decayedErrorRate(System.nanoTime());
+        }
+
+        private void updateErrorRate(double sample) {
+            long now = System.nanoTime();
+            errorRate = ALPHA * sample + (1 - ALPHA) * decayedErrorRate(now);
+            errorUpdatedAt = now;
+        }
+
+        private double decayedErrorRate(long now) {
+            return errorRate * Math.pow(0.5, (double) (now - errorUpdatedAt) / ERROR_HALF_LIFE_NANOS);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.itheima.ai.prompt;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的提示词模板
+ * 功能：
+ * 1. 创建时解析一次，拆分为"文本片段 + 占位符"，渲染时只做字符串拼接
+ * 2. 按参数值缓存渲染结果（如日期每天变化一次，同一天内直接命中缓存）
+ *
+ * 占位符规则：
+ * - 只识别 {英文标识符} 形式（如 {current_date}）
+ * - 其余花括号原样保留（如游戏提示词中的 {女友心情}），
+ *   不会像StringTemplate那样被当作语法解析
+ */
+public final class CompiledPromptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z_][A-Za-z0-9_]*)}");
+
+    // 渲染结果缓存上限，超过后清空重建
+    private static final int MAX_CACHED = 32;
+
+    private final String template;
+
+    // 文本片段，比占位符多一个
+    private final String[] literals;
+
+    // 占位符名称
+    private final String[] names;
+
+    private final Map<List<Object>, String> rendered = new ConcurrentHashMap<>();
+
+    private CompiledPromptTemplate(String template, String[] literals, String[] names) {
+        this.template = template;
+        this.literals = literals;
+        this.names = names;
+    }
+
+    public static CompiledPromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(template.substring(last, matcher.start()));
+            names.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(template.substring(last));
+        return new CompiledPromptTemplate(template, literals.toArray(String[]::new), names.toArray(String[]::new));
+    }
+
+    /**
+     * 是否为不含占位符的静态模板
+     */
+    public boolean isStatic() {
+        return names.length == 0;
+    }
+
+    public Set<String> parameters() {
+        return new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    public String render() {
+        return render(Map.of());
+    }
+
+    /**
+     * 渲染模板
+     * @param params 参数，缺少的参数原样保留占位符
+     * @return 渲染结果
+     */
+    public String render(Map<String, ?> params) {
+        if (isStatic()) {
+            return template;
+        }
+        List<Object> key = new ArrayList<>(names.length);
+        for (String name : names) {
+            key.add(params.get(name));
+        }
+        String cached = rendered.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (rendered.size() >= MAX_CACHED) {
+            rendered.clear();
+        }
+        String result = doRender(key);
+        rendered.put(key, result);
+        return result;
+    }
+
+    private String doRender(List<Object> values) {
+        StringBuilder sb = new StringBuilder(template.length() + 16 * names.length);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(literals[i]);
+            Object value = values.get(i);
+            if (value == null) {
+                sb.append('{').append(names[i]).append('}');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append(literals[names.length]).toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.itheima.ai.prompt;
+
+import com.itheima.ai.constants.SystemConstants;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 预编译的系统提示词
+ * 类加载时解析一次，请求时直接取渲染结果
+ */
+public class SystemPrompts {
+
+    // 防止实例化
+    private SystemPrompts() {}
+
+    public static final CompiledPromptTemplate CHAT = CompiledPromptTemplate.compile(SystemConstants.CHAT_SYSTEM_PROMPT);
+
+    public static final CompiledPromptTemplate GAME = CompiledPromptTemplate.compile(SystemConstants.GAME_SYSTEM_PROMPT);
+
+    public static final CompiledPromptTemplate SERVICE = CompiledPromptTemplate.compile(SystemConstants.SERVICE_SYSTEM_PROMPT);
+
+    /**
+     * 通用聊天的系统提示词（带当天日期，每天只渲染一次）
+     */
+    public static String chat() {
+        return CHAT.render(Map.of("current_date", LocalDate.now()));
+    }
+}
@@ -0,0 +1,219 @@
+package com.itheima.ai.rag;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内BM25倒排索引
+ * 功能：
+ * 1. PDF入库时与向量库同步写入，按会话ID过滤检索（旧数据没有会话ID，按文件名过滤）
+ * 2. 使用ChineseTokenizer分词，BM25打分（k1=1.2，b=0.75）
+ * 3. 支持持久化：只保存文档原文，加载时重建倒排表
+ *
+ * 线程安全：读写锁保护，检索并发执行，写入互斥
+ */
+@Slf4j
+public class Bm25Index {
+
+    public static final String FILE_NAME = "file_name";
+
+    public static final String CHAT_ID = "chat_id";
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 文档ID -> 文档
+    private final Map<String, IndexedDoc> docs = new HashMap<>();
+
+    // 词 -> (文档ID -> 词频)
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+
+    private long totalLength;
+
+    /**
+     * 检索命中
+     * @param document 命中的文档（score为BM25得分）
+     * @param matchedTerms 查询词中被该文档包含的词
+     */
+    public record Hit(Document document, double score, Set<String> matchedTerms) {
+    }
+
+    public void add(List<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                Object fileName = document.getMetadata().get(FILE_NAME);
+                Object chatId = document.getMetadata().get(CHAT_ID);
+                index(document.getId(), fileName == null ? "" : fileName.toString(),
+                        chatId == null ? null : chatId.toString(), document.getText());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * BM25检索
+     * @param query 查询文本
+     * @param chatId 只检索该会话的文档
+     * @param fileName chatId为null时只检索该文件名的旧文档，两者都为null时检索全部
+     * @param topK 返回结果数
+     */
+    public List<Hit> search(String query, String chatId, String fileName, int topK) {
+        Set<String> terms = new LinkedHashSet<>(ChineseTokenizer.tokenize(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (docs.isEmpty()) {
+                return List.of();
+            }
+            double avgLength = (double) totalLength / docs.size();
+            Map<String, Double> scores = new HashMap<>();
+            Map<String, Set<String>> matched = new HashMap<>();
+            for (String term : terms) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docs.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                posting.forEach((docId, tf) -> {
+                    IndexedDoc doc = docs.get(docId);
+                    if (chatId != null ? !chatId.equals(doc.chatId())
+                            : fileName != null && !fileName.equals(doc.fileName())) {
+                        return;
+                    }
+                    double norm = tf + K1 * (1 - B + B * doc.length() / avgLength);
+                    scores.merge(docId, idf * tf * (K1 + 1) / norm, Double::sum);
+                    matched.computeIfAbsent(docId, k -> new HashSet<>()).add(term);
+                });
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(topK)
+                    .map(e -> {
+                        IndexedDoc doc = docs.get(e.getKey());
+                        Document.Builder document = Document.builder()
+                                .id(e.getKey())
+                                .text(doc.text())
+                                .metadata(FILE_NAME, doc.fileName())
+                                .score(e.getValue());
+                        if (doc.chatId() != null) {
+                            document.metadata(CHAT_ID, doc.chatId());
+                        }
+                        return new Hit(document.build(), e.getValue(), matched.get(e.getKey()));
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 保存文档原文（倒排表在加载时重建）
+     */
+    public void save(File file) {
+        List<StoredDoc> stored;
+        lock.readLock().lock();
+        try {
+            stored = docs.entrySet().stream()
+                    .map(e -> new StoredDoc(e.getKey(), e.getValue().fileName(), e.getValue().chatId(),
+                            e.getValue().text()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            objectMapper.writeValue(file, stored);
+        } catch (IOException e) {
+            throw new RuntimeException("BM25索引保存失败", e);
+        }
+    }
+
+    public void load(Resource resource) {
+        List<StoredDoc> stored;
+        try (InputStream in = resource.getInputStream()) {
+            stored = objectMapper.readValue(in, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("BM25索引加载失败", e);
+        }
+        lock.writeLock().lock();
+        try {
+            stored.forEach(doc -> index(doc.id(), doc.fileName(), doc.chatId(), doc.text()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("BM25索引加载完成，文档数：{}", stored.size());
+    }
+
+    // 调用方需持有写锁
+    private void index(String id, String fileName, String chatId, String text) {
+        remove(id);
+        Map<String, Integer> termFreqs = new HashMap<>();
+        List<String> tokens = ChineseTokenizer.tokenize(text);
+        tokens.forEach(token -> termFreqs.merge(token, 1, Integer::sum));
+        termFreqs.forEach((term, tf) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, tf));
+        docs.put(id, new IndexedDoc(fileName, chatId, text == null ? "" : text, tokens.size(), termFreqs.keySet()));
+        totalLength += tokens.size();
+    }
+
+    // 调用方需持有写锁
+    private void remove(String id) {
+        IndexedDoc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length();
+        for (String term : doc.terms()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private record IndexedDoc(String fileName, String chatId, String text, int length, Set<String> terms) {
+    }
+
+    // chatId在旧的索引文件中不存在，加载为null
+    private record StoredDoc(String id, String fileName, String chatId, String text) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.itheima.ai.rag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 中英文混合分词器（无词典）
+ * 规则：
+ * 1. 连续的英文字母/数字/下划线/点号视为一个词（如 HashMap、String.valueOf），统一转小写；
+ *    带点号的词额外拆出各段（string.valueof -> string、valueof），便于部分匹配
+ * 2. 连续的中文按单字 + 相邻二元组切分（"集合框架" -> 集、合、框、架、集合、合框、框架），
+ *    不依赖词典也能覆盖中文词语
+ * 3. 其余字符（标点、空白）作为分隔符丢弃
+ */
+public final class ChineseTokenizer {
+
+    // 防止实例化
+    private ChineseTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                int start = i;
+                while (i < length && (isWordChar(text.charAt(i)) || isInnerDot(text, i))) {
+                    i++;
+                }
+                addWord(tokens, text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                addCjk(tokens, text, start, i);
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 提取查询里的"精确词"：形如标识符的英文词（API名称、错误码、型号等），用于判断能否走关键词快速通道
+     * 满足任一条件即视为标识符：含数字、含下划线或点号（String.valueOf）、小写后接大写（HashMap、getName）；
+     * 普通英文单词（java、Spring、JDK）不算，避免普通问题跳过向量检索
+     */
+    public static List<String> exactTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && (isWordChar(text.charAt(i)) || isInnerDot(text, i))) {
+                i++;
+            }
+            String word = text.substring(start, i);
+            String term = word.toLowerCase(Locale.ROOT);
+            if (word.length() >= 3 && isIdentifier(word) && !terms.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isIdentifier(String word) {
+        for (int j = 0; j < word.length(); j++) {
+            char c = word.charAt(j);
+            if ((c >= '0' && c <= '9') || c == '_' || c == '.') {
+                return true;
+            }
+            if (j > 0 && Character.isUpperCase(c) && Character.isLowerCase(word.charAt(j - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addWord(List<String> tokens, String word) {
+        tokens.add(word);
+        if (word.indexOf('.') > 0) {
+            for (String part : word.split("\\.")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+    }
+
+    private static void addCjk(List<String> tokens, String text, int start, int end) {
+        for (int j = start; j < end; j++) {
+            tokens.add(String.valueOf(text.charAt(j)));
+        }
+        for (int j = start; j + 1 < end; j++) {
+            tokens.add(text.substring(j, j + 2));
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // 仅保留夹在两个单词字符之间的点号，句末的点号仍作为分隔符
+    private static boolean isInnerDot(String text, int i) {
+        return text.charAt(i) == '.' && i > 0 && i + 1 < text.length()
+                && isWordChar(text.charAt(i - 1)) && isWordChar(text.charAt(i + 1));
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS;
+    }
+}
@@ -0,0 +1,143 @@
+package com.itheima.ai.rag;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PDF页级指纹索引
+ * 功能：
+ * 1. 为每页文本计算SHA-256指纹，写入向量的元数据（page_fingerprint）
+ * 2. 文档ID由"会话ID + 指纹"确定，同一会话中同一页内容不变则ID不变
+ * 3. 同一会话重新上传时与已入库的ID做差集：只向量化新增/修改的页，删除已不存在的页
+ *
+ * 设计特点：
+ * - 按会话ID（chat_id元数据）登记，不同会话上传同名文件互不影响
+ * - 指纹随向量一起保存，启动时从向量库文件恢复，无需额外的清单文件
+ * - 旧数据（无chat_id元数据）可能被多个同名文件的会话共用，不登记、也不会被删除
+ * - ID不含页码：前面插入一页时，后续页无需重新向量化（其page_number元数据保留首次入库时的值）
+ */
+@Slf4j
+public class PageFingerprintIndex {
+
+    public static final String FINGERPRINT = "page_fingerprint";
+
+    public static final String CHAT_ID = "chat_id";
+
+    private static final String FILE_NAME = "file_name";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 会话ID -> 已入库的文档ID
+    private final Map<String, Set<String>> chats = new ConcurrentHashMap<>();
+
+    // 会话ID -> 写入锁，同一会话的并发上传串行执行
+    private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 差异结果
+     * @param added 需要向量化的页（已带确定性ID与指纹）
+     * @param removed 需要删除的文档ID
+     * @param unchanged 内容未变、直接复用的页数
+     */
+    public record Diff(List<Document> added, List<String> removed, int unchanged) {
+    }
+
+    public Lock lock(String chatId) {
+        return locks.computeIfAbsent(chatId, k -> new ReentrantLock());
+    }
+
+    /**
+     * 计算本次上传与该会话已入库内容的差异（调用方需持有该会话的锁）
+     * @param chatId 会话ID
+     * @param fileName 原始文件名（只用于展示）
+     * @param pages PDF读取器拆分出的页
+     */
+    public Diff diff(String chatId, String fileName, List<Document> pages) {
+        Set<String> existing = chats.getOrDefault(chatId, Set.of());
+        Map<String, Document> current = new LinkedHashMap<>();
+        for (Document page : pages) {
+            if (!StringUtils.hasText(page.getText())) {
+                continue;
+            }
+            String fingerprint = fingerprint(page.getText());
+            String id = UUID.nameUUIDFromBytes((chatId + "#" + fingerprint).getBytes(StandardCharsets.UTF_8))
+                    .toString();
+            // 内容相同的页只保留一份
+            current.computeIfAbsent(id, k -> Document.builder()
+                    .id(id)
+                    .text(page.getText())
+                    .metadata(new HashMap<>(page.getMetadata()))
+                    .metadata(FILE_NAME, fileName)
+                    .metadata(CHAT_ID, chatId)
+                    .metadata(FINGERPRINT, fingerprint)
+                    .build());
+        }
+        List<Document> added = current.values().stream()
+                .filter(doc -> !existing.contains(doc.getId()))
+                .toList();
+        List<String> removed = existing.stream()
+                .filter(id -> !current.containsKey(id))
+                .toList();
+        return new Diff(added, removed, current.size() - added.size());
+    }
+
+    /**
+     * 差异写入向量库成功后登记（调用方需持有该会话的锁）
+     */
+    public void commit(String chatId, Diff diff) {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ids.addAll(chats.getOrDefault(chatId, Set.of()));
+        diff.removed().forEach(ids::remove);
+        diff.added().forEach(doc -> ids.add(doc.getId()));
+        chats.put(chatId, ids);
+    }
+
+    /**
+     * 从SimpleVectorStore的持久化文件恢复各会话的文档ID
+     */
+    public void load(Resource vectorStoreResource) {
+        Map<String, StoredVector> stored;
+        try (InputStream in = vectorStoreResource.getInputStream()) {
+            stored = objectMapper.readValue(in, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("页指纹索引加载失败", e);
+        }
+        stored.forEach((id, vector) -> {
+            Object chatId = vector.metadata() == null ? null : vector.metadata().get(CHAT_ID);
+            if (chatId != null) {
+                chats.computeIfAbsent(chatId.toString(), k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        });
+        log.info("页指纹索引加载完成，会话数：{}", chats.size());
+    }
+
+    private static String fingerprint(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 只读取ID与元数据，忽略向量本身
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record StoredVector(Map<String, Object> metadata) {
+    }
+}
@@ -17,4 +17,15 @@ public interface FileRepository {
      * @return 找到的文件
      */
     Resource getFile(String chatId);
-}
\ No newline at end of file
+
+    /**
+     * 持久化数据是否已加载完成（就绪探针使用）
+     * @return 加载完成返回true
+     */
+    boolean isReady();
+
+    /**
+     * 阻塞等待持久化数据加载完成
+     */
+    void awaitReady();
+}
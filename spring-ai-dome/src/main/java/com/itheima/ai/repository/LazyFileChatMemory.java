@@ -0,0 +1,166 @@
+package com.itheima.ai.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.ai.entity.po.Msg;
+import com.itheima.ai.repository.codec.ChatMemoryCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按会话懒加载的文件式聊天记忆
+ * 功能：
+ * 1. 每个会话单独保存为一个文件（chat-memory/<chatId>.mem，格式由ChatMemoryCodec决定）
+ * 2. 首次访问某个会话时才从磁盘读取，启动时不再回放全部会话
+ * 3. 关闭时只写回本次运行中修改过的会话
+ *
+ * 设计特点：
+ * - 启动耗时与历史会话数量无关
+ * - 兼容旧的chat-memory.json：首次启动时拆分为按会话保存的文件
+ * - 兼容旧的<chatId>.json：读取后在下次写回时转换为当前格式
+ */
+@Slf4j
+public class LazyFileChatMemory implements ChatMemory {
+
+    private static final String SUFFIX = ".mem";
+
+    // 旧版本按会话保存的JSON文件
+    private static final String LEGACY_SUFFIX = ".json";
+
+    private final Path dir;
+
+    private final ObjectMapper objectMapper;
+
+    private final ChatMemoryCodec codec;
+
+    // 已加载的会话，Key: 会话ID
+    private final Map<String, List<Message>> conversations = new ConcurrentHashMap<>();
+
+    // 本次运行中修改过、关闭时需要写回的会话
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public LazyFileChatMemory(Path dir, ObjectMapper objectMapper, ChatMemoryCodec codec) {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.codec = codec;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("会话记忆目录创建失败", e);
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> history = materialize(conversationId);
+        synchronized (history) {
+            history.addAll(messages);
+        }
+        dirty.add(conversationId);
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        List<Message> history = materialize(conversationId);
+        synchronized (history) {
+            return new ArrayList<>(history.subList(Math.max(0, history.size() - lastN), history.size()));
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        // 放入空列表而不是删除，避免下次访问又从磁盘读回
+        conversations.put(conversationId, new ArrayList<>());
+        dirty.add(conversationId);
+    }
+
+    /**
+     * 把旧版整体保存的chat-memory.json拆分为按会话保存的文件（一次性迁移）
+     * @param legacy 旧版文件
+     */
+    public void migrate(Path legacy) {
+        if (!Files.exists(legacy)) {
+            return;
+        }
+        try {
+            Map<String, List<Msg>> memory = objectMapper.readValue(legacy.toFile(), new TypeReference<>() {
+            });
+            if (memory != null) {
+                for (Map.Entry<String, List<Msg>> entry : memory.entrySet()) {
+                    Files.write(file(entry.getKey()), codec.encode(entry.getValue()));
+                }
+            }
+            Files.move(legacy, legacy.resolveSibling(legacy.getFileName() + ".migrated"),
+                    StandardCopyOption.REPLACE_EXISTING);
+            log.info("会话记忆迁移完成，会话数：{}", memory == null ? 0 : memory.size());
+        } catch (IOException e) {
+            throw new RuntimeException("会话记忆迁移失败", e);
+        }
+    }
+
+    /**
+     * 写回修改过的会话（Bean销毁时调用）
+     */
+    public void persist() {
+        for (String conversationId : dirty) {
+            List<Message> history = conversations.get(conversationId);
+            Path file = file(conversationId);
+            try {
+                Files.deleteIfExists(legacyFile(conversationId));
+                if (history == null || history.isEmpty()) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                List<Msg> messages;
+                synchronized (history) {
+                    messages = history.stream().map(Msg::new).toList();
+                }
+                Files.write(file, codec.encode(messages));
+            } catch (IOException e) {
+                log.error("会话记忆保存失败：{}", conversationId, e);
+            }
+        }
+        log.info("会话记忆保存完成，写回会话数：{}", dirty.size());
+        dirty.clear();
+    }
+
+    private List<Message> materialize(String conversationId) {
+        return conversations.computeIfAbsent(conversationId, this::read);
+    }
+
+    private List<Message> read(String conversationId) {
+        Path file = file(conversationId);
+        if (!Files.exists(file)) {
+            file = legacyFile(conversationId);
+        }
+        List<Message> history = new ArrayList<>();
+        if (Files.exists(file)) {
+            try {
+                List<Msg> messages = codec.decode(Files.readAllBytes(file));
+                messages.forEach(msg -> history.add(msg.toMessage()));
+            } catch (IOException e) {
+                throw new RuntimeException("会话记忆加载失败：" + conversationId, e);
+            }
+        }
+        return history;
+    }
+
+    // 会话ID编码后作为文件名，防止路径穿越
+    private Path file(String conversationId) {
+        return dir.resolve(URLEncoder.encode(conversationId, StandardCharsets.UTF_8) + SUFFIX);
+    }
+
+    private Path legacyFile(String conversationId) {
+        return dir.resolve(URLEncoder.encode(conversationId, StandardCharsets.UTF_8) + LEGACY_SUFFIX);
+    }
+}
@@ -1,5 +1,9 @@
 package com.itheima.ai.repository;
 
+import com.itheima.ai.rag.Bm25Index;
+import com.itheima.ai.rag.PageFingerprintIndex;
+import com.itheima.ai.storage.BlobResource;
+import com.itheima.ai.storage.BlobStore;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -9,24 +13,29 @@ import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 本地PDF文件存储仓库实现类
  * 功能：
- * 1. PDF文件的本地存储管理
+ * 1. PDF文件的本地存储管理（内容寻址，见BlobStore）
  * 2. 会话与文件的映射关系维护
- * 3. 向量存储的持久化与恢复
+ * 3. 向量存储与BM25索引的持久化与恢复（后台并行加载，加载完成前就绪探针为DOWN）
  *
  * 设计特点：
- * - 使用Properties文件维护会话ID与文件名的映射
+ * - 使用Properties文件维护会话ID与文件哈希、原始文件名的映射
+ * - 兼容旧映射：值为普通文件名时仍从工作目录读取
  * - 实现VectorStore的自动加载/保存
  * - 支持文件资源的本地存储
  */
@@ -35,13 +44,31 @@ import java.util.Properties;
 @RequiredArgsConstructor
 public class LocalPdfFileRepository implements FileRepository {
 
+    // 内容寻址的文件存储
+    private final BlobStore blobStore;
+
     // 向量存储接口（实际使用SimpleVectorStore实现）
     private final VectorStore vectorStore;
 
-    // 维护会话ID与PDF文件名的映射关系
-    // Key: 会话ID, Value: PDF文件名
+    // BM25关键词索引（与向量库同步写入）
+    private final Bm25Index bm25Index;
+
+    // PDF页级指纹索引（从向量库文件恢复）
+    private final PageFingerprintIndex pageFingerprintIndex;
+
+    // 映射值前缀，区分内容寻址的记录与旧的文件名记录
+    private static final String BLOB_PREFIX = "sha256:";
+
+    // 维护会话ID与PDF文件的映射关系
+    // Key: 会话ID, Value: sha256:<文件哈希>:<原始文件名>（旧数据为PDF文件名）
     private final Properties chatFiles = new Properties();
 
+    // 后台加载线程，加载完成后关闭
+    private final ExecutorService loader = Executors.newFixedThreadPool(3);
+
+    // 向量存储等持久化数据的加载结果
+    private volatile CompletableFuture<Void> loaded = CompletableFuture.completedFuture(null);
+
     /**
      * 保存文件到本地并记录映射关系
      * @param chatId 会话ID
@@ -50,22 +77,18 @@ public class LocalPdfFileRepository implements FileRepository {
      */
     @Override
     public boolean save(String chatId, Resource resource) {
-        // 1. 保存文件到本地磁盘
-        String filename = resource.getFilename();
-        File target = new File(Objects.requireNonNull(filename));
-
-        // 避免重复保存已存在的文件
-        if (!target.exists()) {
-            try {
-                Files.copy(resource.getInputStream(), target.toPath());
-            } catch (IOException e) {
-                log.error("PDF文件保存失败", e);
-                return false;
-            }
+        // 1. 边写盘边计算哈希，相同内容只保存一份
+        String filename = Objects.requireNonNull(resource.getFilename());
+        String hash;
+        try (InputStream in = resource.getInputStream()) {
+            hash = blobStore.save(in);
+        } catch (IOException e) {
+            log.error("PDF文件保存失败", e);
+            return false;
         }
 
         // 2. 记录会话与文件的映射关系
-        chatFiles.put(chatId, filename);
+        chatFiles.put(chatId, BLOB_PREFIX + hash + ":" + filename);
         return true;
     }
 
@@ -76,14 +99,37 @@ public class LocalPdfFileRepository implements FileRepository {
      */
     @Override
     public Resource getFile(String chatId) {
-        return new FileSystemResource(chatFiles.getProperty(chatId));
+        String value = chatFiles.getProperty(chatId);
+        if (value == null || !value.startsWith(BLOB_PREFIX)) {
+            return new FileSystemResource(value);
+        }
+        int split = value.indexOf(':', BLOB_PREFIX.length());
+        String hash = value.substring(BLOB_PREFIX.length(), split);
+        return new BlobResource(blobStore.path(hash), hash, value.substring(split + 1));
+    }
+
+    /**
+     * 持久化数据是否已加载完成
+     */
+    @Override
+    public boolean isReady() {
+        return loaded.isDone() && !loaded.isCompletedExceptionally();
+    }
+
+    /**
+     * 等待持久化数据加载完成（写入前调用，避免与后台加载交错）
+     */
+    @Override
+    public void awaitReady() {
+        loaded.join();
     }
 
     /**
      * 初始化方法 - 在Bean创建后自动执行
      * 功能：
-     * 1. 加载历史会话文件映射
-     * 2. 恢复向量存储数据
+     * 1. 加载历史会话文件映射（数据量小，同步加载）
+     * 2. 后台并行恢复向量存储数据、页指纹索引、BM25索引，不阻塞启动
+     *    （旧数据没有BM25索引文件时，检索退化为纯向量）
      */
     @PostConstruct
     private void init() {
@@ -98,12 +144,27 @@ public class LocalPdfFileRepository implements FileRepository {
             }
         }
 
-        // 2. 加载向量存储数据
+        // 2. 后台并行加载各个存储
+        long start = System.nanoTime();
         FileSystemResource vectorResource = new FileSystemResource("chat-pdf.json");
+        FileSystemResource bm25Resource = new FileSystemResource("chat-pdf-bm25.json");
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
         if (vectorResource.exists()) {
-            SimpleVectorStore simpleVectorStore = (SimpleVectorStore) vectorStore;
-            simpleVectorStore.load(vectorResource);
+            tasks.add(CompletableFuture.runAsync(() -> ((SimpleVectorStore) vectorStore).load(vectorResource), loader));
+            tasks.add(CompletableFuture.runAsync(() -> pageFingerprintIndex.load(vectorResource), loader));
         }
+        if (bm25Resource.exists()) {
+            tasks.add(CompletableFuture.runAsync(() -> bm25Index.load(bm25Resource), loader));
+        }
+        loaded = CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .whenComplete((v, e) -> {
+                    loader.shutdown();
+                    if (e != null) {
+                        log.error("PDF知识库加载失败", e);
+                    } else {
+                        log.info("PDF知识库加载完成，耗时{}ms", (System.nanoTime() - start) / 1_000_000);
+                    }
+                });
     }
 
     /**
@@ -111,6 +172,7 @@ public class LocalPdfFileRepository implements FileRepository {
      * 功能：
      * 1. 持久化会话-文件映射关系
      * 2. 保存向量存储数据
+     * 3. 保存BM25索引
      */
     @PreDestroy
     private void persistent() {
@@ -119,11 +181,22 @@ public class LocalPdfFileRepository implements FileRepository {
             chatFiles.store(new FileWriter("chat-pdf.properties"),
                     "Last updated: " + LocalDateTime.now());
 
+            // 加载未完成或失败时不保存，避免用不完整的数据覆盖磁盘文件
+            try {
+                loaded.join();
+            } catch (CompletionException e) {
+                log.warn("PDF知识库未加载成功，跳过保存");
+                return;
+            }
+
             // 2. 保存向量存储
             SimpleVectorStore simpleVectorStore = (SimpleVectorStore) vectorStore;
             simpleVectorStore.save(new File("chat-pdf.json"));
+
+            // 3. 保存BM25索引
+            bm25Index.save(new File("chat-pdf-bm25.json"));
         } catch (IOException e) {
             throw new RuntimeException("持久化数据失败", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package com.itheima.ai.repository.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import com.itheima.ai.entity.po.Msg;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.MessageType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑二进制编解码器
+ *
+ * 文件格式：
+ * [0xC1][格式版本][压缩方式][压缩时：原始长度varint][消息体]
+ * - 0xC1在UTF-8中不会出现，以此区分旧的JSON文件（以'['开头）
+ * - 压缩方式：0 不压缩，1 Zstd（超过阈值且压缩后更小时才使用）
+ *
+ * 消息体：消息数varint，每条消息为
+ * [类型][text?][metadata?][工具调用数][每个调用的 id?、type?、name?、arguments?]
+ * - 字符串为 varint(长度+1) + UTF-8字节，0表示null
+ * - metadata为JSON字符串，空Map按null保存
+ *
+ * 设计特点：
+ * - 会话文件只在关闭时整体写回，选用压缩率更高的Zstd
+ * - 读取时兼容旧的JSON文件，切换编码无需迁移
+ */
+public class BinaryChatMemoryCodec implements ChatMemoryCodec {
+
+    static final byte MAGIC = (byte) 0xC1;
+
+    static final byte VERSION = 1;
+
+    private static final byte COMPRESSION_NONE = 0;
+
+    private static final byte COMPRESSION_ZSTD = 1;
+
+    private static final int ZSTD_LEVEL = 3;
+
+    // 类型编号与MessageType的对应关系，只能追加
+    private static final MessageType[] TYPES = {
+            MessageType.USER, MessageType.ASSISTANT, MessageType.SYSTEM, MessageType.TOOL
+    };
+
+    private static final TypeReference<List<Msg>> MSG_LIST = new TypeReference<>() {
+    };
+
+    private static final TypeReference<Map<String, Object>> METADATA = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    private final int compressThreshold;
+
+    public BinaryChatMemoryCodec(ObjectMapper objectMapper, int compressThreshold) {
+        this.objectMapper = objectMapper;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] encode(List<Msg> messages) throws IOException {
+        Writer body = new Writer();
+        body.varint(messages.size());
+        for (Msg msg : messages) {
+            body.write(typeOf(msg.getMessageType()));
+            body.string(msg.getText());
+            body.string(msg.getMetadata() == null || msg.getMetadata().isEmpty()
+                    ? null : objectMapper.writeValueAsString(msg.getMetadata()));
+            List<AssistantMessage.ToolCall> toolCalls = msg.getToolCalls() == null ? List.of() : msg.getToolCalls();
+            body.varint(toolCalls.size());
+            for (AssistantMessage.ToolCall call : toolCalls) {
+                body.string(call.id());
+                body.string(call.type());
+                body.string(call.name());
+                body.string(call.arguments());
+            }
+        }
+        byte[] raw = body.toByteArray();
+        Writer out = new Writer();
+        out.write(MAGIC);
+        out.write(VERSION);
+        if (raw.length > compressThreshold) {
+            byte[] compressed = Zstd.compress(raw, ZSTD_LEVEL);
+            if (compressed.length + 5 < raw.length) {
+                out.write(COMPRESSION_ZSTD);
+                out.varint(raw.length);
+                out.write(compressed, 0, compressed.length);
+                return out.toByteArray();
+            }
+        }
+        out.write(COMPRESSION_NONE);
+        out.write(raw, 0, raw.length);
+        return out.toByteArray();
+    }
+
+    @Override
+    public List<Msg> decode(byte[] data) throws IOException {
+        if (data.length == 0 || data[0] != MAGIC) {
+            return objectMapper.readValue(data, MSG_LIST);
+        }
+        if (data[1] != VERSION) {
+            throw new IOException("不支持的会话记忆格式版本：" + data[1]);
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, 3, data.length - 3);
+        if (data[2] == COMPRESSION_ZSTD) {
+            int length = readVarint(in);
+            in = ByteBuffer.wrap(Zstd.decompress(Arrays.copyOfRange(data, in.position(), data.length), length));
+        } else if (data[2] != COMPRESSION_NONE) {
+            throw new IOException("不支持的会话记忆压缩方式：" + data[2]);
+        }
+        int count = readVarint(in);
+        List<Msg> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MessageType type = TYPES[in.get()];
+            String text = readString(in);
+            String metadata = readString(in);
+            int calls = readVarint(in);
+            List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>(calls);
+            for (int c = 0; c < calls; c++) {
+                toolCalls.add(new AssistantMessage.ToolCall(readString(in), readString(in), readString(in), readString(in)));
+            }
+            messages.add(new Msg(type, text,
+                    metadata == null ? new HashMap<>() : objectMapper.readValue(metadata, METADATA),
+                    type == MessageType.ASSISTANT ? toolCalls : null));
+        }
+        return messages;
+    }
+
+    private static byte typeOf(MessageType type) {
+        for (byte i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported message type: " + type);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length - 1, StandardCharsets.UTF_8);
+        in.position(in.position() + length - 1);
+        return value;
+    }
+
+    /**
+     * 写缓冲区：varint与字符串写入
+     */
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(1024);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.itheima.ai.repository.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.ai.entity.po.Msg;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 会话记忆文件编解码器（每个会话一个文件）
+ * 功能：
+ * 1. encode：按当前配置的格式写出整个会话
+ * 2. decode：按数据头识别格式读取，所有实现都能读取旧的JSON文件和新的二进制文件
+ *
+ * 可选实现：
+ * - json：与旧版本相同的JSON数组
+ * - binary：紧凑二进制格式，超过阈值时再做Zstd压缩（默认）
+ */
+public interface ChatMemoryCodec {
+
+    byte[] encode(List<Msg> messages) throws IOException;
+
+    List<Msg> decode(byte[] data) throws IOException;
+
+    /**
+     * 按名称创建编解码器
+     * @param name json 或 binary
+     * @param compressThreshold 超过该字节数才压缩（仅binary）
+     */
+    static ChatMemoryCodec of(String name, ObjectMapper objectMapper, int compressThreshold) {
+        return switch (name) {
+            case "json" -> new JsonChatMemoryCodec(objectMapper);
+            case "binary" -> new BinaryChatMemoryCodec(objectMapper, compressThreshold);
+            default -> throw new IllegalArgumentException("不支持的会话记忆编码：" + name);
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.itheima.ai.repository.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.ai.entity.po.Msg;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JSON编解码器：与旧版本写入的文件完全相同
+ */
+public class JsonChatMemoryCodec implements ChatMemoryCodec {
+
+    private final ObjectMapper objectMapper;
+
+    private final BinaryChatMemoryCodec reader;
+
+    public JsonChatMemoryCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.reader = new BinaryChatMemoryCodec(objectMapper, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public byte[] encode(List<Msg> messages) throws IOException {
+        return objectMapper.writeValueAsBytes(messages);
+    }
+
+    @Override
+    public List<Msg> decode(byte[] data) throws IOException {
+        return reader.decode(data);
+    }
+}
@@ -0,0 +1,30 @@
+package com.itheima.ai.storage;
+
+import lombok.Getter;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Path;
+
+/**
+ * 内容寻址存储中的文件资源
+ * 磁盘上的文件名是哈希，getFilename()返回上传时的原始文件名，
+ * 只用于下载响应头和向量库的file_name元数据（展示用）；检索按chat_id过滤
+ */
+@Getter
+public class BlobResource extends FileSystemResource {
+
+    private final String hash;
+
+    private final String originalFilename;
+
+    public BlobResource(Path path, String hash, String originalFilename) {
+        super(path);
+        this.hash = hash;
+        this.originalFilename = originalFilename;
+    }
+
+    @Override
+    public String getFilename() {
+        return originalFilename;
+    }
+}
@@ -0,0 +1,91 @@
+package com.itheima.ai.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 内容寻址的本地文件存储
+ * 功能：
+ * 1. 上传内容边写临时文件边计算SHA-256，不在内存中缓冲整个文件
+ * 2. 以哈希作为文件名，内容相同的文件只保存一份（跨会话去重）
+ * 3. 按哈希前两级分片建目录（ab/cd/abcd...），避免单目录文件过多
+ *
+ * 设计特点：
+ * - 临时文件写完后原子移动到目标位置，读者不会看到写了一半的文件
+ * - 目标已存在时直接丢弃临时文件
+ */
+@Slf4j
+@Component
+public class BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    private final Path tmp;
+
+    public BlobStore(@Value("${app.blob-store.root:pdf-blobs}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.tmp = this.root.resolve("tmp");
+        Files.createDirectories(tmp);
+    }
+
+    /**
+     * 流式保存
+     * @param in 上传内容（由调用方关闭）
+     * @return 内容的SHA-256（十六进制）
+     */
+    public String save(InputStream in) throws IOException {
+        Path temp = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+                Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                log.debug("文件已存在，跳过写入：{}", hash);
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 并发上传了相同内容，保留先写入的一份
+                log.debug("文件已被并发写入：{}", hash);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 根据哈希定位文件
+     */
+    public Path path(String hash) {
+        if (!HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("非法的文件哈希：" + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.itheima.ai.stream;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式文本分片合并工具
+ * 功能：把模型返回的零碎增量（通常1~3个字）攒成一批再输出，
+ * 满足任一条件即输出：
+ * 1. 累计字节数达到 maxBytes（按UTF-8估算）
+ * 2. 距离本批第一个分片已过去 maxDelay
+ *
+ * 设计特点：
+ * - 额外引入的延迟不超过 maxDelay
+ * - 上游结束或出错时先输出剩余内容
+ */
+public class ChunkCoalescer {
+
+    // 防止实例化
+    private ChunkCoalescer() {}
+
+    public static Flux<String> coalesce(Flux<String> source, int maxBytes, Duration maxDelay) {
+        return coalesce(source, maxBytes, maxDelay, Schedulers.parallel());
+    }
+
+    public static Flux<String> coalesce(Flux<String> source, int maxBytes, Duration maxDelay, Scheduler timer) {
+        return Flux.create(sink -> {
+            Batch batch = new Batch(sink, maxBytes, maxDelay.toNanos(), timer);
+            Disposable upstream = source.subscribe(batch::add, batch::error, batch::complete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                batch.cancelTimer();
+            });
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /**
+     * 估算UTF-8字节数
+     */
+    static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return bytes;
+    }
+
+    private static final class Batch {
+
+        private final FluxSink<String> sink;
+
+        private final int maxBytes;
+
+        private final long maxDelayNanos;
+
+        private final Scheduler timer;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private int bytes;
+
+        private Disposable pendingFlush;
+
+        private Batch(FluxSink<String> sink, int maxBytes, long maxDelayNanos, Scheduler timer) {
+            this.sink = sink;
+            this.maxBytes = maxBytes;
+            this.maxDelayNanos = maxDelayNanos;
+            this.timer = timer;
+        }
+
+        synchronized void add(String chunk) {
+            if (chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            if (buffer.isEmpty() && maxDelayNanos > 0) {
+                // 本批第一个分片，开始计时
+                pendingFlush = timer.schedule(this::flushOnTimer, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            buffer.append(chunk);
+            bytes += utf8Length(chunk);
+            if (bytes >= maxBytes || maxDelayNanos <= 0) {
+                flush();
+            }
+        }
+
+        synchronized void error(Throwable e) {
+            flush();
+            sink.error(e);
+        }
+
+        synchronized void complete() {
+            flush();
+            sink.complete();
+        }
+
+        synchronized void cancelTimer() {
+            if (pendingFlush != null) {
+                pendingFlush.dispose();
+                pendingFlush = null;
+            }
+        }
+
+        private synchronized void flushOnTimer() {
+            pendingFlush = null;
+            flush();
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (buffer.isEmpty()) {
+                return;
+            }
+            String text = buffer.toString();
+            buffer.setLength(0);
+            bytes = 0;
+            sink.next(text);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.itheima.ai.stream;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式响应输出
+ * 功能：
+ * 1. text/html模式：合并模型的零碎增量后再写出，减少写次数和flush
+ * 2. SSE模式：每批内容带事件ID（流ID:序号），断线重连时按Last-Event-ID续传
+ * 3. 记录合并前的分片数与实际写次数（ai.stream.chunks / ai.stream.writes）
+ *
+ * 续传原理：
+ * - SSE模式下模型输出会被缓存，客户端断开后模型继续生成（保证会话记忆完整）
+ * - 重连时从缓存中跳过已收到的事件，继续推送剩余内容
+ * - 流结束后缓存保留 resumeTtl，之后无法续传
+ * - 缓存按 ChatClient名称 + 流ID 保存，只能在同一个接口续传，不能用别的接口的事件ID读取其他接口的输出
+ */
+@Slf4j
+@Component
+public class StreamingResponder {
+
+    private final ChatMetrics chatMetrics;
+
+    private final boolean enabled;
+
+    private final int maxBytes;
+
+    private final Duration maxDelay;
+
+    private final Duration resumeTtl;
+
+    // ChatClient名称/流ID -> 已合并的输出（可重放）
+    private final Map<String, Flux<String>> resumable = new ConcurrentHashMap<>();
+
+    public StreamingResponder(ChatMetrics chatMetrics,
+                              @Value("${app.stream.coalesce.enabled:true}") boolean enabled,
+                              @Value("${app.stream.coalesce.max-bytes:256}") int maxBytes,
+                              @Value("${app.stream.coalesce.max-delay:20ms}") Duration maxDelay,
+                              @Value("${app.stream.resume-ttl:60s}") Duration resumeTtl) {
+        this.chatMetrics = chatMetrics;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxDelay = maxDelay;
+        this.resumeTtl = resumeTtl;
+    }
+
+    /**
+     * text/html模式输出
+     * @param client ChatClient名称（指标标签）
+     * @param content 模型输出
+     */
+    public Flux<String> text(String client, Flux<String> content) {
+        return coalesce(client, "text", content);
+    }
+
+    /**
+     * SSE模式输出
+     * @param client ChatClient名称（指标标签）
+     * @param content 模型输出，延迟订阅；续传时不会被订阅
+     * @param lastEventId 请求头Last-Event-ID，首次请求为null
+     */
+    public Flux<ServerSentEvent<String>> sse(String client, Flux<String> content, String lastEventId) {
+        // 1.续传
+        if (StringUtils.hasText(lastEventId)) {
+            Flux<ServerSentEvent<String>> resumed = resume(client, lastEventId);
+            if (resumed != null) {
+                return resumed;
+            }
+            log.debug("无法续传，重新生成：{}", lastEventId);
+        }
+        // 2.新的流：缓存输出，断开后继续生成
+        String streamId = UUID.randomUUID().toString();
+        String key = key(client, streamId);
+        Flux<String> cached = coalesce(client, "sse", content)
+                .doFinally(signal -> Mono.delay(resumeTtl).subscribe(t -> resumable.remove(key)))
+                .replay()
+                .autoConnect();
+        resumable.put(key, cached);
+        return events(streamId, cached, 0);
+    }
+
+    private Flux<ServerSentEvent<String>> resume(String client, String lastEventId) {
+        int split = lastEventId.lastIndexOf(':');
+        if (split < 0) {
+            return null;
+        }
+        String streamId = lastEventId.substring(0, split);
+        Flux<String> cached = resumable.get(key(client, streamId));
+        if (cached == null) {
+            return null;
+        }
+        long next;
+        try {
+            next = Long.parseLong(lastEventId.substring(split + 1)) + 1;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return events(streamId, cached.skip(next), next);
+    }
+
+    private static String key(String client, String streamId) {
+        return client + "/" + streamId;
+    }
+
+    private static Flux<ServerSentEvent<String>> events(String streamId, Flux<String> batches, long firstSeq) {
+        AtomicLong seq = new AtomicLong(firstSeq);
+        return batches.map(text -> ServerSentEvent.<String>builder()
+                .id(streamId + ":" + seq.getAndIncrement())
+                .data(text)
+                .build());
+    }
+
+    private Flux<String> coalesce(String client, String mode, Flux<String> content) {
+        Flux<String> counted = content.doOnNext(chunk -> chatMetrics.recordStreamChunk(client, mode));
+        Flux<String> output = enabled ? ChunkCoalescer.coalesce(counted, maxBytes, maxDelay) : counted;
+        return output.doOnNext(text -> chatMetrics.recordStreamWrite(client, mode));
+    }
+}
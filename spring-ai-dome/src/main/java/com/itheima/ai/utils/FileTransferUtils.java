@@ -0,0 +1,133 @@
+package com.itheima.ai.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文件下载工具：支持单段Range请求，尽量走零拷贝
+ * 1. Tomcat NIO连接器支持sendfile时，交给容器直接从文件写到socket
+ * 2. 否则使用FileChannel.transferTo写入响应流
+ */
+public class FileTransferUtils {
+
+    // 防止实例化
+    private FileTransferUtils() {}
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 单段Range：首尾位置只能是非负整数，多段（逗号分隔）和带符号的数字都不匹配
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=\\s*(\\d*)\\s*-\\s*(\\d*)\\s*");
+
+    /**
+     * 发送文件内容（调用方负责设置Content-Type、Content-Disposition）
+     * @param file 文件路径
+     * @param request 请求（读取Range头）
+     * @param response 响应
+     */
+    public static void send(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            // 1.解析Range
+            long start = 0;
+            long end = length - 1;
+            String range = request.getHeader(HttpHeaders.RANGE);
+            if (range != null) {
+                long[] parsed = parseRange(range, length);
+                if (parsed == null) {
+                    // 多段Range等不支持的格式，按完整文件返回
+                    range = null;
+                } else if (parsed.length == 0) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                } else {
+                    start = parsed[0];
+                    end = parsed[1];
+                }
+            }
+            long count = end - start + 1;
+            if (range != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            response.setContentLengthLong(count);
+
+            // 2.容器支持sendfile时交给容器发送
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+
+            // 3.否则用transferTo写入响应流
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (count > 0) {
+                long written = channel.transferTo(position, count, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                count -= written;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 解析单段Range：bytes=start-end、bytes=start-、bytes=-suffix
+     * @return {start, end}；格式不支持时返回null；无法满足时返回空数组
+     */
+    static long[] parseRange(String range, long length) {
+        Matcher matcher = SINGLE_RANGE.matcher(range);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                // 最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            // 超出long范围
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.itheima.ai.advisor;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import com.itheima.ai.rag.Bm25Index;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 混合检索：关键词快速通道、RRF融合、按会话过滤
+ */
+class HybridRetrievalAdvisorTest {
+
+    private final VectorStore vectorStore = mock(VectorStore.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Bm25Index bm25Index = new Bm25Index();
+
+    private HybridRetrievalAdvisor advisor;
+
+    @BeforeEach
+    void setUp() {
+        advisor = new HybridRetrievalAdvisor(vectorStore, bm25Index, new ChatMetrics(meterRegistry), "pdf", 2, 0.5);
+        bm25Index.add(List.of(
+                doc("put", "HashMap的put方法先计算键的哈希值"),
+                doc("resize", "HashMap扩容时容量翻倍"),
+                doc("gc", "Java的垃圾回收器会回收不可达对象"),
+                doc("other", "Java内存模型规定了线程之间的可见性")));
+    }
+
+    @Test
+    void testIdentifierQueryTakesKeywordFastPath() {
+        List<Document> documents = retrieve("HashMap的put方法怎么实现");
+        assertEquals(List.of("put", "resize"), ids(documents));
+        verify(vectorStore, never()).similaritySearch(any(SearchRequest.class));
+        assertEquals(1, meterRegistry.get("ai.chat.retrieval").tag("path", "keyword").timer().count());
+    }
+
+    @Test
+    void testPlainEnglishWordStillUsesVectorSearch() {
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(doc("other", "")));
+        // "Java"被BM25首条结果命中，但不是标识符，仍然走混合检索
+        retrieve("Java怎么回收对象");
+        verify(vectorStore).similaritySearch(any(SearchRequest.class));
+        assertEquals(1, meterRegistry.get("ai.chat.retrieval").tag("path", "hybrid").timer().count());
+    }
+
+    @Test
+    void testFusionRanksDocumentsFoundByBothFirst() {
+        // 向量检索：other第一、gc第二；BM25："垃圾回收器"只命中gc
+        when(vectorStore.similaritySearch(any(SearchRequest.class)))
+                .thenReturn(List.of(doc("other", ""), doc("gc", "")));
+        assertEquals(List.of("gc", "other"), ids(retrieve("垃圾回收器")));
+    }
+
+    @Test
+    void testVectorSearchIsFilteredByChat() {
+        AtomicReference<SearchRequest> captured = new AtomicReference<>();
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            captured.set(invocation.getArgument(0));
+            return List.of();
+        });
+        retrieve("线程可见性");
+        Filter.Expression filter = captured.get().getFilterExpression();
+        assertEquals(Filter.ExpressionType.EQ, filter.type());
+        assertEquals(Bm25Index.CHAT_ID, ((Filter.Key) filter.left()).key());
+        assertEquals("chat-a", ((Filter.Value) filter.right()).value());
+    }
+
+    // 会话ID来自请求路径：带引号的ID原样作为过滤值，不能改写过滤条件
+    @Test
+    void testChatIdWithQuoteIsNotParsedIntoFilter() {
+        AtomicReference<SearchRequest> captured = new AtomicReference<>();
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            captured.set(invocation.getArgument(0));
+            return List.of();
+        });
+        String chatId = "x' || chat_id != 'y";
+        retrieve("线程可见性", Map.of(HybridRetrievalAdvisor.CHAT_ID, chatId));
+        Filter.Expression filter = captured.get().getFilterExpression();
+        assertEquals(Filter.ExpressionType.EQ, filter.type());
+        assertEquals(Bm25Index.CHAT_ID, ((Filter.Key) filter.left()).key());
+        assertEquals(chatId, ((Filter.Value) filter.right()).value());
+    }
+
+    // 旧数据按文件名过滤：文件名由上传者提供，带引号时同样原样作为过滤值
+    @Test
+    void testFileNameWithQuoteIsNotParsedIntoFilter() {
+        AtomicReference<SearchRequest> captured = new AtomicReference<>();
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            captured.set(invocation.getArgument(0));
+            return List.of();
+        });
+        String fileName = "a' || file_name != 'b.pdf";
+        retrieve("线程可见性", Map.of(HybridRetrievalAdvisor.FILE_NAME, fileName));
+        Filter.Expression filter = captured.get().getFilterExpression();
+        assertEquals(Filter.ExpressionType.EQ, filter.type());
+        assertEquals(Bm25Index.FILE_NAME, ((Filter.Key) filter.left()).key());
+        assertEquals(fileName, ((Filter.Value) filter.right()).value());
+    }
+
+    private List<Document> retrieve(String query) {
+        return retrieve(query, Map.of(HybridRetrievalAdvisor.CHAT_ID, "chat-a"));
+    }
+
+    private List<Document> retrieve(String query, Map<String, Object> advisorParams) {
+        AdvisedRequest request = AdvisedRequest.builder()
+                .chatModel(mock(ChatModel.class))
+                .userText(query)
+                .advisorParams(advisorParams)
+                .build();
+        AtomicReference<AdvisedRequest> advised = new AtomicReference<>();
+        advisor.aroundCall(request, next -> {
+            advised.set(next);
+            return new AdvisedResponse(null, Map.of());
+        });
+        @SuppressWarnings("unchecked")
+        List<Document> documents = (List<Document>) advised.get().adviseContext()
+                .get(HybridRetrievalAdvisor.RETRIEVED_DOCUMENTS);
+        return documents;
+    }
+
+    private static Document doc(String id, String text) {
+        return new Document(id, text.isEmpty() ? id : text,
+                Map.of(Bm25Index.CHAT_ID, "chat-a", Bm25Index.FILE_NAME, "manual.pdf"));
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.itheima.ai.metrics;
+
+import com.itheima.ai.advisor.ChatMetricsAdvisor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallbacks;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具调用耗时：按ChatClient和模型打标签；ChatClient名称只用于打标签，不会传给工具
+ */
+class MeteredToolCallingManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ChatMetrics chatMetrics = new ChatMetrics(meterRegistry);
+
+    @Test
+    void testToolTimerIsTaggedWithClient() {
+        MeteredToolCallingManager manager = new MeteredToolCallingManager(ToolCallingManager.builder().build(), chatMetrics);
+        ToolCallingChatModel model = new ToolCallingChatModel(manager);
+        ChatClient client = ChatClient.builder(model)
+                .defaultAdvisors(new ChatMetricsAdvisor("service", chatMetrics))
+                .build();
+
+        String reply = client.prompt().user("有哪些校区").call().content();
+
+        // 不接收ToolContext的@Tool方法正常执行（上下文中的ChatClient名称已移除）
+        assertTrue(reply.contains("北京校区"), reply);
+        assertEquals("service", ((ToolCallingChatOptions) model.prompt.get().getOptions())
+                .getToolContext().get(MeteredToolCallingManager.CLIENT));
+        assertEquals(1, meterRegistry.get("ai.chat.tool")
+                .tag(ChatMetrics.TAG_CLIENT, "service")
+                .tag(ChatMetrics.TAG_MODEL, "qwen-plus")
+                .timer().count());
+    }
+
+    // 没有经过ChatMetricsAdvisor的请求：client标签为unknown，工具上下文原样传递
+    @Test
+    void testWithoutClientUsesUnknownTag() {
+        MeteredToolCallingManager manager = new MeteredToolCallingManager(ToolCallingManager.builder().build(), chatMetrics);
+        ToolCallingChatModel model = new ToolCallingChatModel(manager);
+
+        ChatResponse response = model.call(new Prompt("有哪些校区", model.getDefaultOptions()));
+
+        assertTrue(response.getResult().getOutput().getText().contains("北京校区"));
+        assertEquals(1, meterRegistry.get("ai.chat.tool")
+                .tag(ChatMetrics.TAG_CLIENT, ChatMetrics.UNKNOWN)
+                .timer().count());
+    }
+
+    static class SchoolTools {
+
+        @Tool(description = "查询所有校区")
+        public String querySchools() {
+            return "北京校区";
+        }
+    }
+
+    /**
+     * 第一轮返回工具调用，由ToolCallingManager执行后把工具结果作为回答
+     */
+    private static class ToolCallingChatModel implements ChatModel {
+
+        private final ToolCallingManager toolCallingManager;
+
+        private final AtomicReference<Prompt> prompt = new AtomicReference<>();
+
+        ToolCallingChatModel(ToolCallingManager toolCallingManager) {
+            this.toolCallingManager = toolCallingManager;
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ToolCallingChatOptions.builder()
+                    .model("qwen-plus")
+                    .toolCallbacks(ToolCallbacks.from(new SchoolTools()))
+                    .build();
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.prompt.set(prompt);
+            ChatResponse toolCall = new ChatResponse(List.of(new Generation(new AssistantMessage("", Map.of(),
+                    List.of(new AssistantMessage.ToolCall("call_1", "function", "querySchools", "{}"))))));
+            ToolExecutionResult result = toolCallingManager.executeToolCalls(prompt, toolCall);
+            List<Message> history = result.conversationHistory();
+            ToolResponseMessage toolResponse = (ToolResponseMessage) history.get(history.size() - 1);
+            String text = toolResponse.getResponses().get(0).responseData();
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+        }
+    }
+}
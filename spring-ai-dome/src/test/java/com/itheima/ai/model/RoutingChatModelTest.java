@@ -0,0 +1,146 @@
+package com.itheima.ai.model;
+
+import com.itheima.ai.advisor.ChatMetricsAdvisor;
+import com.itheima.ai.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型路由：首分片超时切换、出错切换、已输出后不切换、按实际模型打指标标签
+ */
+class RoutingChatModelTest {
+
+    private static final List<RoutingChatModel.Route> ROUTES = List.of(
+            new RoutingChatModel.Route("fast", true, true),
+            new RoutingChatModel.Route("backup", false, false));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ChatMetrics chatMetrics = new ChatMetrics(meterRegistry);
+
+    @Test
+    void testFirstChunkTimeoutFailsOver() {
+        FakeChatModel delegate = new FakeChatModel(Map.of(
+                "fast", Flux.never(),
+                "backup", Flux.just("备用", "模型")));
+        RoutingChatModel router = new RoutingChatModel(delegate, ROUTES, Duration.ofMillis(200), chatMetrics);
+
+        List<ChatResponse> responses = router.stream(prompt("fast")).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("备用模型", text(responses));
+        assertEquals(List.of("fast", "backup"), delegate.requested);
+        responses.forEach(r -> assertEquals("backup", r.getMetadata().get(RoutingChatModel.ROUTED_MODEL)));
+        assertTrue(meterRegistry.get("ai.route.error.rate").tag("model", "fast").gauge().value() > 0);
+    }
+
+    @Test
+    void testErrorBeforeFirstChunkFailsOver() {
+        FakeChatModel delegate = new FakeChatModel(Map.of(
+                "fast", Flux.error(new IllegalStateException("503")),
+                "backup", Flux.just("ok")));
+        RoutingChatModel router = new RoutingChatModel(delegate, ROUTES, Duration.ofSeconds(5), chatMetrics);
+
+        assertEquals("ok", text(router.stream(prompt("fast")).collectList().block(Duration.ofSeconds(5))));
+        assertEquals(List.of("fast", "backup"), delegate.requested);
+        // 出过错的模型排到后面
+        router.stream(prompt(null)).blockLast(Duration.ofSeconds(5));
+        assertEquals("backup", delegate.requested.get(2));
+    }
+
+    @Test
+    void testErrorAfterFirstChunkIsNotRetried() {
+        FakeChatModel delegate = new FakeChatModel(Map.of(
+                "fast", Flux.just("半").concatWith(Flux.error(new IllegalStateException("断开"))),
+                "backup", Flux.just("ok")));
+        RoutingChatModel router = new RoutingChatModel(delegate, ROUTES, Duration.ofSeconds(5), chatMetrics);
+
+        assertThrows(IllegalStateException.class, () -> router.stream(prompt("fast")).blockLast(Duration.ofSeconds(5)));
+        assertEquals(List.of("fast"), delegate.requested);
+    }
+
+    @Test
+    void testCallSkipsStreamOnlyModelsAndKeepsTtftUntouched() {
+        FakeChatModel delegate = new FakeChatModel(Map.of("backup", Flux.just("同步")));
+        RoutingChatModel router = new RoutingChatModel(delegate, ROUTES, Duration.ofSeconds(5), chatMetrics);
+
+        ChatResponse response = router.call(prompt("fast"));
+
+        assertEquals("同步", response.getResult().getOutput().getText());
+        assertEquals("backup", response.getMetadata().get(RoutingChatModel.ROUTED_MODEL));
+        assertEquals(List.of("backup"), delegate.requested);
+        assertEquals(0, meterRegistry.get("ai.route.ttft").tag("model", "backup").gauge().value());
+    }
+
+    @Test
+    void testMetricsAreTaggedWithRoutedModel() {
+        FakeChatModel delegate = new FakeChatModel(Map.of(
+                "fast", Flux.error(new IllegalStateException("503")),
+                "backup", Flux.just("ok")));
+        ChatClient client = ChatClient.builder(new RoutingChatModel(delegate, ROUTES, Duration.ofSeconds(5), chatMetrics))
+                .defaultOptions(ChatOptions.builder().model("fast").build())
+                .defaultAdvisors(new ChatMetricsAdvisor("chat", chatMetrics))
+                .build();
+
+        client.prompt().user("你好").stream().content().blockLast(Duration.ofSeconds(5));
+
+        assertEquals(1, meterRegistry.get("ai.chat.first.token").tag("model", "backup").timer().count());
+        assertEquals(1, meterRegistry.get("ai.chat.duration").tag("model", "backup").timer().count());
+        assertNull(meterRegistry.find("ai.chat.duration").tag("model", "fast").timer());
+    }
+
+    private static Prompt prompt(String model) {
+        return new Prompt("你好", ChatOptions.builder().model(model).build());
+    }
+
+    private static String text(List<ChatResponse> responses) {
+        return String.join("", responses.stream().map(r -> r.getResult().getOutput().getText()).toList());
+    }
+
+    /**
+     * 按请求的模型名称返回预设分片的ChatModel
+     */
+    private static class FakeChatModel implements ChatModel {
+
+        private final Map<String, Flux<String>> chunks;
+
+        private final List<String> requested = new CopyOnWriteArrayList<>();
+
+        FakeChatModel(Map<String, Flux<String>> chunks) {
+            this.chunks = new ConcurrentHashMap<>(chunks);
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            String model = prompt.getOptions().getModel();
+            requested.add(model);
+            return response(String.join("", chunks.get(model).collectList().block()));
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            String model = prompt.getOptions().getModel();
+            requested.add(model);
+            return chunks.get(model).map(FakeChatModel::response);
+        }
+
+        private static ChatResponse response(String text) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.itheima.ai.prompt;
+
+import com.itheima.ai.constants.SystemConstants;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 系统提示词渲染耗时对比：StringTemplate（PromptTemplate） vs 预编译模板
+ * 不依赖Spring容器；一致性校验随单元测试运行，耗时对比通过 mvn test -Pbenchmark 运行
+ */
+class PromptTemplateBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+
+    private static final int ITERATIONS = 200_000;
+
+    // 渲染结果与PromptTemplate一致
+    @Test
+    void testParity() {
+        Map<String, Object> params = Map.of("current_date", LocalDate.now());
+        String expected = new PromptTemplate(SystemConstants.CHAT_SYSTEM_PROMPT, params).render();
+        assertEquals(expected, SystemPrompts.CHAT.render(params));
+        assertEquals(expected, SystemPrompts.chat());
+        // 静态提示词中的 {女友心情} 等花括号原样保留
+        assertEquals(SystemConstants.GAME_SYSTEM_PROMPT, SystemPrompts.GAME.render());
+        assertEquals(SystemConstants.SERVICE_SYSTEM_PROMPT, SystemPrompts.SERVICE.render());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkRender() {
+        Map<String, Object> params = Map.of("current_date", LocalDate.now());
+        double st = measure("StringTemplate", () ->
+                new PromptTemplate(SystemConstants.CHAT_SYSTEM_PROMPT, params).render());
+        double compileEachTime = measure("每次编译", () ->
+                CompiledPromptTemplate.compile(SystemConstants.CHAT_SYSTEM_PROMPT).render(params));
+        double cached = measure("预编译+缓存", SystemPrompts::chat);
+        System.out.printf("加速比：每次编译 %.1fx，预编译+缓存 %.1fx%n", st / compileEachTime, st / cached);
+    }
+
+    private static double measure(String name, Supplier<String> render) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += render.get().length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += render.get().length();
+        }
+        double nsPerOp = (double) (System.nanoTime() - start) / ITERATIONS;
+        System.out.printf("%-16s %10.1f ns/op (%d)%n", name, nsPerOp, sink);
+        return nsPerOp;
+    }
+}
@@ -0,0 +1,92 @@
+package com.itheima.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BM25索引：打分排序、按会话/文件名过滤、删除、持久化
+ */
+class Bm25IndexTest {
+
+    @Test
+    void testRanksByTermFrequencyAndRarity() {
+        Bm25Index index = new Bm25Index();
+        index.add(List.of(
+                doc("once", "chat-a", "a.pdf", "HashMap是常用的集合，线程不安全"),
+                doc("twice", "chat-a", "a.pdf", "HashMap的put方法：HashMap按键的哈希值定位桶"),
+                doc("none", "chat-a", "a.pdf", "ArrayList基于数组实现")));
+
+        List<Bm25Index.Hit> hits = index.search("HashMap", "chat-a", null, 10);
+        assertEquals(List.of("twice", "once"), ids(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals(Set.of("hashmap"), hits.get(0).matchedTerms());
+    }
+
+    @Test
+    void testDeleteRemovesFromPostings() {
+        Bm25Index index = new Bm25Index();
+        index.add(List.of(doc("a1", "chat-a", "a.pdf", "营业收入增长"), doc("a2", "chat-a", "a.pdf", "营业收入下降")));
+        index.delete(List.of("a1"));
+        assertEquals(1, index.size());
+        assertEquals(List.of("a2"), ids(index.search("营业收入", "chat-a", null, 10)));
+    }
+
+    @Test
+    void testSearchIsScopedByChat() {
+        Bm25Index index = new Bm25Index();
+        index.add(List.of(
+                doc("a1", "chat-a", "report.pdf", "营业收入同比增长百分之十"),
+                doc("b1", "chat-b", "report.pdf", "营业收入同比下降百分之五")));
+
+        List<Bm25Index.Hit> hits = index.search("营业收入", "chat-a", null, 10);
+        assertEquals(List.of("a1"), ids(hits));
+        assertEquals("chat-a", hits.get(0).document().getMetadata().get(Bm25Index.CHAT_ID));
+        // 同名文件不会跨会话命中
+        assertEquals(List.of("b1"), ids(index.search("营业收入", "chat-b", "report.pdf", 10)));
+    }
+
+    @Test
+    void testLegacyDocumentsAreScopedByFileName() {
+        Bm25Index index = new Bm25Index();
+        index.add(List.of(
+                new Document("old", "旧数据没有会话ID", Map.of(Bm25Index.FILE_NAME, "old.pdf")),
+                doc("new", "chat-a", "new.pdf", "新数据带有会话ID")));
+
+        assertEquals(List.of("old"), ids(index.search("会话", null, "old.pdf", 10)));
+        assertEquals(2, index.search("会话", null, null, 10).size());
+    }
+
+    @Test
+    void testSaveAndLoadKeepsChatId() throws IOException {
+        Bm25Index index = new Bm25Index();
+        index.add(List.of(doc("a1", "chat-a", "report.pdf", "净利润同比增长")));
+        File file = Files.createTempFile("bm25", ".json").toFile();
+        try {
+            index.save(file);
+            Bm25Index loaded = new Bm25Index();
+            loaded.load(new FileSystemResource(file));
+            assertEquals(List.of("a1"), ids(loaded.search("净利润", "chat-a", null, 10)));
+            assertTrue(loaded.search("净利润", "chat-b", null, 10).isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    static Document doc(String id, String chatId, String fileName, String text) {
+        return new Document(id, text, Map.of(Bm25Index.CHAT_ID, chatId, Bm25Index.FILE_NAME, fileName));
+    }
+
+    static List<String> ids(List<Bm25Index.Hit> hits) {
+        return hits.stream().map(hit -> hit.document().getId()).toList();
+    }
+}
@@ -0,0 +1,29 @@
+package com.itheima.ai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分词与精确词提取
+ */
+class ChineseTokenizerTest {
+
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("string.valueof", "string", "valueof", "方", "法", "方法"),
+                ChineseTokenizer.tokenize("String.valueOf方法。"));
+    }
+
+    @Test
+    void testExactTermsOnlyKeepIdentifiers() {
+        assertEquals(List.of("hashmap", "string.valueof", "err_timeout", "http404"),
+                ChineseTokenizer.exactTerms("HashMap和String.valueOf报ERR_TIMEOUT或HTTP404"));
+        // 普通英文单词、缩写不算精确词
+        assertTrue(ChineseTokenizer.exactTerms("Java手册里怎么讲Spring和JDK的").isEmpty());
+        assertTrue(ChineseTokenizer.exactTerms("how does java handle memory").isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.itheima.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 页指纹索引：同一会话增量更新，不同会话同名文件互不影响
+ */
+class PageFingerprintIndexTest {
+
+    @Test
+    void testReuploadOnlyDiffsChangedPages() {
+        PageFingerprintIndex index = new PageFingerprintIndex();
+        PageFingerprintIndex.Diff first = index.diff("chat-a", "report.pdf", pages("第一页", "第二页", "第三页"));
+        index.commit("chat-a", first);
+        assertEquals(3, first.added().size());
+
+        PageFingerprintIndex.Diff second = index.diff("chat-a", "report.pdf", pages("第一页", "第二页（修订）", "第三页"));
+        assertEquals(1, second.added().size());
+        assertEquals(1, second.removed().size());
+        assertEquals(2, second.unchanged());
+        assertEquals("chat-a", second.added().get(0).getMetadata().get(PageFingerprintIndex.CHAT_ID));
+        assertEquals("report.pdf", second.added().get(0).getMetadata().get("file_name"));
+    }
+
+    @Test
+    void testSameFileNameInAnotherChatRemovesNothing() {
+        PageFingerprintIndex index = new PageFingerprintIndex();
+        PageFingerprintIndex.Diff chatA = index.diff("chat-a", "report.pdf", pages("A的第一页", "A的第二页"));
+        index.commit("chat-a", chatA);
+
+        PageFingerprintIndex.Diff chatB = index.diff("chat-b", "report.pdf", pages("B的第一页", "A的第二页"));
+        assertTrue(chatB.removed().isEmpty());
+        // 内容相同的页在不同会话中也是不同的文档
+        assertEquals(2, chatB.added().size());
+        assertTrue(chatB.added().stream().noneMatch(doc -> chatA.added().stream()
+                .anyMatch(a -> a.getId().equals(doc.getId()))));
+    }
+
+    private static List<Document> pages(String... texts) {
+        return Arrays.stream(texts).map(Document::new).toList();
+    }
+}
@@ -0,0 +1,85 @@
+package com.itheima.ai.repository.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itheima.ai.constants.SystemConstants;
+import com.itheima.ai.entity.po.Msg;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 会话记忆文件编解码基准测试：JSON vs 紧凑二进制(+Zstd)
+ * 会话内容为智能客服的一段多轮对话（含工具调用）；
+ * 耗时对比（benchmark）需 mvn test -Pbenchmark 运行，控制台输出文件大小与编解码吞吐
+ */
+class ChatMemoryCodecBenchmarkTest {
+
+    private static final int ROUNDS = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 两种编码都能读取对方写入的文件，结果一致
+    @Test
+    void testRoundTrip() throws IOException {
+        List<Msg> conversation = conversation();
+        ChatMemoryCodec json = new JsonChatMemoryCodec(objectMapper);
+        ChatMemoryCodec binary = new BinaryChatMemoryCodec(objectMapper, 512);
+        String expected = objectMapper.writeValueAsString(json.decode(json.encode(conversation)));
+        assertEquals(expected, objectMapper.writeValueAsString(binary.decode(binary.encode(conversation))));
+        assertEquals(expected, objectMapper.writeValueAsString(binary.decode(json.encode(conversation))));
+        assertEquals(expected, objectMapper.writeValueAsString(json.decode(binary.encode(conversation))));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark() throws IOException {
+        List<Msg> conversation = conversation();
+        run("json", new JsonChatMemoryCodec(objectMapper), conversation, 50);
+        run("binary", new BinaryChatMemoryCodec(objectMapper, Integer.MAX_VALUE), conversation, 50);
+        run("binary+zstd", new BinaryChatMemoryCodec(objectMapper, 512), conversation, 50);
+        run("json", new JsonChatMemoryCodec(objectMapper), conversation, ROUNDS);
+        run("binary", new BinaryChatMemoryCodec(objectMapper, Integer.MAX_VALUE), conversation, ROUNDS);
+        run("binary+zstd", new BinaryChatMemoryCodec(objectMapper, 512), conversation, ROUNDS);
+    }
+
+    private static void run(String name, ChatMemoryCodec codec, List<Msg> conversation, int rounds) throws IOException {
+        byte[] encoded = codec.encode(conversation);
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            codec.encode(conversation);
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            codec.decode(encoded);
+        }
+        long decodeNanos = System.nanoTime() - start;
+        System.out.printf("%-12s %8d bytes  encode %8.1f us/op  decode %8.1f us/op%n",
+                name, encoded.length, encodeNanos / 1000.0 / rounds, decodeNanos / 1000.0 / rounds);
+    }
+
+    private static List<Msg> conversation() {
+        List<Msg> messages = new ArrayList<>();
+        messages.add(new Msg(new SystemMessage(SystemConstants.SERVICE_SYSTEM_PROMPT)));
+        for (int turn = 0; turn < 10; turn++) {
+            messages.add(new Msg(new UserMessage("我今年高中毕业，学历是高中，对编程比较感兴趣，有没有适合我的课程？第" + turn + "次咨询")));
+            messages.add(new Msg(new AssistantMessage("", Map.of(), List.of(new AssistantMessage.ToolCall(
+                    "call_" + turn, "function", "queryCourse", "{\"query\":{\"type\":\"编程\",\"edu\":1}}")))));
+            messages.add(new Msg(new AssistantMessage("根据你的情况，推荐以下课程：\n"
+                    + "1. JavaEE：学习时长10个月，价格21999元，适合零基础、对后端开发感兴趣的同学；\n"
+                    + "2. 前端开发：学习时长8个月，价格19999元，适合喜欢做界面和交互的同学；\n"
+                    + "3. 人工智能：学习时长9个月，价格23999元，需要一定的数学基础。\n"
+                    + "请问你更倾向哪个方向？另外方便留一下你的姓名和联系方式吗？我帮你预约试听。")));
+        }
+        return messages;
+    }
+}
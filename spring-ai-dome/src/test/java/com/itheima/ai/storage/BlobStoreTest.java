@@ -0,0 +1,103 @@
+package com.itheima.ai.storage;
+
+import com.itheima.ai.rag.Bm25Index;
+import com.itheima.ai.rag.PageFingerprintIndex;
+import com.itheima.ai.repository.LocalPdfFileRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 内容寻址存储：哈希分片路径、相同内容只保存一份（含跨会话上传）、非法哈希
+ */
+class BlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSaveUsesShardedHashPath() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        // "abc"的SHA-256
+        String hash = store.save(stream("abc"));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+        Path path = store.path(hash);
+        assertEquals(dir.toAbsolutePath().resolve("ba").resolve("78").resolve(hash), path);
+        assertEquals("abc", Files.readString(path));
+        // 临时文件已清理
+        assertEquals(0, count(dir.resolve("tmp")));
+    }
+
+    @Test
+    void testIdenticalContentIsStoredOnce() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        String first = store.save(stream("同一份PDF"));
+        String second = store.save(stream("同一份PDF"));
+        String other = store.save(stream("另一份PDF"));
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(2, blobs());
+        assertEquals(0, count(dir.resolve("tmp")));
+    }
+
+    // 两个会话上传相同内容（文件名不同）：磁盘上只有一份，各自保留原始文件名
+    @Test
+    void testIdenticalUploadsAcrossChatsAreDeduplicated() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        LocalPdfFileRepository repository = new LocalPdfFileRepository(store, mock(VectorStore.class),
+                new Bm25Index(), mock(PageFingerprintIndex.class));
+        assertTrue(repository.save("chat-a", upload("java.pdf", "同一份PDF")));
+        assertTrue(repository.save("chat-b", upload("java副本.pdf", "同一份PDF")));
+
+        Resource a = repository.getFile("chat-a");
+        Resource b = repository.getFile("chat-b");
+        assertEquals("java.pdf", a.getFilename());
+        assertEquals("java副本.pdf", b.getFilename());
+        assertEquals(a.getFile().toPath(), b.getFile().toPath());
+        assertEquals(1, blobs());
+    }
+
+    @Test
+    void testInvalidHashIsRejected() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        assertThrows(IllegalArgumentException.class, () -> store.path("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.path("BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD"));
+    }
+
+    private long blobs() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Resource upload(String filename, String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.itheima.ai.stream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 分片合并：达到字节数立即输出、达到最大延迟输出、结束/出错时输出剩余内容
+ * 计时相关的用例使用虚拟时间，不依赖真实耗时
+ */
+class ChunkCoalescerTest {
+
+    private final Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+
+    // 中文按3字节计：两个字达到6字节立即输出，不等计时器
+    @Test
+    void testFlushAtMaxBytes() {
+        StepVerifier.create(ChunkCoalescer.coalesce(source.asFlux(), 6, Duration.ofHours(1)))
+                .then(() -> emit("你", "好"))
+                .expectNext("你好")
+                .then(() -> emit("a"))
+                .then(source::tryEmitComplete)
+                .expectNext("a")
+                .verifyComplete();
+    }
+
+    // 本批第一个分片到达后 maxDelay 输出，期间到达的分片合并在同一批
+    @Test
+    void testFlushAtMaxDelay() {
+        StepVerifier.withVirtualTime(() -> ChunkCoalescer.coalesce(source.asFlux(), 1024, Duration.ofMillis(20),
+                        Schedulers.parallel()))
+                .expectSubscription()
+                .then(() -> emit("你"))
+                .expectNoEvent(Duration.ofMillis(10))
+                .then(() -> emit("好"))
+                .expectNoEvent(Duration.ofMillis(9))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("你好")
+                // 下一批重新计时
+                .then(() -> emit("吗"))
+                .expectNoEvent(Duration.ofMillis(19))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("吗")
+                .then(source::tryEmitComplete)
+                .verifyComplete();
+    }
+
+    // 达到字节数输出后取消计时器，不会再输出空批或重复输出
+    @Test
+    void testByteFlushCancelsTimer() {
+        StepVerifier.withVirtualTime(() -> ChunkCoalescer.coalesce(source.asFlux(), 2, Duration.ofMillis(20),
+                        Schedulers.parallel()))
+                .expectSubscription()
+                .then(() -> emit("ab"))
+                .expectNext("ab")
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(source::tryEmitComplete)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFinalFlushOnComplete() {
+        StepVerifier.create(ChunkCoalescer.coalesce(source.asFlux(), 1024, Duration.ofHours(1)))
+                .then(() -> emit("剩", "余"))
+                .then(source::tryEmitComplete)
+                .expectNext("剩余")
+                .verifyComplete();
+    }
+
+    // 出错前先输出已收到的内容，再传递错误
+    @Test
+    void testFinalFlushOnError() {
+        StepVerifier.create(ChunkCoalescer.coalesce(source.asFlux(), 1024, Duration.ofHours(1)))
+                .then(() -> emit("半句"))
+                .then(() -> source.tryEmitError(new IllegalStateException("断开")))
+                .expectNext("半句")
+                .expectErrorMessage("断开")
+                .verify();
+    }
+
+    // maxDelay为0时不合并，空分片被忽略
+    @Test
+    void testZeroDelayPassesThrough() {
+        StepVerifier.create(ChunkCoalescer.coalesce(Flux.just("a", "", "b"), 1024, Duration.ZERO))
+                .expectNext("a", "b")
+                .verifyComplete();
+    }
+
+    @Test
+    void testUtf8Length() {
+        assertEquals(1, ChunkCoalescer.utf8Length("a"));
+        assertEquals(2, ChunkCoalescer.utf8Length("é"));
+        assertEquals(3, ChunkCoalescer.utf8Length("你"));
+    }
+
+    private void emit(String... chunks) {
+        for (String chunk : chunks) {
+            source.tryEmitNext(chunk);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.itheima.ai.stream;
+
+import com.itheima.ai.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE续传：按Last-Event-ID跳过已收到的事件、断开后继续生成、只能在同一个接口续传
+ * 关闭合并，每个模型分片对应一个事件，事件序号确定
+ */
+class StreamingResponderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StreamingResponder responder = new StreamingResponder(new ChatMetrics(meterRegistry),
+            false, 256, Duration.ofMillis(20), Duration.ofSeconds(60));
+
+    @Test
+    void testResumeSkipsReceivedEvents() {
+        List<ServerSentEvent<String>> first = responder.sse("chat", Flux.just("a", "b", "c"), null)
+                .collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("a", "b", "c"), data(first));
+        String streamId = first.get(0).id().substring(0, first.get(0).id().lastIndexOf(':'));
+        assertEquals(List.of(streamId + ":0", streamId + ":1", streamId + ":2"), ids(first));
+
+        // 续传不会重新订阅模型输出
+        Flux<String> regenerate = Flux.error(new AssertionError("续传时不应重新生成"));
+        StepVerifier.create(responder.sse("chat", regenerate, first.get(0).id()))
+                .assertNext(event -> assertEquals(List.of("b", streamId + ":1"), List.of(event.data(), event.id())))
+                .assertNext(event -> assertEquals(List.of("c", streamId + ":2"), List.of(event.data(), event.id())))
+                .verifyComplete();
+        // 已收到全部事件：续传结果为空
+        StepVerifier.create(responder.sse("chat", regenerate, first.get(2).id()))
+                .verifyComplete();
+    }
+
+    // 客户端断开后模型继续生成，重连时拿到断开期间的输出
+    @Test
+    void testGenerationContinuesAfterDisconnect() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        String[] lastEventId = new String[1];
+        StepVerifier.create(responder.sse("chat", content.asFlux(), null))
+                .then(() -> content.tryEmitNext("第一段"))
+                .assertNext(event -> lastEventId[0] = event.id())
+                .thenCancel()
+                .verify();
+        content.tryEmitNext("第二段");
+        content.tryEmitNext("第三段");
+        content.tryEmitComplete();
+
+        List<ServerSentEvent<String>> resumed = responder.sse("chat", Flux.empty(), lastEventId[0])
+                .collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("第二段", "第三段"), data(resumed));
+    }
+
+    // 其他接口的事件ID不能续传：按新请求重新生成，得到新的流ID
+    @Test
+    void testResumeIsScopedToClient() {
+        List<ServerSentEvent<String>> chat = responder.sse("chat", Flux.just("会话内容", "更多内容"), null)
+                .collectList().block(Duration.ofSeconds(5));
+        String chatEventId = chat.get(0).id();
+
+        List<ServerSentEvent<String>> game = responder.sse("game", Flux.just("游戏内容"), chatEventId)
+                .collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("游戏内容"), data(game));
+        assertTrue(game.get(0).id().endsWith(":0"));
+        assertNotEquals(chatEventId.substring(0, chatEventId.lastIndexOf(':')),
+                game.get(0).id().substring(0, game.get(0).id().lastIndexOf(':')));
+    }
+
+    // 无法解析或已过期的事件ID：重新生成
+    @Test
+    void testUnknownEventIdStartsNewStream() {
+        for (String lastEventId : List.of("no-separator", "unknown:3", "unknown:x")) {
+            assertEquals(List.of("新内容"), data(responder.sse("chat", Flux.just("新内容"), lastEventId)
+                    .collectList().block(Duration.ofSeconds(5))));
+        }
+    }
+
+    private static List<String> data(List<ServerSentEvent<String>> events) {
+        return events.stream().map(ServerSentEvent::data).toList();
+    }
+
+    private static List<String> ids(List<ServerSentEvent<String>> events) {
+        return events.stream().map(ServerSentEvent::id).toList();
+    }
+}
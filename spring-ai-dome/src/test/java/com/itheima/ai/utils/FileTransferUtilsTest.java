@@ -0,0 +1,116 @@
+package com.itheima.ai.utils;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Range解析与文件发送：后缀范围、开放范围、无法满足返回416、多段Range按完整文件返回
+ */
+class FileTransferUtilsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testParseClosedRange() {
+        assertArrayEquals(new long[]{0, 9}, FileTransferUtils.parseRange("bytes=0-9", 100));
+        // 结束位置超出文件长度时截断到最后一个字节
+        assertArrayEquals(new long[]{90, 99}, FileTransferUtils.parseRange("bytes=90-200", 100));
+    }
+
+    @Test
+    void testParseOpenEndedRange() {
+        assertArrayEquals(new long[]{40, 99}, FileTransferUtils.parseRange("bytes=40-", 100));
+        assertArrayEquals(new long[]{99, 99}, FileTransferUtils.parseRange("bytes=99-", 100));
+    }
+
+    @Test
+    void testParseSuffixRange() {
+        assertArrayEquals(new long[]{90, 99}, FileTransferUtils.parseRange("bytes=-10", 100));
+        // 后缀长度超过文件长度时返回整个文件
+        assertArrayEquals(new long[]{0, 99}, FileTransferUtils.parseRange("bytes=-500", 100));
+    }
+
+    @Test
+    void testParseUnsatisfiableRange() {
+        assertEquals(0, FileTransferUtils.parseRange("bytes=100-", 100).length);
+        assertEquals(0, FileTransferUtils.parseRange("bytes=50-10", 100).length);
+        assertEquals(0, FileTransferUtils.parseRange("bytes=-0", 100).length);
+        assertEquals(0, FileTransferUtils.parseRange("bytes=-10", 0).length);
+    }
+
+    @Test
+    void testParseUnsupportedRange() {
+        assertNull(FileTransferUtils.parseRange("bytes=0-1,5-9", 100));
+        assertNull(FileTransferUtils.parseRange("items=0-9", 100));
+        assertNull(FileTransferUtils.parseRange("bytes=-", 100));
+        assertNull(FileTransferUtils.parseRange("bytes=5--3", 100));
+        assertNull(FileTransferUtils.parseRange("bytes=+5-", 100));
+        assertNull(FileTransferUtils.parseRange("bytes=99999999999999999999-", 100));
+    }
+
+    @Test
+    void testSendPartialContent() throws IOException {
+        MockHttpServletResponse response = send("bytes=-4");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 6-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("6789", response.getContentAsString());
+    }
+
+    @Test
+    void testSendUnsatisfiableRangeReturns416() throws IOException {
+        MockHttpServletResponse response = send("bytes=10-");
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    // 不支持多段Range：忽略Range头，按200返回完整文件
+    @Test
+    void testSendMultiRangeReturnsWholeFile() throws IOException {
+        MockHttpServletResponse response = send("bytes=0-1,5-6");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    // 容器支持sendfile时只设置请求属性，不写响应体
+    @Test
+    void testSendUsesSendfileWhenSupported() throws IOException {
+        Path file = file();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileTransferUtils.send(file, request, response);
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletResponse send(String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, range);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileTransferUtils.send(file(), request, response);
+        return response;
+    }
+
+    private Path file() throws IOException {
+        return Files.writeString(dir.resolve("file.pdf"), "0123456789", StandardCharsets.US_ASCII);
+    }
+}
@@ -5,12 +5,24 @@ import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * 中文Token分割器
+ * 按chunkSize个token切块，块内最后一个句末标点（. ? ! \n 。 ？ ！）位置超过minChunkSizeChars时在标点处截断
+ *
+ * 实现方式：
+ * - token保存在IntArrayList中，用起止下标表示当前块，不装箱、不截取子列表
+ * - 每块只解码一次字节，在字节中反向查找标点；截断位置按每个token的字节长度换算成token下标，不再重新编码
+ * - 多个文档时并行分割，输出顺序与输入一致
+ */
 public class ChineseTokenTextSplitter extends TextSplitter {
 
 	private static final int DEFAULT_CHUNK_SIZE = 800;
@@ -23,10 +35,20 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 
 	private static final boolean KEEP_SEPARATOR = true;
 
+	// 。？！ 的UTF-8编码
+	private static final byte[][] CJK_PUNCTUATION = {
+			"。".getBytes(StandardCharsets.UTF_8),
+			"？".getBytes(StandardCharsets.UTF_8),
+			"！".getBytes(StandardCharsets.UTF_8)
+	};
+
 	private final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
 
 	private final Encoding encoding = this.registry.getEncoding(EncodingType.CL100K_BASE);
 
+	// token -> 解码后的字节数，按需填充（-1表示未计算）；并发写入的都是相同的值
+	private volatile int[] tokenLengths = new int[0];
+
 	// The target size of each text chunk in tokens
 	private final int chunkSize;
 
@@ -62,6 +84,20 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 		return new Builder();
 	}
 
+	/**
+	 * 多个文档并行分割，结果按输入顺序拼接
+	 */
+	@Override
+	public List<Document> apply(List<Document> documents) {
+		if (documents.size() < 2) {
+			return super.apply(documents);
+		}
+		return documents.parallelStream()
+				.map(document -> super.apply(List.of(document)))
+				.flatMap(List::stream)
+				.toList();
+	}
+
 	@Override
 	protected List<String> splitText(String text) {
 		return doSplit(text, this.chunkSize);
@@ -72,39 +108,42 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 			return new ArrayList<>();
 		}
 
-		List<Integer> tokens = getEncodedTokens(text);
+		IntArrayList tokens = getEncodedTokens(text);
+		int size = tokens.size();
+		// 复用的解码缓冲区
+		IntArrayList window = new IntArrayList(Math.min(chunkSize, size));
 		List<String> chunks = new ArrayList<>();
+		int start = 0;
 		int num_chunks = 0;
 		// maxNumChunks多能分多少个块， 超过了就不管了
-		while (!tokens.isEmpty() && num_chunks < this.maxNumChunks) {
+		while (start < size && num_chunks < this.maxNumChunks) {
 			// 按照chunkSize进行分隔
-			List<Integer> chunk = tokens.subList(0, Math.min(chunkSize, tokens.size()));
-			String chunkText = decodeTokens(chunk);
+			int end = Math.min(start + chunkSize, size);
+			byte[] bytes = decodeBytes(tokens, start, end, window);
 
 			// Skip the chunk if it is empty or whitespace
-			if (chunkText.trim().isEmpty()) {
-				tokens = tokens.subList(chunk.size(), tokens.size());
+			if (isBlank(bytes)) {
+				start = end;
 				continue;
 			}
 
 			// Find the last period or punctuation mark in the chunk
-			int lastPunctuation =
-					Math.max(chunkText.lastIndexOf('.'),
-					Math.max(chunkText.lastIndexOf('?'),
-					Math.max(chunkText.lastIndexOf('!'),
-					Math.max(chunkText.lastIndexOf('\n'),
-					Math.max(chunkText.lastIndexOf('。'),
-					Math.max(chunkText.lastIndexOf('？'),
-					chunkText.lastIndexOf('！')
-					))))));
-
-			// 按照句子截取之后长度 > minChunkSizeChars
-			if (lastPunctuation != -1 && lastPunctuation > this.minChunkSizeChars) {
-				// 保留按照句子截取之后的内容
-				chunkText = chunkText.substring(0, lastPunctuation + 1);
+			String chunkText = null;
+			int next = end;
+			int cut = lastPunctuationEnd(bytes);
+			if (cut != -1) {
+				String truncated = new String(bytes, 0, cut, StandardCharsets.UTF_8);
+				// 按照句子截取之后长度 > minChunkSizeChars（标点下标 = 截取后长度 - 1）
+				if (truncated.length() - 1 > this.minChunkSizeChars) {
+					// 保留按照句子截取之后的内容，下一块从标点所在token之后开始
+					chunkText = truncated;
+					next = tokenIndexAfter(tokens, start, cut);
+				}
 			}
 			// 按照句子截取之后长度 < minChunkSizeChars 保留原块
-
+			if (chunkText == null) {
+				chunkText = new String(bytes, StandardCharsets.UTF_8);
+			}
 
 			// keepSeparator=true 替换/r/n   =false不管
 			String chunkTextToAppend = (this.keepSeparator) ? chunkText.trim()
@@ -115,15 +154,14 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 				chunks.add(chunkTextToAppend);
 			}
 
-			// Remove the tokens corresponding to the chunk text from the remaining tokens
-			tokens = tokens.subList(getEncodedTokens(chunkText).size(), tokens.size());
-
+			start = next;
 			num_chunks++;
 		}
 
 		// Handle the remaining tokens
-		if (!tokens.isEmpty()) {
-			String remaining_text = decodeTokens(tokens).replace(System.lineSeparator(), " ").trim();
+		if (start < size) {
+			String remaining_text = new String(decodeBytes(tokens, start, size, window), StandardCharsets.UTF_8)
+					.replace(System.lineSeparator(), " ").trim();
 			if (remaining_text.length() > this.minChunkLengthToEmbed) {
 				chunks.add(remaining_text);
 			}
@@ -132,16 +170,84 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 		return chunks;
 	}
 
-	private List<Integer> getEncodedTokens(String text) {
+	private IntArrayList getEncodedTokens(String text) {
 		Assert.notNull(text, "Text must not be null");
-		return this.encoding.encode(text).boxed();
+		return this.encoding.encode(text);
 	}
 
-	private String decodeTokens(List<Integer> tokens) {
-		Assert.notNull(tokens, "Tokens must not be null");
-		var tokensIntArray = new IntArrayList(tokens.size());
-		tokens.forEach(tokensIntArray::add);
-		return this.encoding.decode(tokensIntArray);
+	private byte[] decodeBytes(IntArrayList tokens, int from, int to, IntArrayList window) {
+		window.clear();
+		for (int i = from; i < to; i++) {
+			window.add(tokens.get(i));
+		}
+		return this.encoding.decodeBytes(window);
+	}
+
+	/**
+	 * 块中最后一个句末标点之后的字节下标，没有标点返回-1
+	 */
+	private static int lastPunctuationEnd(byte[] bytes) {
+		for (int i = bytes.length - 1; i >= 0; i--) {
+			byte b = bytes[i];
+			if (b == '.' || b == '?' || b == '!' || b == '\n') {
+				return i + 1;
+			}
+			if (i >= 2) {
+				for (byte[] punctuation : CJK_PUNCTUATION) {
+					if (b == punctuation[2] && bytes[i - 1] == punctuation[1] && bytes[i - 2] == punctuation[0]) {
+						return i + 1;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// 与String.trim()一致：所有字符都 <= ' ' 视为空白（非ASCII字节解码后都大于' '）
+	private static boolean isBlank(byte[] bytes) {
+		for (byte b : bytes) {
+			if ((b & 0xFF) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 从from开始累加token的字节数，返回第一个起始位置不早于byteOffset的token下标；
+	 * 标点与后续字符合并在同一个token中时，该token归入当前块
+	 */
+	private int tokenIndexAfter(IntArrayList tokens, int from, int byteOffset) {
+		int index = from;
+		int position = 0;
+		while (position < byteOffset) {
+			position += tokenLength(tokens.get(index));
+			index++;
+		}
+		return index;
+	}
+
+	private int tokenLength(int token) {
+		int[] lengths = this.tokenLengths;
+		if (token >= lengths.length) {
+			synchronized (this) {
+				lengths = this.tokenLengths;
+				if (token >= lengths.length) {
+					int capacity = Math.max(token + 1, lengths.length * 2);
+					int[] grown = Arrays.copyOf(lengths, capacity);
+					Arrays.fill(grown, lengths.length, capacity, -1);
+					this.tokenLengths = lengths = grown;
+				}
+			}
+		}
+		int length = lengths[token];
+		if (length < 0) {
+			IntArrayList single = new IntArrayList(1);
+			single.add(token);
+			length = this.encoding.decodeBytes(single).length;
+			lengths[token] = length;
+		}
+		return length;
 	}
 
 	public static final class Builder {
@@ -191,4 +297,4 @@ public class ChineseTokenTextSplitter extends TextSplitter {
 
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.xushu.springai.rag.ELT;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 重写后的ChineseTokenTextSplitter与旧实现（LegacyChineseTokenTextSplitter）输出一致性测试
+ * 覆盖：纯文本、Markdown、PDF（摘要和全文），默认参数、小块参数、不保留换行、块数上限
+ */
+public class ChineseTokenTextSplitterParityTest {
+
+    // chunkSize, minChunkSizeChars, minChunkLengthToEmbed, maxNumChunks
+    private static final int[][] CONFIGS = {
+            {800, 350, 5, 10000},
+            {130, 10, 5, 10000},
+            {200, 50, 5, 10000},
+            {800, 350, 5, 3}
+    };
+
+    @Test
+    void testParity() {
+        Map<String, String> corpora = Map.of(
+                "terms-of-service", text("rag/terms-of-service.txt"),
+                "markdown", text("rag/9_横店影视股份有限公司_0.md"),
+                "summary-pdf", pdf("rag/平安银行2023年半年度报告摘要.pdf"),
+                "report-pdf", pdf("rag/平安银行2023年半年度报告.pdf"));
+        corpora.forEach((name, text) -> {
+            for (int[] config : CONFIGS) {
+                for (boolean keepSeparator : new boolean[]{true, false}) {
+                    List<Document> expected = new LegacyChineseTokenTextSplitter(config[0], config[1], config[2], config[3],
+                            keepSeparator).apply(List.of(new Document(text)));
+                    List<Document> actual = new ChineseTokenTextSplitter(config[0], config[1], config[2], config[3],
+                            keepSeparator).apply(List.of(new Document(text)));
+                    assertEquals(texts(expected), texts(actual), name + " chunkSize=" + config[0]
+                            + " maxNumChunks=" + config[3] + " keepSeparator=" + keepSeparator);
+                }
+            }
+        });
+    }
+
+    // 多文档并行分割：内容、顺序和元数据与旧实现逐个分割一致
+    @Test
+    void testParallelDocuments() {
+        List<Document> documents = new ArrayList<>();
+        List<Document> pages = new PagePdfDocumentReader(new ClassPathResource("rag/平安银行2023年半年度报告摘要.pdf")).read();
+        for (int i = 0; i < pages.size(); i++) {
+            documents.add(new Document(pages.get(i).getText(), Map.of("page", i)));
+        }
+        List<Document> expected = new LegacyChineseTokenTextSplitter().apply(documents);
+        List<Document> actual = new ChineseTokenTextSplitter().apply(documents);
+        assertEquals(texts(expected), texts(actual));
+        assertEquals(expected.stream().map(Document::getMetadata).toList(),
+                actual.stream().map(Document::getMetadata).toList());
+    }
+
+    private static List<String> texts(List<Document> documents) {
+        return documents.stream().map(Document::getText).toList();
+    }
+
+    private static String text(String path) {
+        return new TextReader(new ClassPathResource(path)).read().get(0).getText();
+    }
+
+    private static String pdf(String path) {
+        return new PagePdfDocumentReader(new ClassPathResource(path)).read().stream()
+                .map(Document::getText)
+                .collect(Collectors.joining("\n"));
+    }
+}
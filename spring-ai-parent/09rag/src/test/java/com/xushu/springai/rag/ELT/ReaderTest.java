@@ -14,7 +14,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 public class ReaderTest {
@@ -108,4 +115,44 @@ public class ReaderTest {
             System.out.println(document.getText());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试流式PDF段落读取器：逐段读取，按批交给分割器，适合几百MB的大文件
+     * 与ParagraphPdfDocumentReader使用相同配置，逐段对比文本和元数据（Document ID为随机生成，不比较）
+     * @param resource 通过@Value注入的PDF文件资源
+     */
+    @Test
+    public void testStreamingReaderParagraphPdf(@Value("classpath:rag/平安银行2023年半年度报告.pdf") Resource resource) {
+        PdfDocumentReaderConfig config = PdfDocumentReaderConfig.builder()
+                .withReversedParagraphPosition(true)
+                .withPageTopMargin(0)
+                .withPageExtractedTextFormatter(ExtractedTextFormatter.builder()
+                        .withNumberOfTopTextLinesToDelete(0)
+                        .build())
+                .build();
+        ChineseTokenTextSplitter splitter = new ChineseTokenTextSplitter();
+
+        // 对照：一次性读取全部段落
+        List<Document> expected = new ParagraphPdfDocumentReader(resource, config).get();
+        assertFalse(expected.isEmpty());
+
+        // 每20个段落一批：分割后即可写入向量库，处理完的批次不再持有
+        List<String> texts = new ArrayList<>();
+        List<Map<String, Object>> metadata = new ArrayList<>();
+        AtomicInteger chunks = new AtomicInteger();
+        try (StreamingParagraphPdfDocumentReader pdfReader = new StreamingParagraphPdfDocumentReader(resource, config)) {
+            pdfReader.forEachBatch(20, batch -> {
+                assertTrue(batch.size() <= 20);
+                batch.forEach(document -> {
+                    texts.add(document.getText());
+                    metadata.add(document.getMetadata());
+                });
+                chunks.addAndGet(splitter.apply(batch).size());
+            });
+        }
+
+        assertEquals(expected.stream().map(Document::getText).toList(), texts);
+        assertEquals(expected.stream().map(Document::getMetadata).toList(), metadata);
+        assertTrue(chunks.get() > 0);
+    }
+}
@@ -0,0 +1,266 @@
+package com.xushu.springai.rag.ELT;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.reader.pdf.config.ParagraphManager;
+import org.springframework.ai.reader.pdf.config.ParagraphManager.Paragraph;
+import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
+import org.springframework.ai.reader.pdf.layout.PDFLayoutTextStripperByArea;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 流式PDF段落读取器：与ParagraphPdfDocumentReader输出相同（文本与元数据），但按需逐段生成Document
+ * 功能：
+ * 1. 按目录（大纲）展开段落，遍历到哪一段才提取哪一段的文本，不一次性生成全部Document
+ * 2. PDF按文件随机读取（classpath中的资源先复制到临时文件），不把整个文件读入堆内存
+ * 3. 解码后的流缓存在临时文件中（PDFBox temp-file-only缓存）
+ * 4. forEachBatch按批交给下游（分割、向量化），每批处理完即可回收
+ *
+ * 使用方式：
+ * try (var reader = new StreamingParagraphPdfDocumentReader(resource, config)) {
+ *     reader.forEachBatch(20, batch -> vectorStore.add(splitter.apply(batch)));
+ * }
+ */
+public class StreamingParagraphPdfDocumentReader implements DocumentReader, AutoCloseable {
+
+	// 与ParagraphPdfDocumentReader的元数据键一致
+	private static final String METADATA_START_PAGE = "page_number";
+
+	private static final String METADATA_END_PAGE = "end_page_number";
+
+	private static final String METADATA_TITLE = "title";
+
+	private static final String METADATA_LEVEL = "level";
+
+	private static final String METADATA_FILE_NAME = "file_name";
+
+	private static final String REGION = "pdfPageRegion";
+
+	private final PdfDocumentReaderConfig config;
+
+	private final String resourceFileName;
+
+	private final Path tempFile;
+
+	private final PDDocument document;
+
+	private final List<Paragraph> paragraphs;
+
+	public StreamingParagraphPdfDocumentReader(Resource pdfResource) {
+		this(pdfResource, PdfDocumentReaderConfig.defaultConfig());
+	}
+
+	public StreamingParagraphPdfDocumentReader(Resource pdfResource, PdfDocumentReaderConfig config) {
+		this.config = config;
+		this.resourceFileName = pdfResource.getFilename();
+		try {
+			File file;
+			if (pdfResource.isFile()) {
+				file = pdfResource.getFile();
+				this.tempFile = null;
+			}
+			else {
+				// jar中的资源没有文件路径，复制到临时文件后随机读取
+				this.tempFile = Files.createTempFile("paragraph-pdf-", ".pdf");
+				try (InputStream in = pdfResource.getInputStream()) {
+					Files.copy(in, this.tempFile, StandardCopyOption.REPLACE_EXISTING);
+				}
+				file = this.tempFile.toFile();
+			}
+			this.document = Loader.loadPDF(file, IOUtils.createTempFileOnlyStreamCache());
+			// 只展开目录（标题与位置），不提取正文
+			this.paragraphs = new ParagraphManager(this.document).flatten();
+		}
+		catch (IOException e) {
+			close();
+			throw new UncheckedIOException("PDF打开失败：" + this.resourceFileName, e);
+		}
+	}
+
+	/**
+	 * 一次性读取全部段落（兼容DocumentReader），大文件请使用stream()或forEachBatch
+	 */
+	@Override
+	public List<Document> get() {
+		try (Stream<Document> documents = stream()) {
+			return documents.toList();
+		}
+	}
+
+	/**
+	 * 按需生成段落Document的流，顺序与ParagraphPdfDocumentReader.read()一致
+	 */
+	public Stream<Document> stream() {
+		Iterator<Document> iterator = new Iterator<>() {
+
+			private int index = 0;
+
+			private Document next;
+
+			@Override
+			public boolean hasNext() {
+				while (this.next == null && hasMoreParagraphs()) {
+					this.next = nextDocument();
+				}
+				return this.next != null;
+			}
+
+			@Override
+			public Document next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Document document = this.next;
+				this.next = null;
+				return document;
+			}
+
+			private boolean hasMoreParagraphs() {
+				// 只有一个段落时单独输出；否则每对相邻段落输出一个
+				return paragraphs.size() == 1 ? this.index == 0 : this.index < paragraphs.size() - 1;
+			}
+
+			private Document nextDocument() {
+				Paragraph from = paragraphs.get(this.index);
+				Paragraph to = paragraphs.size() == 1 ? from : paragraphs.get(this.index + 1);
+				this.index++;
+				return toDocument(from, to);
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+	}
+
+	/**
+	 * 按批输出段落
+	 * @param batchSize 每批的段落数
+	 * @param consumer 下游处理（如分割后写入向量库）
+	 */
+	public void forEachBatch(int batchSize, Consumer<List<Document>> consumer) {
+		List<Document> batch = new ArrayList<>(batchSize);
+		try (Stream<Document> documents = stream()) {
+			Iterator<Document> iterator = documents.iterator();
+			while (iterator.hasNext()) {
+				batch.add(iterator.next());
+				if (batch.size() == batchSize) {
+					consumer.accept(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+		}
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+		}
+	}
+
+	/**
+	 * 段落数（目录展开后的条目数）
+	 */
+	public int paragraphCount() {
+		return this.paragraphs.size();
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (this.document != null) {
+				this.document.close();
+			}
+			if (this.tempFile != null) {
+				Files.deleteIfExists(this.tempFile);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Document toDocument(Paragraph from, Paragraph to) {
+		String docText = getTextBetweenParagraphs(from, to);
+		if (!StringUtils.hasText(docText)) {
+			return null;
+		}
+		Document document = new Document(docText);
+		document.getMetadata().put(METADATA_TITLE, from.title());
+		document.getMetadata().put(METADATA_START_PAGE, from.startPageNumber());
+		document.getMetadata().put(METADATA_END_PAGE, to.startPageNumber());
+		document.getMetadata().put(METADATA_LEVEL, from.level());
+		document.getMetadata().put(METADATA_FILE_NAME, this.resourceFileName);
+		return document;
+	}
+
+	/**
+	 * 提取两个段落标题之间的文本（区域计算与ParagraphPdfDocumentReader相同）
+	 */
+	private String getTextBetweenParagraphs(Paragraph fromParagraph, Paragraph toParagraph) {
+		// Page started from index 0, while PDFBox getPage return them from index 1.
+		int startPage = fromParagraph.startPageNumber() - 1;
+		int endPage = toParagraph.startPageNumber() - 1;
+		try {
+			StringBuilder sb = new StringBuilder();
+			PDFLayoutTextStripperByArea pdfTextStripper = new PDFLayoutTextStripperByArea();
+			pdfTextStripper.setSortByPosition(true);
+			for (int pageNumber = startPage; pageNumber <= endPage; pageNumber++) {
+				PDPage page = this.document.getPage(pageNumber);
+				int pageHeight = (int) page.getMediaBox().getHeight();
+				int fromPosition = fromParagraph.position();
+				int toPosition = toParagraph.position();
+				if (this.config.reversedParagraphPosition) {
+					fromPosition = (int) (page.getMediaBox().getHeight() - fromPosition);
+					toPosition = (int) (page.getMediaBox().getHeight() - toPosition);
+				}
+				int x0 = (int) page.getMediaBox().getLowerLeftX();
+				int xW = (int) page.getMediaBox().getWidth();
+				int y0 = (int) page.getMediaBox().getLowerLeftY();
+				int yW = pageHeight;
+				if (pageNumber == startPage) {
+					y0 = fromPosition;
+					yW = pageHeight - y0;
+				}
+				if (pageNumber == endPage) {
+					yW = toPosition - y0;
+				}
+				if ((y0 + yW) == pageHeight) {
+					yW = yW - this.config.pageBottomMargin;
+				}
+				if (y0 == 0) {
+					y0 = y0 + this.config.pageTopMargin;
+					yW = yW - this.config.pageTopMargin;
+				}
+				pdfTextStripper.addRegion(REGION, new Rectangle(x0, y0, xW, yW));
+				pdfTextStripper.extractRegions(page);
+				String text = pdfTextStripper.getTextForRegion(REGION);
+				if (StringUtils.hasText(text)) {
+					sb.append(text);
+				}
+				pdfTextStripper.removeRegion(REGION);
+			}
+			String text = sb.toString();
+			if (StringUtils.hasText(text)) {
+				text = this.config.pageExtractedTextFormatter.format(text, startPage);
+			}
+			return text;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("段落文本提取失败：" + fromParagraph.title(), e);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.xushu.springai.benchmark;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+/**
+ * 基准测试语料
+ * 功能：
+ * 1. 内置语料名：tos（terms-of-service.txt）、report（平安银行半年报PDF）、summary（半年报摘要PDF）
+ * 2. 其他取值按文件路径读取（如英文语料 -p corpus=/data/en.txt），.pdf按页提取文本
+ * 3. 原文重复拼接到指定大小（UTF-8字节数），模拟大文档
+ */
+public final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * @param name 内置语料名或文件路径
+     * @param sizeMb 目标大小（MB）
+     */
+    public static String load(String name, int sizeMb) {
+        String text = read(resolve(name));
+        byte[] unit = text.getBytes(StandardCharsets.UTF_8);
+        long target = sizeMb * 1024L * 1024L;
+        StringBuilder builder = new StringBuilder((int) (text.length() * (target / unit.length + 1)));
+        for (long size = 0; size < target; size += unit.length + 1) {
+            builder.append(text).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static Resource resolve(String name) {
+        return switch (name) {
+            case "tos" -> new ClassPathResource("rag/terms-of-service.txt");
+            case "report" -> new ClassPathResource("rag/平安银行2023年半年度报告.pdf");
+            case "summary" -> new ClassPathResource("rag/平安银行2023年半年度报告摘要.pdf");
+            default -> new FileSystemResource(name);
+        };
+    }
+
+    private static String read(Resource resource) {
+        if (resource.getFilename() != null && resource.getFilename().endsWith(".pdf")) {
+            return new PagePdfDocumentReader(resource).read().stream()
+                    .map(Document::getText)
+                    .collect(Collectors.joining("\n"));
+        }
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("语料读取失败：" + resource, e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.xushu.springai.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档分割器基准测试
+ * 每次调用把整份语料分割一遍，结果为每次耗时（ms/op）；
+ * 吞吐（MB/s）与分配速率由SplitterBenchmarkRunner根据结果和GC Profiler换算输出
+ *
+ * 100MB语料需要较大堆，且LEGACY_CHINESE_TOKEN在该规模下耗时很长，默认只跑1MB和10MB：
+ * java -jar target/benchmarks.jar -p sizeMb=100
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SplitterBenchmark {
+
+    @Param({"CHINESE_TOKEN", "LEGACY_CHINESE_TOKEN", "SPRING_TOKEN", "LC4J_REGEX", "LC4J_CHARACTER", "LC4J_SENTENCE"})
+    public SplitterKind splitter;
+
+    @Param({"tos", "report"})
+    public String corpus;
+
+    @Param({"1", "10"})
+    public int sizeMb;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void load() {
+        text = Corpus.load(corpus, sizeMb);
+    }
+
+    @Benchmark
+    public List<String> split() {
+        return splitter.split(text);
+    }
+}
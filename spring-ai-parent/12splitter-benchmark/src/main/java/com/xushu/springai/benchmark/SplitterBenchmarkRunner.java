@@ -0,0 +1,71 @@
+package com.xushu.springai.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 分割器基准入口（benchmarks.jar的Main）
+ * 1. 先输出每个分割器在每份语料上的块大小分布（字符数）
+ * 2. 再运行JMH（附带GC Profiler），最后汇总 吞吐MB/s、每MB分配量
+ * 命令行参数与JMH一致，如：java -jar benchmarks.jar -p corpus=/data/en.txt -p sizeMb=1,10,100
+ */
+public class SplitterBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Collection<String> corpora = commandLine.getParameter("corpus").orElse(List.of("tos", "report"));
+        for (String corpus : corpora) {
+            printChunkSizes(corpus);
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .include(SplitterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.printf("%n%-16s %-10s %6s %12s %16s%n", "splitter", "corpus", "MB", "MB/s", "alloc MB/MB");
+        for (RunResult result : results) {
+            var params = result.getParams();
+            int sizeMb = Integer.parseInt(params.getParam("sizeMb"));
+            double millis = result.getPrimaryResult().getScore();
+            Result<?> alloc = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            double allocPerMb = alloc == null ? Double.NaN : alloc.getScore() / sizeMb / 1024 / 1024;
+            System.out.printf("%-16s %-10s %6d %12.1f %16.1f%n", params.getParam("splitter"), params.getParam("corpus"),
+                    sizeMb, sizeMb * 1000 / millis, allocPerMb);
+        }
+    }
+
+    // 块大小分布用1MB语料统计，与语料重复次数无关
+    private static void printChunkSizes(String corpus) {
+        String text = Corpus.load(corpus, 1);
+        System.out.printf("%n块大小分布（字符数） corpus=%s%n", corpus);
+        System.out.printf("%-16s %8s %6s %6s %6s %6s %6s %8s%n", "splitter", "chunks", "min", "p10", "p50", "p90", "max", "mean");
+        for (SplitterKind splitter : SplitterKind.values()) {
+            int[] sizes = splitter.split(text).stream().mapToInt(String::length).sorted().toArray();
+            if (sizes.length == 0) {
+                System.out.printf("%-16s %8d%n", splitter, 0);
+                continue;
+            }
+            System.out.printf("%-16s %8d %6d %6d %6d %6d %6d %8.1f%n", splitter, sizes.length, sizes[0],
+                    percentile(sizes, 0.1), percentile(sizes, 0.5), percentile(sizes, 0.9), sizes[sizes.length - 1],
+                    Arrays.stream(sizes).average().orElse(0));
+        }
+    }
+
+    private static int percentile(int[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
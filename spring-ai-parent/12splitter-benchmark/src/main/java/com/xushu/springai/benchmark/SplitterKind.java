@@ -0,0 +1,86 @@
+package com.xushu.springai.benchmark;
+
+import com.xushu.springai.rag.ELT.ChineseTokenTextSplitter;
+import com.xushu.springai.rag.ELT.LegacyChineseTokenTextSplitter;
+import dev.langchain4j.data.document.splitter.DocumentByCharacterSplitter;
+import dev.langchain4j.data.document.splitter.DocumentByRegexSplitter;
+import dev.langchain4j.data.document.splitter.DocumentBySentenceSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+
+/**
+ * 参与比较的分割器
+ * LangChain4j分割器统一用 每段最多500字符、重叠50字符（与ELPTest中的写法一致，只调大了段长）；
+ * Spring AI分割器用默认配置（800 token）
+ */
+public enum SplitterKind {
+
+    LC4J_REGEX {
+        @Override
+        List<String> split(String text) {
+            return langchain4j(new DocumentByRegexSplitter("\\n\\d+\\.", "\n", MAX_CHARS, OVERLAP_CHARS,
+                    new DocumentByCharacterSplitter(MAX_CHARS, OVERLAP_CHARS)), text);
+        }
+    },
+
+    LC4J_CHARACTER {
+        @Override
+        List<String> split(String text) {
+            return langchain4j(new DocumentByCharacterSplitter(MAX_CHARS, OVERLAP_CHARS), text);
+        }
+    },
+
+    LC4J_SENTENCE {
+        @Override
+        List<String> split(String text) {
+            return langchain4j(new DocumentBySentenceSplitter(MAX_CHARS, OVERLAP_CHARS), text);
+        }
+    },
+
+    SPRING_TOKEN {
+        @Override
+        List<String> split(String text) {
+            return springAi(new TokenTextSplitter(), text);
+        }
+    },
+
+    CHINESE_TOKEN {
+        @Override
+        List<String> split(String text) {
+            return springAi(new ChineseTokenTextSplitter(), text);
+        }
+    },
+
+    // 重写前的实现，作为对照
+    LEGACY_CHINESE_TOKEN {
+        @Override
+        List<String> split(String text) {
+            return springAi(new LegacyChineseTokenTextSplitter(), text);
+        }
+    };
+
+    private static final int MAX_CHARS = 500;
+
+    private static final int OVERLAP_CHARS = 50;
+
+    /**
+     * 分割文本，返回每个块的内容
+     */
+    abstract List<String> split(String text);
+
+    private static List<String> langchain4j(dev.langchain4j.data.document.DocumentSplitter splitter, String text) {
+        return splitter.split(dev.langchain4j.data.document.Document.from(text)).stream()
+                .map(TextSegment::text)
+                .toList();
+    }
+
+    private static List<String> springAi(TextSplitter splitter, String text) {
+        return splitter.apply(List.of(new Document(text))).stream()
+                .map(Document::getText)
+                .toList();
+    }
+}